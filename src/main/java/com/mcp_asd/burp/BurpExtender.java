@@ -3,7 +3,9 @@ package com.mcp_asd.burp;
 import burp.api.montoya.BurpExtension;
 import burp.api.montoya.MontoyaApi;
 import com.mcp_asd.burp.engine.EnumerationEngine;
-import com.mcp_asd.burp.engine.SessionStore;
+import com.mcp_asd.burp.engine.TimerWheel;
+import com.mcp_asd.burp.journal.ReplayEngine;
+import com.mcp_asd.burp.journal.TrafficJournal;
 import com.mcp_asd.burp.ui.DashboardTab;
 
 public class BurpExtender implements BurpExtension
@@ -17,32 +19,37 @@ public class BurpExtender implements BurpExtension
 
             api.logging().logToOutput("Initializing GlobalSettings...");
             GlobalSettings settings = new GlobalSettings(api);
+            Log.install(api, settings);
+            HttpClients.install(settings);
 
-            api.logging().logToOutput("Initializing SessionStore...");
-            SessionStore sessionStore = new SessionStore();
+            TrafficJournal journal = new TrafficJournal(settings);
             
             // Refactored initialization order to handle circular dependencies
             api.logging().logToOutput("Initializing EnumerationEngine...");
-            EnumerationEngine engine = new EnumerationEngine(api, null, sessionStore, settings);
+            EnumerationEngine engine = new EnumerationEngine(api, null, settings, journal);
 
             api.logging().logToOutput("Initializing McpProxy...");
-            McpProxy proxy = new McpProxy(api, sessionStore, engine);
+            McpProxy proxy = new McpProxy(api, engine, settings);
             
             api.logging().logToOutput("Initializing DashboardTab...");
             DashboardTab dashboardTab = new DashboardTab(api, proxy, settings);
             
             // Link Tab to Engine
             engine.setDashboardTab(dashboardTab);
+            ReplayEngine replayEngine = new ReplayEngine(journal, engine, settings);
+            dashboardTab.setReplayEngine(replayEngine);
             
             // Allow DashboardTab to trigger connection
             dashboardTab.setConnectionListener((config) -> {
+                proxy.getResponseCache().clear(); // Cached results may belong to a replaced target
                 engine.start(config);
             });
             
-            // Allow DashboardTab to cancel connection
-            dashboardTab.setCancellationListener(() -> {
-                engine.cancel();
+            // Allow DashboardTab to cancel or remove a target
+            dashboardTab.setCancellationListener(target -> {
+                engine.cancelFromDashboard(target);
             });
+            dashboardTab.setRemovalListener(engine::remove);
             
             api.logging().logToOutput("Registering HttpHandler (McpProxy)...");
             api.http().registerHttpHandler(proxy);
@@ -60,8 +67,15 @@ public class BurpExtender implements BurpExtension
             // Register Unload Handler
             api.extension().registerUnloadingHandler(() -> {
                 api.logging().logToOutput("Unloading MCP-ASD...");
+                replayEngine.cancel(); // Stop a running replay
                 engine.cancel(); // Close active transports
+                proxy.shutdown(); // Stop the internal bridge server
+                dashboardTab.shutdown(); // Stop UI refresh timers
                 scanHandler.shutdown(); // Stop active probes
+                journal.close(); // Flush the active journal segment
+                TimerWheel.shared().shutdown(); // Stop the request timeout ticker
+                HttpClients.shutdown(); // Close pooled connections
+                Log.shutdown(); // Stop the log writer
                 api.logging().logToOutput("Cleanup complete.");
             });
             
@@ -3,6 +3,10 @@ package com.mcp_asd.burp;
 import burp.api.montoya.MontoyaApi;
 import burp.api.montoya.persistence.Preferences;
 
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
 public class GlobalSettings {
     private final Preferences preferences;
     
@@ -13,6 +17,23 @@ public class GlobalSettings {
     private static final String KEY_PASSIVE_CHECKS = "mcp_asd.passive_checks";
     private static final String KEY_ACTIVE_DETECTION = "mcp_asd.active_detection";
     private static final String KEY_SCOPE_ONLY = "mcp_asd.scope_only";
+    private static final String KEY_BRIDGE_MAX_IN_FLIGHT = "mcp_asd.bridge_max_in_flight";
+    private static final String KEY_BRIDGE_MAX_PER_TOOL = "mcp_asd.bridge_max_per_tool";
+    private static final String KEY_BRIDGE_MAX_QUEUED = "mcp_asd.bridge_max_queued";
+    private static final String KEY_BRIDGE_TIMEOUT_SECONDS = "mcp_asd.bridge_timeout_seconds";
+    private static final String KEY_SESSION_POOL_SIZE = "mcp_asd.session_pool_size";
+    private static final String KEY_SEND_CONCURRENCY = "mcp_asd.send_concurrency";
+    private static final String KEY_LOG_LEVEL = "mcp_asd.log_level";
+    private static final String KEY_LOG_MAX_PAYLOAD_CHARS = "mcp_asd.log_max_payload_chars";
+    private static final String KEY_CACHE_ENABLED = "mcp_asd.cache_enabled";
+    private static final String KEY_CACHE_TTL_SECONDS = "mcp_asd.cache_ttl_seconds";
+    private static final String KEY_CACHE_MAX_ENTRIES = "mcp_asd.cache_max_entries";
+    private static final String KEY_IDEMPOTENT_METHODS = "mcp_asd.idempotent_methods";
+    private static final String KEY_COALESCING_ENABLED = "mcp_asd.coalescing_enabled";
+    private static final String KEY_JOURNAL_ENABLED = "mcp_asd.journal_enabled";
+    private static final String KEY_JOURNAL_DIRECTORY = "mcp_asd.journal_directory";
+    private static final String KEY_JOURNAL_SEGMENT_MB = "mcp_asd.journal_segment_mb";
+    private static final String KEY_JOURNAL_MAX_SEGMENTS = "mcp_asd.journal_max_segments";
 
     // Defaults
     private static final boolean DEFAULT_PROXY_TRAFFIC = true;
@@ -21,6 +42,25 @@ public class GlobalSettings {
     private static final boolean DEFAULT_PASSIVE_CHECKS = true;
     private static final boolean DEFAULT_ACTIVE_DETECTION = false;
     private static final boolean DEFAULT_SCOPE_ONLY = true;
+    private static final int DEFAULT_BRIDGE_MAX_IN_FLIGHT = 64;
+    private static final int DEFAULT_BRIDGE_MAX_PER_TOOL = 16;
+    private static final int DEFAULT_BRIDGE_MAX_QUEUED = 256;
+    private static final int DEFAULT_BRIDGE_TIMEOUT_SECONDS = 60;
+    private static final int DEFAULT_SESSION_POOL_SIZE = 0;
+    private static final int DEFAULT_SEND_CONCURRENCY = 4;
+    private static final String DEFAULT_LOG_LEVEL = "INFO";
+    private static final int DEFAULT_LOG_MAX_PAYLOAD_CHARS = 2000;
+    private static final boolean DEFAULT_CACHE_ENABLED = false;
+    private static final int DEFAULT_CACHE_TTL_SECONDS = 30;
+    private static final int DEFAULT_CACHE_MAX_ENTRIES = 500;
+    private static final String DEFAULT_IDEMPOTENT_METHODS = "resources/read,resources/templates/list,tools/list,prompts/get";
+    private static final boolean DEFAULT_COALESCING_ENABLED = false;
+    private static final boolean DEFAULT_JOURNAL_ENABLED = false;
+    private static final String DEFAULT_JOURNAL_DIRECTORY = Paths.get(System.getProperty("user.home"), ".mcp-asd", "journal").toString();
+    private static final int DEFAULT_JOURNAL_SEGMENT_MB = 64;
+    private static final int DEFAULT_JOURNAL_MAX_SEGMENTS = 32;
+
+    private final List<Runnable> changeListeners = new CopyOnWriteArrayList<>();
 
     public GlobalSettings(MontoyaApi api) {
         this.preferences = api.persistence().preferences();
@@ -73,4 +113,165 @@ public class GlobalSettings {
     public void setScopeOnlyEnabled(boolean enabled) {
         preferences.setBoolean(KEY_SCOPE_ONLY, enabled);
     }
+
+    // Bridge admission control (0 = unlimited for the in-flight limits)
+    public int getBridgeMaxInFlight() {
+        return preferences.getInteger(KEY_BRIDGE_MAX_IN_FLIGHT) == null ? DEFAULT_BRIDGE_MAX_IN_FLIGHT : preferences.getInteger(KEY_BRIDGE_MAX_IN_FLIGHT);
+    }
+
+    public void setBridgeMaxInFlight(int max) {
+        preferences.setInteger(KEY_BRIDGE_MAX_IN_FLIGHT, max);
+    }
+
+    public int getBridgeMaxPerTool() {
+        return preferences.getInteger(KEY_BRIDGE_MAX_PER_TOOL) == null ? DEFAULT_BRIDGE_MAX_PER_TOOL : preferences.getInteger(KEY_BRIDGE_MAX_PER_TOOL);
+    }
+
+    public void setBridgeMaxPerTool(int max) {
+        preferences.setInteger(KEY_BRIDGE_MAX_PER_TOOL, max);
+    }
+
+    public int getBridgeMaxQueued() {
+        return preferences.getInteger(KEY_BRIDGE_MAX_QUEUED) == null ? DEFAULT_BRIDGE_MAX_QUEUED : preferences.getInteger(KEY_BRIDGE_MAX_QUEUED);
+    }
+
+    public void setBridgeMaxQueued(int max) {
+        preferences.setInteger(KEY_BRIDGE_MAX_QUEUED, max);
+    }
+
+    // Default deadline for bridge requests without an X-MCP-Timeout header
+    public int getBridgeTimeoutSeconds() {
+        return preferences.getInteger(KEY_BRIDGE_TIMEOUT_SECONDS) == null ? DEFAULT_BRIDGE_TIMEOUT_SECONDS : preferences.getInteger(KEY_BRIDGE_TIMEOUT_SECONDS);
+    }
+
+    public void setBridgeTimeoutSeconds(int seconds) {
+        preferences.setInteger(KEY_BRIDGE_TIMEOUT_SECONDS, seconds);
+    }
+
+    // Extra MCP sessions opened next to the primary connection for bridge traffic
+    public int getSessionPoolSize() {
+        return preferences.getInteger(KEY_SESSION_POOL_SIZE) == null ? DEFAULT_SESSION_POOL_SIZE : preferences.getInteger(KEY_SESSION_POOL_SIZE);
+    }
+
+    public void setSessionPoolSize(int size) {
+        preferences.setInteger(KEY_SESSION_POOL_SIZE, size);
+    }
+
+    // Concurrent POSTs per SSE session; ordered messages still go one at a time
+    public int getSendConcurrency() {
+        return preferences.getInteger(KEY_SEND_CONCURRENCY) == null ? DEFAULT_SEND_CONCURRENCY : preferences.getInteger(KEY_SEND_CONCURRENCY);
+    }
+
+    public void setSendConcurrency(int concurrency) {
+        preferences.setInteger(KEY_SEND_CONCURRENCY, concurrency);
+    }
+
+    // Bridge response cache for idempotent methods
+    public boolean isCacheEnabled() {
+        return preferences.getBoolean(KEY_CACHE_ENABLED) == null ? DEFAULT_CACHE_ENABLED : preferences.getBoolean(KEY_CACHE_ENABLED);
+    }
+
+    public void setCacheEnabled(boolean enabled) {
+        preferences.setBoolean(KEY_CACHE_ENABLED, enabled);
+    }
+
+    public int getCacheTtlSeconds() {
+        return preferences.getInteger(KEY_CACHE_TTL_SECONDS) == null ? DEFAULT_CACHE_TTL_SECONDS : preferences.getInteger(KEY_CACHE_TTL_SECONDS);
+    }
+
+    public void setCacheTtlSeconds(int seconds) {
+        preferences.setInteger(KEY_CACHE_TTL_SECONDS, seconds);
+    }
+
+    public int getCacheMaxEntries() {
+        return preferences.getInteger(KEY_CACHE_MAX_ENTRIES) == null ? DEFAULT_CACHE_MAX_ENTRIES : preferences.getInteger(KEY_CACHE_MAX_ENTRIES);
+    }
+
+    public void setCacheMaxEntries(int max) {
+        preferences.setInteger(KEY_CACHE_MAX_ENTRIES, max);
+    }
+
+    // Single-flight coalescing of identical in-flight requests
+    public boolean isCoalescingEnabled() {
+        return preferences.getBoolean(KEY_COALESCING_ENABLED) == null ? DEFAULT_COALESCING_ENABLED : preferences.getBoolean(KEY_COALESCING_ENABLED);
+    }
+
+    public void setCoalescingEnabled(boolean enabled) {
+        preferences.setBoolean(KEY_COALESCING_ENABLED, enabled);
+    }
+
+    // Comma-separated list of methods that may be cached or coalesced
+    public String getIdempotentMethods() {
+        return preferences.getString(KEY_IDEMPOTENT_METHODS) == null ? DEFAULT_IDEMPOTENT_METHODS : preferences.getString(KEY_IDEMPOTENT_METHODS);
+    }
+
+    public void setIdempotentMethods(String methods) {
+        preferences.setString(KEY_IDEMPOTENT_METHODS, methods);
+    }
+
+    // Extension logging: DEBUG, INFO, WARN, ERROR or OFF
+    public String getLogLevel() {
+        return preferences.getString(KEY_LOG_LEVEL) == null ? DEFAULT_LOG_LEVEL : preferences.getString(KEY_LOG_LEVEL);
+    }
+
+    public void setLogLevel(String level) {
+        preferences.setString(KEY_LOG_LEVEL, level);
+    }
+
+    // Payloads in log messages are cut to this many characters (0 = no limit)
+    public int getLogMaxPayloadChars() {
+        return preferences.getInteger(KEY_LOG_MAX_PAYLOAD_CHARS) == null ? DEFAULT_LOG_MAX_PAYLOAD_CHARS : preferences.getInteger(KEY_LOG_MAX_PAYLOAD_CHARS);
+    }
+
+    public void setLogMaxPayloadChars(int chars) {
+        preferences.setInteger(KEY_LOG_MAX_PAYLOAD_CHARS, chars);
+    }
+
+    // Traffic journal of every JSON-RPC frame (off by default)
+    public boolean isJournalEnabled() {
+        return preferences.getBoolean(KEY_JOURNAL_ENABLED) == null ? DEFAULT_JOURNAL_ENABLED : preferences.getBoolean(KEY_JOURNAL_ENABLED);
+    }
+
+    public void setJournalEnabled(boolean enabled) {
+        preferences.setBoolean(KEY_JOURNAL_ENABLED, enabled);
+    }
+
+    public String getJournalDirectory() {
+        return preferences.getString(KEY_JOURNAL_DIRECTORY) == null ? DEFAULT_JOURNAL_DIRECTORY : preferences.getString(KEY_JOURNAL_DIRECTORY);
+    }
+
+    public void setJournalDirectory(String directory) {
+        preferences.setString(KEY_JOURNAL_DIRECTORY, directory);
+    }
+
+    public int getJournalSegmentMb() {
+        return preferences.getInteger(KEY_JOURNAL_SEGMENT_MB) == null ? DEFAULT_JOURNAL_SEGMENT_MB : preferences.getInteger(KEY_JOURNAL_SEGMENT_MB);
+    }
+
+    public void setJournalSegmentMb(int megabytes) {
+        preferences.setInteger(KEY_JOURNAL_SEGMENT_MB, megabytes);
+    }
+
+    // Oldest segments beyond this count are deleted (0 = keep all)
+    public int getJournalMaxSegments() {
+        return preferences.getInteger(KEY_JOURNAL_MAX_SEGMENTS) == null ? DEFAULT_JOURNAL_MAX_SEGMENTS : preferences.getInteger(KEY_JOURNAL_MAX_SEGMENTS);
+    }
+
+    public void setJournalMaxSegments(int segments) {
+        preferences.setInteger(KEY_JOURNAL_MAX_SEGMENTS, segments);
+    }
+
+    /**
+     * Registers a callback for components that cache settings-derived state.
+     */
+    public void addChangeListener(Runnable listener) {
+        changeListeners.add(listener);
+    }
+
+    /**
+     * Called after the settings dialog saves.
+     */
+    public void fireSettingsChanged() {
+        changeListeners.forEach(Runnable::run);
+    }
 }
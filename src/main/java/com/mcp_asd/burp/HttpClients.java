@@ -0,0 +1,282 @@
+package com.mcp_asd.burp;
+
+import com.mcp_asd.burp.ui.ConnectionConfiguration;
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSocketFactory;
+import javax.net.ssl.X509TrustManager;
+import java.io.File;
+import java.io.FileInputStream;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.security.KeyStore;
+import java.security.SecureRandom;
+import java.security.cert.X509Certificate;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Shared OkHttp clients for the transports, the active scanner and endpoint
+ * auto-detection. Every client is derived from one root client, so they share a
+ * connection pool, a dispatcher and the trust-all TLS context (and with it the TLS
+ * session cache). Clients are cached per proxy, client certificate and HTTP version;
+ * callers derive their timeouts with {@code newBuilder()}, which keeps the sharing.
+ *
+ * The cache is dropped when saving the settings changes the proxy; saving anything
+ * else keeps the clients and their pooled connections. A changed certificate file gets
+ * a new entry on its own, as the file's size and modification time are part of the key.
+ */
+public final class HttpClients {
+    private static final X509TrustManager TRUST_ALL = new X509TrustManager() {
+        @Override public void checkClientTrusted(X509Certificate[] chain, String authType) {}
+        @Override public void checkServerTrusted(X509Certificate[] chain, String authType) {}
+        @Override public X509Certificate[] getAcceptedIssuers() { return new X509Certificate[0]; }
+    };
+
+    private static final ConnectionPool POOL = new ConnectionPool(32, 5, TimeUnit.MINUTES);
+    private static final Dispatcher DISPATCHER = createDispatcher();
+    private static final OkHttpClient ROOT = createRoot();
+    private static final Map<Key, OkHttpClient> CLIENTS = new ConcurrentHashMap<>();
+    private static final Map<CertKey, SSLSocketFactory> CLIENT_CERTS = new ConcurrentHashMap<>();
+    private static volatile GlobalSettings settings;
+    private static String proxySettings; // What the cached clients were built for; guarded by the class
+
+    private HttpClients() {}
+
+    /** The proxy, client certificate and HTTP version a client was built for. */
+    private static final class Key {
+        private final String proxyHost; // null = direct
+        private final int proxyPort;
+        private final CertKey cert; // null = no client certificate
+        private final boolean http1;
+
+        Key(String proxyHost, int proxyPort, CertKey cert, boolean http1) {
+            this.proxyHost = proxyHost;
+            this.proxyPort = proxyPort;
+            this.cert = cert;
+            this.http1 = http1;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) return false;
+            Key other = (Key) o;
+            return proxyPort == other.proxyPort && http1 == other.http1
+                    && Objects.equals(proxyHost, other.proxyHost) && Objects.equals(cert, other.cert);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(proxyHost, proxyPort, cert, http1);
+        }
+    }
+
+    /** A PKCS#12 file as it is on disk right now, with the password that opens it. */
+    private static final class CertKey {
+        private final String path;
+        private final String password;
+        private final long size;
+        private final long modified;
+
+        CertKey(String path, String password) {
+            File file = new File(path);
+            this.path = file.getAbsolutePath();
+            this.password = password;
+            this.size = file.length();
+            this.modified = file.lastModified();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof CertKey)) return false;
+            CertKey other = (CertKey) o;
+            return size == other.size && modified == other.modified
+                    && path.equals(other.path) && password.equals(other.password);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(path, password, size, modified);
+        }
+    }
+
+    /**
+     * Makes clients follow the proxy settings, and drops the cached clients whenever
+     * they change.
+     */
+    public static void install(GlobalSettings globalSettings) {
+        synchronized (HttpClients.class) {
+            settings = globalSettings;
+            proxySettings = proxySettings(globalSettings);
+        }
+        globalSettings.addChangeListener(() -> settingsChanged(globalSettings));
+    }
+
+    // Saving unrelated settings (timeouts, logging, the journal) must not throw away
+    // warm connections and TLS sessions
+    private static synchronized void settingsChanged(GlobalSettings globalSettings) {
+        String current = proxySettings(globalSettings);
+        if (current.equals(proxySettings)) return;
+        proxySettings = current;
+        Log.info("HttpClients: Proxy settings changed; dropping cached clients.");
+        invalidate();
+    }
+
+    private static String proxySettings(GlobalSettings globalSettings) {
+        return globalSettings.isProxyTrafficEnabled() + " " + globalSettings.getProxyHost() + ":" + globalSettings.getProxyPort();
+    }
+
+    /**
+     * A client for a target connection: proxied when "Proxy Handshake/Enumeration
+     * Traffic" is on, and presenting the configured client certificate for mTLS.
+     */
+    public static OkHttpClient forTarget(ConnectionConfiguration config, boolean forceHttp1) {
+        CertKey cert = null;
+        if (config.isUseMtls() && config.getClientCertPath() != null) {
+            cert = new CertKey(config.getClientCertPath(), config.getClientCertPassword() == null ? "" : config.getClientCertPassword());
+        }
+        GlobalSettings current = settings;
+        if (current != null && current.isProxyTrafficEnabled()) {
+            String host = current.getProxyHost();
+            int port = current.getProxyPort();
+            if (host != null && !host.isEmpty() && port > 0) {
+                return get(new Key(host, port, cert, forceHttp1));
+            }
+        }
+        return get(new Key(null, 0, cert, forceHttp1));
+    }
+
+    /**
+     * A client for probes (active detection): proxied like target connections, without
+     * a client certificate.
+     */
+    public static OkHttpClient forProbes() {
+        GlobalSettings current = settings;
+        if (current != null && current.isProxyTrafficEnabled()) {
+            String host = current.getProxyHost();
+            int port = current.getProxyPort();
+            if (host != null && !host.isEmpty() && port > 0) {
+                return get(new Key(host, port, null, false));
+            }
+        }
+        return get(new Key(null, 0, null, false));
+    }
+
+    /** A client that connects directly, never through the proxy. */
+    public static OkHttpClient direct(boolean forceHttp1) {
+        return get(new Key(null, 0, null, forceHttp1));
+    }
+
+    /**
+     * Forgets the cached clients and closes idle pooled connections (their proxy may
+     * have changed). Clients already handed out keep working.
+     */
+    public static void invalidate() {
+        CLIENTS.clear();
+        CLIENT_CERTS.clear();
+        POOL.evictAll();
+    }
+
+    /** Closes pooled connections and stops the dispatcher threads (extension unload). */
+    public static void shutdown() {
+        invalidate();
+        DISPATCHER.cancelAll();
+        DISPATCHER.executorService().shutdown();
+    }
+
+    private static OkHttpClient get(Key key) {
+        OkHttpClient cached = CLIENTS.get(key);
+        if (cached != null) return cached;
+
+        OkHttpClient.Builder builder = ROOT.newBuilder();
+        if (key.proxyHost != null) {
+            Log.info("HttpClients: Using proxy " + key.proxyHost + ":" + key.proxyPort);
+            builder.proxy(new Proxy(Proxy.Type.HTTP, new InetSocketAddress(key.proxyHost, key.proxyPort)));
+        }
+        if (key.http1) {
+            builder.protocols(List.of(Protocol.HTTP_1_1));
+        }
+        boolean complete = true;
+        if (key.cert != null) {
+            SSLSocketFactory factory = clientCertFactory(key.cert);
+            if (factory != null) {
+                builder.sslSocketFactory(factory, TRUST_ALL);
+            } else {
+                complete = false; // Not cached, so the next connection retries the certificate
+            }
+        }
+        OkHttpClient client = builder.build();
+        if (complete) {
+            OkHttpClient raced = CLIENTS.putIfAbsent(key, client);
+            if (raced != null) return raced;
+        }
+        return client;
+    }
+
+    // Loads the keystore once per file version instead of on every connection
+    private static SSLSocketFactory clientCertFactory(CertKey cert) {
+        SSLSocketFactory cached = CLIENT_CERTS.get(cert);
+        if (cached != null) return cached;
+        try {
+            KeyStore keyStore = KeyStore.getInstance("PKCS12");
+            try (FileInputStream fis = new FileInputStream(cert.path)) {
+                keyStore.load(fis, cert.password.toCharArray());
+            }
+            KeyManagerFactory kmf = KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
+            kmf.init(keyStore, cert.password.toCharArray());
+
+            // Trust-all as well, so self-signed servers still work with mTLS
+            SSLContext sslContext = SSLContext.getInstance("TLS");
+            sslContext.init(kmf.getKeyManagers(), new X509TrustManager[]{TRUST_ALL}, new SecureRandom());
+            SSLSocketFactory factory = sslContext.getSocketFactory();
+            CLIENT_CERTS.put(cert, factory);
+            return factory;
+        } catch (Exception e) {
+            Log.error("Failed to configure mTLS: " + e.getMessage());
+            return null;
+        }
+    }
+
+    // SSE streams hold a dispatcher slot for as long as they are open, so the default
+    // limit of 5 per host would stall extra sessions and racing attempts
+    private static Dispatcher createDispatcher() {
+        AtomicInteger count = new AtomicInteger();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(0, Integer.MAX_VALUE, 60, TimeUnit.SECONDS,
+                new SynchronousQueue<>(), task -> {
+                    Thread thread = new Thread(task, "MCP-ASD-OkHttp-" + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        Dispatcher dispatcher = new Dispatcher(executor);
+        dispatcher.setMaxRequests(256);
+        dispatcher.setMaxRequestsPerHost(64);
+        return dispatcher;
+    }
+
+    private static OkHttpClient createRoot() {
+        OkHttpClient.Builder builder = new OkHttpClient.Builder()
+                .connectionPool(POOL)
+                .dispatcher(DISPATCHER)
+                .connectTimeout(10, TimeUnit.SECONDS);
+        try {
+            SSLContext sslContext = SSLContext.getInstance("TLS");
+            sslContext.init(null, new X509TrustManager[]{TRUST_ALL}, new SecureRandom());
+            builder.sslSocketFactory(sslContext.getSocketFactory(), TRUST_ALL);
+            builder.hostnameVerifier((hostname, session) -> true);
+        } catch (Exception e) {
+            Log.error("HttpClients: Failed to create insecure SSL context: " + e.getMessage());
+        }
+        return builder.build();
+    }
+}
@@ -0,0 +1,157 @@
+package com.mcp_asd.burp;
+
+import burp.api.montoya.MontoyaApi;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Leveled, asynchronous logging for the request/transport hot paths.
+ *
+ * Callers only enqueue into a bounded buffer; a single writer thread hands the
+ * messages to Burp's output/error panes in batches. When the buffer is full the
+ * message is dropped and counted instead of blocking the caller, and the writer
+ * reports the drop count once the backlog clears.
+ */
+public final class Log {
+
+    public enum Level { DEBUG, INFO, WARN, ERROR, OFF }
+
+    private static final int CAPACITY = 8192;
+    private static final int BATCH_SIZE = 256;
+
+    private static final class Entry {
+        private final Level level;
+        private final String message;
+
+        Entry(Level level, String message) {
+            this.level = level;
+            this.message = message;
+        }
+    }
+
+    private static final BlockingQueue<Entry> buffer = new ArrayBlockingQueue<>(CAPACITY);
+    private static final AtomicLong dropped = new AtomicLong();
+    private static volatile MontoyaApi api;
+    private static volatile Thread writer;
+    private static volatile Level level = Level.INFO;
+    private static volatile int maxPayloadChars = 2000;
+
+    private Log() {}
+
+    /**
+     * Starts the writer thread and applies the logging settings (re-applied whenever
+     * the settings are saved). Messages logged before this are discarded.
+     */
+    public static synchronized void install(MontoyaApi burpApi, GlobalSettings settings) {
+        api = burpApi;
+        configure(settings);
+        settings.addChangeListener(() -> configure(settings));
+        if (writer == null) {
+            writer = new Thread(Log::drain, "MCP-ASD-Log");
+            writer.setDaemon(true);
+            writer.start();
+        }
+    }
+
+    public static synchronized void shutdown() {
+        Thread current = writer;
+        writer = null;
+        if (current != null) {
+            current.interrupt();
+        }
+    }
+
+    private static void configure(GlobalSettings settings) {
+        level = parseLevel(settings.getLogLevel());
+        maxPayloadChars = settings.getLogMaxPayloadChars();
+    }
+
+    static Level parseLevel(String value) {
+        try {
+            return Level.valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (RuntimeException e) {
+            return Level.INFO;
+        }
+    }
+
+    public static boolean isEnabled(Level candidate) {
+        return api != null && candidate != Level.OFF && candidate.ordinal() >= level.ordinal();
+    }
+
+    public static void debug(String message) { log(Level.DEBUG, message); }
+    public static void info(String message) { log(Level.INFO, message); }
+    public static void warn(String message) { log(Level.WARN, message); }
+    public static void error(String message) { log(Level.ERROR, message); }
+
+    /**
+     * For messages that embed payloads: the message is only built if DEBUG is enabled.
+     */
+    public static void debug(Supplier<String> message) {
+        if (isEnabled(Level.DEBUG)) log(Level.DEBUG, message.get());
+    }
+
+    /**
+     * Shortens a payload (request/response body, event data) to the configured length.
+     * A limit of 0 disables truncation.
+     */
+    public static String payload(String data) {
+        if (data == null) return "null";
+        int max = maxPayloadChars;
+        if (max <= 0 || data.length() <= max) return data;
+        return data.substring(0, max) + "... [" + (data.length() - max) + " more chars]";
+    }
+
+    public static long getDropped() {
+        return dropped.get();
+    }
+
+    private static void log(Level messageLevel, String message) {
+        if (!isEnabled(messageLevel)) return;
+        if (!buffer.offer(new Entry(messageLevel, message))) {
+            dropped.incrementAndGet();
+        }
+    }
+
+    private static void drain() {
+        List<Entry> batch = new ArrayList<>(BATCH_SIZE);
+        long reportedDrops = 0;
+        while (writer == Thread.currentThread()) {
+            try {
+                batch.add(buffer.take());
+            } catch (InterruptedException e) {
+                return;
+            }
+            buffer.drainTo(batch, BATCH_SIZE - 1);
+
+            // Consecutive messages for the same pane go out as one call
+            StringBuilder output = new StringBuilder();
+            StringBuilder errors = new StringBuilder();
+            for (Entry entry : batch) {
+                StringBuilder target = entry.level.ordinal() >= Level.WARN.ordinal() ? errors : output;
+                if (target.length() > 0) target.append('\n');
+                target.append(entry.message);
+            }
+            batch.clear();
+
+            long totalDrops = dropped.get();
+            if (totalDrops > reportedDrops && buffer.isEmpty()) {
+                if (errors.length() > 0) errors.append('\n');
+                errors.append("Log: ").append(totalDrops - reportedDrops).append(" message(s) dropped (buffer full)");
+                reportedDrops = totalDrops;
+            }
+
+            try {
+                if (output.length() > 0) api.logging().logToOutput(output.toString());
+                if (errors.length() > 0) api.logging().logToError(errors.toString());
+            } catch (RuntimeException ignored) {
+                // Burp may already be unloading the extension
+            }
+        }
+    }
+}
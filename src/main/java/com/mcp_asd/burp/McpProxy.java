@@ -6,35 +6,83 @@ import burp.api.montoya.http.handler.HttpRequestToBeSent;
 import burp.api.montoya.http.handler.HttpResponseReceived;
 import burp.api.montoya.http.handler.RequestToBeSentAction;
 import burp.api.montoya.http.handler.ResponseReceivedAction;
+import com.mcp_asd.burp.bridge.AdmissionController;
+import com.mcp_asd.burp.bridge.BridgeMetrics;
+import com.mcp_asd.burp.bridge.BridgeRequest;
+import com.mcp_asd.burp.bridge.BridgeResponse;
+import com.mcp_asd.burp.bridge.BridgeServer;
+import com.mcp_asd.burp.bridge.ChunkedBody;
+import com.mcp_asd.burp.bridge.ResponseCache;
+import com.mcp_asd.burp.bridge.SingleFlight;
+import com.mcp_asd.burp.engine.CanonicalJson;
 import com.mcp_asd.burp.engine.EnumerationEngine;
+import com.mcp_asd.burp.engine.JsonRpcMessage;
+import com.mcp_asd.burp.engine.JsonRpcScanner;
+import com.mcp_asd.burp.engine.McpSession;
 import com.mcp_asd.burp.engine.SessionStore;
+import com.mcp_asd.burp.engine.TargetConnection;
+import org.json.JSONException;
 import org.json.JSONObject;
+import org.json.JSONTokener;
 
-import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.io.OutputStream;
-import java.net.InetAddress;
-import java.net.ServerSocket;
-import java.net.Socket;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+public class McpProxy implements burp.api.montoya.http.handler.HttpHandler, BridgeServer.RequestHandler {
+    private static final String INVOKE_PATH = "/invoke";
+    private static final String BATCH_PATH = "/invoke-batch";
+    private static final String VIRTUAL_HOST = "mcp-asd.local";
+    private static final String TIMEOUT_HEADER = "X-MCP-Timeout";
+    private static final long MAX_TIMEOUT_MILLIS = TimeUnit.HOURS.toMillis(1);
+    private static final String CANCEL_REASON = "Bridge deadline exceeded";
+    private static final String STREAM_HEADER = "X-MCP-Stream";
+    private static final String NDJSON = "application/x-ndjson";
+    private static final String CACHE_HEADER = "X-MCP-Cache";
+    private static final String BATCH_METRICS_KEY = "(batch)";
+    private static final String NO_SESSION = "No live MCP session for this target";
 
-public class McpProxy implements burp.api.montoya.http.handler.HttpHandler {
     private final MontoyaApi api;
-    private final SessionStore sessionStore;
     private final EnumerationEngine engine;
+    private final BridgeServer bridgeServer;
+    private final AdmissionController admission;
+    private final ResponseCache responseCache;
+    private final SingleFlight<BridgeResponse> singleFlight = new SingleFlight<>();
+    private final BridgeMetrics metrics = new BridgeMetrics();
     private volatile int internalPort; // Ensure visibility across threads
-    private final ExecutorService executorService;
+    private volatile long defaultTimeoutMillis;
+    private volatile Set<String> idempotentMethods;
+    private volatile boolean coalescingEnabled;
 
-    public McpProxy(MontoyaApi api, SessionStore sessionStore, EnumerationEngine engine) {
+    public McpProxy(MontoyaApi api, EnumerationEngine engine, GlobalSettings settings) {
         this.api = api;
-        this.sessionStore = sessionStore;
         this.engine = engine;
-        this.executorService = Executors.newCachedThreadPool(); // Use cached pool for Intruder bursts
+        this.admission = new AdmissionController(settings.getBridgeMaxInFlight(), settings.getBridgeMaxPerTool(), settings.getBridgeMaxQueued());
+        this.responseCache = new ResponseCache(settings.isCacheEnabled(), settings.getCacheMaxEntries(), settings.getCacheTtlSeconds());
+        this.defaultTimeoutMillis = TimeUnit.SECONDS.toMillis(settings.getBridgeTimeoutSeconds());
+        this.idempotentMethods = parseMethods(settings.getIdempotentMethods());
+        this.coalescingEnabled = settings.isCoalescingEnabled();
+        settings.addChangeListener(() -> {
+            admission.configure(settings.getBridgeMaxInFlight(), settings.getBridgeMaxPerTool(), settings.getBridgeMaxQueued());
+            responseCache.configure(settings.isCacheEnabled(), settings.getCacheMaxEntries(), settings.getCacheTtlSeconds());
+            defaultTimeoutMillis = TimeUnit.SECONDS.toMillis(settings.getBridgeTimeoutSeconds());
+            idempotentMethods = parseMethods(settings.getIdempotentMethods());
+            coalescingEnabled = settings.isCoalescingEnabled();
+        });
+        this.bridgeServer = new BridgeServer(api, this);
         startInternalServer();
     }
 
@@ -42,126 +90,564 @@ public class McpProxy implements burp.api.montoya.http.handler.HttpHandler {
         return internalPort;
     }
 
+    public AdmissionController getAdmission() {
+        return admission;
+    }
+
+    public ResponseCache getResponseCache() {
+        return responseCache;
+    }
+
+    public SingleFlight<BridgeResponse> getSingleFlight() {
+        return singleFlight;
+    }
+
+    public BridgeMetrics getMetrics() {
+        return metrics;
+    }
+
+    public EnumerationEngine getEngine() {
+        return engine;
+    }
+
     private void startInternalServer() {
-        new Thread(() -> {
-            // Increased backlog to 100 to handle Intruder bursts
-            try (ServerSocket serverSocket = new ServerSocket(0, 100, InetAddress.getByName("127.0.0.1"))) {
-                internalPort = serverSocket.getLocalPort();
-                api.logging().logToOutput("Internal MCP Proxy Server (Raw Socket) started on port " + internalPort);
-
-                while (true) {
-                    try {
-                        Socket clientSocket = serverSocket.accept();
-                        // clientSocket.setSoTimeout(30000); // Optional: Read timeout
-                        executorService.submit(() -> handleClient(clientSocket));
-                    } catch (IOException e) {
-                        api.logging().logToError("Error accepting connection: " + e.getMessage());
-                    }
-                }
-            } catch (IOException e) {
-                api.logging().logToError("CRITICAL: Failed to start internal socket server: " + e.getMessage());
-            }
-        }).start();
+        try {
+            internalPort = bridgeServer.start();
+            Log.info("Internal MCP Proxy Server (NIO) started on port " + internalPort);
+        } catch (IOException e) {
+            Log.error("CRITICAL: Failed to start internal socket server: " + e.getMessage());
+        }
+    }
 
-        // Give the server a moment to bind and set the port
-        try { Thread.sleep(200); } catch (InterruptedException ignored) {}
+    public void shutdown() {
+        bridgeServer.stop();
     }
 
-    private void handleClient(Socket socket) {
-        try (BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream()));
-             OutputStream out = socket.getOutputStream()) {
+    /**
+     * Called on the bridge selector thread for every decoded request. Must not block:
+     * the returned future completes when the correlated MCP response arrives.
+     */
+    @Override
+    public CompletableFuture<BridgeResponse> handle(BridgeRequest request) {
+        long start = System.nanoTime();
+        byte[] body = request.getBody();
+        if (body.length == 0) {
+            Log.warn("InternalProxy: Error - Content-Length is 0 or missing.");
+            return CompletableFuture.completedFuture(BridgeResponse.error(400, "Content-Length is 0 or missing"));
+        }
+
+        Log.debug(() -> "InternalProxy: Body read (" + body.length + " bytes)");
+
+        // Requests without a target name go to the most recently connected target
+        String targetName = targetName(request);
+        TargetConnection target = engine.resolveTarget(targetName);
+        if (target == null) {
+            return CompletableFuture.completedFuture(targetName != null
+                    ? BridgeResponse.error(404, "Unknown target: " + targetName)
+                    : BridgeResponse.error(503, "Not connected to an MCP server"));
+        }
+
+        // The deadline starts now, so time spent queued in admission control counts against it
+        long deadline;
+        try {
+            deadline = start + TimeUnit.MILLISECONDS.toNanos(timeoutMillis(request));
+        } catch (IllegalArgumentException e) {
+            return CompletableFuture.completedFuture(BridgeResponse.error(400, e.getMessage()));
+        }
+
+        int first = JsonRpcScanner.skipWhitespace(body, 0, body.length);
+        if (request.getPath().startsWith(BATCH_PATH) || (first < body.length && body[first] == '[')) {
+            BridgeMetrics.Series series = metrics.series(BATCH_METRICS_KEY);
+            return timed(series, start, handleBatch(target, body, deadline, series));
+        }
 
-            api.logging().logToOutput("InternalProxy: Connection accepted.");
+        try {
+            // The client's id is replaced with a fresh one from the session the request is
+            // sent on (see forward), since Burp sends identical IDs by default, and put
+            // back into the response. A duplicate id would be spliced here but read back
+            // differently by the server
+            int[] clientId;
+            String method;
+            int[] params;
+            String admissionKey = null;
+            try {
+                int[][] members = JsonRpcScanner.findMembers(body, 0, body.length, "id", "method", "params");
+                clientId = members[0];
+                params = members[2];
+                method = JsonRpcScanner.stringMember(body, 0, body.length, "method");
 
-            // Read Request Headers
-            String line;
-            int contentLength = 0;
-            while ((line = in.readLine()) != null && !line.isEmpty()) {
-                // api.logging().logToOutput("InternalProxy Header: " + line); 
-                if (line.toLowerCase().startsWith("content-length:")) {
-                    contentLength = Integer.parseInt(line.substring(15).trim());
+                // Tool calls are additionally limited per tool name
+                if ("tools/call".equals(method) && params != null && body[params[0]] == '{') {
+                    admissionKey = JsonRpcScanner.stringMember(body, params[0], params[1], "name");
                 }
+            } catch (IllegalArgumentException e) {
+                Log.warn("InternalProxy: Rejected malformed JSON-RPC body: " + e.getMessage());
+                return CompletableFuture.completedFuture(BridgeResponse.error(400, "Malformed JSON-RPC request: " + e.getMessage()));
+            }
+            BridgeMetrics.Series series = metrics.series(BridgeMetrics.keyFor(method, admissionKey));
+            String clientIdLiteral = clientId == null ? "null" : new String(body, clientId[0], clientId[1] - clientId[0], StandardCharsets.UTF_8);
+
+            if (isStreamingRequested(request)) {
+                return stream(target, body, admissionKey, deadline, series, start);
             }
-            api.logging().logToOutput("InternalProxy: Headers read. Content-Length: " + contentLength);
 
-            // Read Body
-            if (contentLength > 0) {
-                char[] bodyChars = new char[contentLength];
-                int read = 0;
-                while (read < contentLength) {
-                    int count = in.read(bodyChars, read, contentLength - read);
-                    if (count == -1) break;
-                    read += count;
+            // Identical idempotent requests can be served from the cache or share an in-flight call
+            String requestKey = null;
+            if (method != null && idempotentMethods.contains(method) && (responseCache.isEnabled() || coalescingEnabled)) {
+                requestKey = requestKey(target.getName(), method, body, params);
+            }
+            String cacheKey = responseCache.isEnabled() ? requestKey : null;
+            if (cacheKey != null) {
+                Object cached = responseCache.get(cacheKey);
+                if (cached != null) {
+                    Object hitId = new JSONTokener(clientIdLiteral).nextValue();
+                    JSONObject hit = new JSONObject().put("jsonrpc", "2.0").put("id", hitId).put("result", cached);
+                    Log.debug(() -> "InternalProxy: Cache hit for " + method);
+                    series.recordEndToEnd(start);
+                    return CompletableFuture.completedFuture(BridgeResponse.json(200, hit.toString()).withHeader(CACHE_HEADER, "HIT"));
                 }
-                
-                String requestBody = new String(bodyChars);
-                api.logging().logToOutput("InternalProxy: Body read: " + requestBody);
-
-                            // Process Logic
-                            JSONObject jsonRequest = new JSONObject(requestBody);
-                            
-                            // Auto-generate a new ID to ensure correlation works in Intruder
-                            // (Burp sends identical IDs by default, which causes collisions)
-                            String id = java.util.UUID.randomUUID().toString();
-                            jsonRequest.put("id", id);
-                            String newRequestBody = jsonRequest.toString();
-                
-                            // 1. Create Future
-                            CompletableFuture<JSONObject> future = new CompletableFuture<>();
-                            sessionStore.registerRequest(id, future);
-                            api.logging().logToOutput("InternalProxy: Registered future for ID: " + id);
-                
-                            // 2. Send Request via Engine
-                            engine.sendRequest(newRequestBody);
-                
-                            // 3. Wait for Response (Block)                api.logging().logToOutput("InternalProxy: Waiting for response...");
-                JSONObject jsonResponse = future.get(60, TimeUnit.SECONDS);
-                api.logging().logToOutput("InternalProxy: Response received: " + jsonResponse.toString());
-                
-                String responseString = jsonResponse.toString();
-
-                // 4. Send HTTP Response
-                String httpResponse = "HTTP/1.1 200 OK\r\n" +
-                        "Content-Type: application/json\r\n" +
-                        "Connection: close\r\n" +
-                        "Content-Length: " + responseString.getBytes(StandardCharsets.UTF_8).length + "\r\n" +
-                        "\r\n" +
-                        responseString;
-
-                out.write(httpResponse.getBytes(StandardCharsets.UTF_8));
-                out.flush();
-                api.logging().logToOutput("InternalProxy: Response written to socket.");
-            } else {
-                api.logging().logToError("InternalProxy: Error - Content-Length is 0 or missing.");
             }
 
+            final String forwardAdmissionKey = admissionKey;
+            Supplier<CompletableFuture<BridgeResponse>> call = () -> admit(forwardAdmissionKey, 1, () -> forward(target, body, deadline, cacheKey, series));
+            if (coalescingEnabled && requestKey != null) {
+                // Joiners wait on the first caller's upstream call (and its deadline)
+                return timed(series, start, singleFlight.run(requestKey, call).thenApply(response -> withClientId(response, clientIdLiteral)));
+            }
+            return timed(series, start, call.get().thenApply(response -> withClientId(response, clientIdLiteral)));
         } catch (Exception e) {
-            api.logging().logToError("InternalProxy Error: " + e.getMessage());
-            e.printStackTrace();
-            String errorJson = "{\"error\": \"" + e.getMessage() + "\"}";
-            String errorResponse = "HTTP/1.1 500 Internal Server Error\r\n" +
-                    "Content-Type: application/json\r\n" +
-                    "Content-Length: " + errorJson.length() + "\r\n" +
-                    "\r\n" +
-                    errorJson;
-            try {
-                if (!socket.isClosed()) {
-                    socket.getOutputStream().write(errorResponse.getBytes(StandardCharsets.UTF_8));
+            Log.error("InternalProxy Error: " + e.getMessage());
+            return CompletableFuture.completedFuture(BridgeResponse.error(500, e.getMessage()));
+        }
+    }
+
+    /**
+     * Gives the request a session id, registers the correlation future, sends the message
+     * and completes with the HTTP response once the correlated message arrives (no thread
+     * waits here). If the deadline passes first, the call is cancelled upstream and
+     * answered with a 504.
+     */
+    private CompletableFuture<BridgeResponse> forward(TargetConnection target, byte[] body, long deadline, String cacheKey, BridgeMetrics.Series series) {
+        long remaining = remainingMillis(deadline);
+        if (remaining <= 0) {
+            return CompletableFuture.completedFuture(BridgeResponse.error(504, "Deadline expired before the request was sent"));
+        }
+
+        // 1. Create Future on the least busy session, under an id from its counter.
+        // The id is spliced into the raw bytes; the rest of the body is forwarded untouched.
+        McpSession session = target.selectSession();
+        if (session == null) {
+            return CompletableFuture.completedFuture(BridgeResponse.error(503, NO_SESSION));
+        }
+        long id = session.nextRequestId();
+        byte[] requestBody = JsonRpcScanner.spliceId(body, Long.toString(id));
+        CompletableFuture<JsonRpcMessage> future = session.track(new CompletableFuture<>());
+        session.getSessionStore().registerRequest(id, future, remaining);
+        Log.debug(() -> "InternalProxy: Registered future for ID: " + id + " (session: " + session.getName() + ")");
+
+        // 2. Send Request via the session's transport
+        long sent = series.upstreamStarted();
+        if (!session.send(requestBody)) failUnsent(session, id);
+
+        // 3. Respond when the correlated message arrives (the store fails it at the deadline)
+        return future.handle((reply, error) -> {
+            series.upstreamFinished(sent, error != null || reply.isError(), error != null && isTimeout(error));
+            if (error != null) {
+                String message = describeFailure(error);
+                Log.warn("InternalProxy Error: " + message + " (ID: " + id + ")");
+                if (isTimeout(error)) {
+                    expire(session, id);
+                    return BridgeResponse.error(504, message);
                 }
-            } catch (IOException ignored) {}
-        } finally {
+                return BridgeResponse.error(isSessionClosed(error) ? 503 : 500, message);
+            }
+            // The server's bytes are relayed apart from the id; they are only parsed to fill the cache
+            Log.debug(() -> "InternalProxy: Response received: " + Log.payload(reply.getText()));
+            BridgeResponse response = new BridgeResponse(200, "application/json", reply.getBytes());
+            if (cacheKey == null) {
+                return response;
+            }
+            // Errors may be transient, so only successful results are cached
+            if (!reply.isError()) {
+                JSONObject jsonResponse = reply.toJson();
+                if (jsonResponse.has("result")) {
+                    responseCache.put(cacheKey, jsonResponse.get("result"));
+                }
+            }
+            return response.withHeader(CACHE_HEADER, "MISS");
+        });
+    }
+
+    /**
+     * Opt-in streaming mode: the request's progressToken is set to its correlation id and
+     * the bridge answers with a chunked body of newline-delimited JSON, one line per
+     * progress/log notification as it arrives, followed by the final JSON-RPC response.
+     */
+    private CompletableFuture<BridgeResponse> stream(TargetConnection target, byte[] body, String admissionKey, long deadline,
+                                                     BridgeMetrics.Series series, long start) {
+        // The response head goes out as soon as the call is admitted; admission permits
+        // are held until the stream ends, which is also when its latency is recorded.
+        CompletableFuture<BridgeResponse> head = new CompletableFuture<>();
+        admit(admissionKey, 1, () -> forwardStreaming(target, body, deadline, head, series))
+                .whenComplete((response, error) -> series.recordEndToEnd(start))
+                .thenAccept(head::complete);
+        return head;
+    }
+
+    private CompletableFuture<BridgeResponse> forwardStreaming(TargetConnection target, byte[] body, long deadline,
+                                                               CompletableFuture<BridgeResponse> head, BridgeMetrics.Series series) {
+        long remaining = remainingMillis(deadline);
+        if (remaining <= 0) {
+            return CompletableFuture.completedFuture(BridgeResponse.error(504, "Deadline expired before the request was sent"));
+        }
+
+        McpSession session = target.selectSession();
+        if (session == null) {
+            return CompletableFuture.completedFuture(BridgeResponse.error(503, NO_SESSION));
+        }
+        long id = session.nextRequestId();
+        JSONObject message = new JSONObject(new String(body, StandardCharsets.UTF_8));
+        Object clientId = message.opt("id");
+        message.put("id", id);
+        if (!message.has("params")) {
+            message.put("params", new JSONObject());
+        }
+        JSONObject params = message.optJSONObject("params");
+        if (params != null) {
+            // Overwritten like the id, so identical Intruder payloads don't share a token
+            JSONObject meta = params.optJSONObject("_meta");
+            if (meta == null) {
+                meta = new JSONObject();
+                params.put("_meta", meta);
+            }
+            meta.put("progressToken", id);
+        }
+        byte[] requestBody = message.toString().getBytes(StandardCharsets.UTF_8);
+
+        SessionStore sessionStore = session.getSessionStore();
+        String progressToken = Long.toString(id);
+        ChunkedBody chunks = new ChunkedBody();
+        BridgeResponse response = BridgeResponse.chunked(200, NDJSON, chunks);
+        sessionStore.registerProgressListener(progressToken, notification -> chunks.write(ndjsonLine(notification)));
+        CompletableFuture<JsonRpcMessage> future = session.track(new CompletableFuture<>());
+        sessionStore.registerRequest(id, future, remaining);
+        Log.debug(() -> "InternalProxy: Registered streaming request for ID: " + id + " (session: " + session.getName() + ")");
+        head.complete(response);
+
+        long sent = series.upstreamStarted();
+        if (!session.send(requestBody)) failUnsent(session, id);
+
+        return future.handle((reply, error) -> {
+            sessionStore.removeProgressListener(progressToken);
+            series.upstreamFinished(sent, error != null || reply.isError(), error != null && isTimeout(error));
+            JSONObject jsonResponse;
+            if (error != null) {
+                // The 200 head is already sent, so failures are reported in-band
+                Log.warn("InternalProxy Error: " + describeFailure(error) + " (ID: " + id + ")");
+                if (isTimeout(error)) expire(session, id);
+                jsonResponse = errorObject(id, describeFailure(error));
+            } else {
+                jsonResponse = reply.toJson(); // Re-serialized so the line holds no raw newlines
+            }
+            jsonResponse.put("id", clientId == null ? JSONObject.NULL : clientId);
+            chunks.write(ndjsonLine(jsonResponse));
+            chunks.end();
+            return response;
+        });
+    }
+
+    /**
+     * Identifies a request by target, method and canonicalized params, ignoring the id, member
+     * order and whitespace. Returns {@code null} if the params don't parse.
+     */
+    private static String requestKey(String target, String method, byte[] body, int[] params) {
+        if (params == null) {
+            return target + "\n" + method;
+        }
+        try {
+            Object value = new JSONTokener(new String(body, params[0], params[1] - params[0], StandardCharsets.UTF_8)).nextValue();
+            return target + "\n" + method + "\n" + CanonicalJson.write(value);
+        } catch (JSONException e) {
+            return null; // Let the server reject it; never cache
+        }
+    }
+
+    /**
+     * The target a request names, from its path ({@code /invoke/{target}} or
+     * {@code /invoke-batch/{target}}) or its Host header ({@code {target}.mcp-asd.local}).
+     *
+     * @return the name, or {@code null} for the default target
+     */
+    private static String targetName(BridgeRequest request) {
+        String path = request.getPath();
+        int query = path.indexOf('?');
+        if (query >= 0) path = path.substring(0, query);
+        String prefix = path.startsWith(BATCH_PATH + "/") ? BATCH_PATH + "/" : path.startsWith(INVOKE_PATH + "/") ? INVOKE_PATH + "/" : null;
+        if (prefix != null && path.length() > prefix.length()) {
+            String name = path.substring(prefix.length());
+            int slash = name.indexOf('/');
+            return slash < 0 ? name : name.substring(0, slash);
+        }
+
+        String host = request.getHeader("Host");
+        if (host != null) {
+            host = host.toLowerCase(Locale.ROOT);
+            int colon = host.indexOf(':');
+            if (colon >= 0) host = host.substring(0, colon);
+            if (host.endsWith("." + VIRTUAL_HOST)) {
+                return host.substring(0, host.length() - VIRTUAL_HOST.length() - 1);
+            }
+        }
+        return null;
+    }
+
+    private static Set<String> parseMethods(String methods) {
+        Set<String> parsed = new HashSet<>();
+        for (String method : methods.split(",")) {
+            if (!method.trim().isEmpty()) parsed.add(method.trim());
+        }
+        return Collections.unmodifiableSet(parsed);
+    }
+
+    /**
+     * Chunked responses need HTTP/1.1; batches are always answered in one piece.
+     */
+    private static boolean isStreamingRequested(BridgeRequest request) {
+        String value = request.getHeader(STREAM_HEADER);
+        return value != null
+                && (value.equalsIgnoreCase("true") || value.equals("1"))
+                && "HTTP/1.1".equals(request.getVersion());
+    }
+
+    private static byte[] ndjsonLine(JSONObject message) {
+        return (message.toString() + "\n").getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Runs {@code task} through admission control. Rejections become an immediate 429
+     * (per-tool limit) or 503 (global limit) so Intruder can back off and retry.
+     */
+    private CompletableFuture<BridgeResponse> admit(String key, int weight, Supplier<CompletableFuture<BridgeResponse>> task) {
+        return admission.submit(key, weight, task).exceptionally(error -> {
+            Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+            if (cause instanceof AdmissionController.RejectedException) {
+                AdmissionController.RejectedException rejected = (AdmissionController.RejectedException) cause;
+                return BridgeResponse.error(rejected.getStatus(), rejected.getMessage()).withHeader("Retry-After", "1");
+            }
+            return BridgeResponse.error(500, describeFailure(error));
+        });
+    }
+
+    /**
+     * Handles a JSON-RPC batch: every request element gets its own correlation id, the
+     * whole array goes out as one message, and the responses are returned as an array
+     * in request order. Notifications inside the batch are forwarded but not answered.
+     */
+    private CompletableFuture<BridgeResponse> handleBatch(TargetConnection target, byte[] body, long deadline, BridgeMetrics.Series series) {
+        List<int[]> elements;
+        try {
+            elements = JsonRpcScanner.splitArray(body);
+        } catch (IllegalArgumentException e) {
+            return CompletableFuture.completedFuture(BridgeResponse.error(400, "Malformed JSON-RPC batch: " + e.getMessage()));
+        }
+        if (elements.isEmpty()) {
+            return CompletableFuture.completedFuture(BridgeResponse.error(400, "Empty JSON-RPC batch"));
+        }
+
+        // Validated up front so a malformed element is a 400, not a failure after admission
+        boolean[] hasId = new boolean[elements.size()];
+        int requests = 0;
+        for (int i = 0; i < elements.size(); i++) {
+            int[] span = elements.get(i);
             try {
-                socket.close();
-            } catch (IOException ignored) {}
+                hasId[i] = JsonRpcScanner.findMembers(body, span[0], span[1], "id", "method", "params")[0] != null;
+            } catch (IllegalArgumentException e) {
+                return CompletableFuture.completedFuture(BridgeResponse.error(400, "Malformed batch element " + i + ": " + e.getMessage()));
+            }
+            if (hasId[i]) requests++;
+        }
+
+        int requestCount = requests;
+        return admit(null, requestCount, () -> forwardBatch(target, body, elements, hasId, requestCount, deadline, series));
+    }
+
+    private CompletableFuture<BridgeResponse> forwardBatch(TargetConnection target, byte[] body, List<int[]> elements, boolean[] hasId, int requestCount,
+                                                           long deadline, BridgeMetrics.Series series) {
+        long remaining = remainingMillis(deadline);
+        if (remaining <= 0) {
+            return CompletableFuture.completedFuture(BridgeResponse.error(504, "Deadline expired before the batch was sent"));
+        }
+
+        // The whole batch goes out as one message, so it stays on one session and every
+        // request element gets an id from that session's counter
+        McpSession session = target.selectSession();
+        if (session == null) {
+            return CompletableFuture.completedFuture(BridgeResponse.error(503, NO_SESSION));
+        }
+        List<Long> ids = new ArrayList<>(requestCount);
+        List<String> clientIds = new ArrayList<>(requestCount);
+        List<CompletableFuture<JsonRpcMessage>> results = new ArrayList<>(requestCount);
+        AtomicBoolean timedOut = new AtomicBoolean();
+        ByteArrayOutputStream batch = new ByteArrayOutputStream(body.length + requestCount * 8);
+        batch.write('[');
+        for (int i = 0; i < elements.size(); i++) {
+            int[] span = elements.get(i);
+            byte[] element;
+            if (hasId[i]) {
+                long id = session.nextRequestId();
+                int[] clientId = JsonRpcScanner.findMember(body, span[0], span[1], "id");
+                clientIds.add(new String(body, clientId[0], clientId[1] - clientId[0], StandardCharsets.UTF_8));
+                element = JsonRpcScanner.spliceId(body, span[0], span[1], Long.toString(id));
+                CompletableFuture<JsonRpcMessage> future = session.track(new CompletableFuture<>());
+                session.getSessionStore().registerRequest(id, future, remaining);
+                ids.add(id);
+                results.add(future.exceptionally(error -> {
+                    if (isTimeout(error)) {
+                        timedOut.set(true);
+                        expire(session, id);
+                    }
+                    return JsonRpcMessage.of(errorObject(id, describeFailure(error)));
+                }));
+            } else {
+                element = Arrays.copyOfRange(body, span[0], span[1]);
+            }
+            if (i > 0) batch.write(',');
+            batch.write(element, 0, element.length);
+        }
+        batch.write(']');
+        byte[] batchBody = batch.toByteArray();
+
+        Log.debug(() -> "InternalProxy: Sending batch of " + elements.size() + " messages (" + requestCount + " requests).");
+        long sent = series.upstreamStarted();
+        if (!session.send(batchBody)) {
+            for (long id : ids) failUnsent(session, id);
+        }
+
+        if (requestCount == 0) {
+            series.upstreamFinished(sent, false, false);
+            return CompletableFuture.completedFuture(new BridgeResponse(202, "application/json", new byte[0]));
+        }
+        return CompletableFuture.allOf(results.toArray(new CompletableFuture[0])).thenApply(ignored -> {
+            // The batch counts as one upstream call, failed if any element failed
+            ByteArrayOutputStream responses = new ByteArrayOutputStream();
+            boolean failed = false;
+            responses.write('[');
+            for (int i = 0; i < results.size(); i++) {
+                JsonRpcMessage response = results.get(i).join();
+                failed |= response.isError();
+                byte[] element = withClientId(response.getBytes(), clientIds.get(i));
+                if (i > 0) responses.write(',');
+                responses.write(element, 0, element.length);
+            }
+            responses.write(']');
+            series.upstreamFinished(sent, failed, timedOut.get());
+            return new BridgeResponse(200, "application/json", responses.toByteArray());
+        });
+    }
+
+    /**
+     * Puts the client's own id back into a relayed response, so the id is the same whether
+     * the response came from upstream, from a coalesced call or from the cache.
+     */
+    private static BridgeResponse withClientId(BridgeResponse response, String idLiteral) {
+        if (response.getStatus() != 200) return response; // Bridge errors carry no JSON-RPC id
+        return response.withBody(withClientId(response.getBody(), idLiteral));
+    }
+
+    private static byte[] withClientId(byte[] response, String idLiteral) {
+        try {
+            int first = JsonRpcScanner.skipWhitespace(response, 0, response.length);
+            if (first == response.length || response[first] != '{') return response;
+            return JsonRpcScanner.spliceId(response, idLiteral);
+        } catch (IllegalArgumentException e) {
+            return response; // Not JSON-RPC; relayed as-is
+        }
+    }
+
+    /**
+     * Records the end-to-end latency (including admission queueing) once the response is ready.
+     */
+    private static CompletableFuture<BridgeResponse> timed(BridgeMetrics.Series series, long start, CompletableFuture<BridgeResponse> response) {
+        return response.whenComplete((ignored, error) -> series.recordEndToEnd(start));
+    }
+
+    /**
+     * The session lost its transport between selection and sending, possibly after it
+     * failed its pending requests, so the request is failed here instead of waiting out
+     * its deadline.
+     */
+    private static void failUnsent(McpSession session, long id) {
+        session.getSessionStore().failRequest(id, new McpSession.ClosedException("Session " + session.getName() + " closed before the request was sent"));
+    }
+
+    /**
+     * Sends {@code notifications/cancelled} for a request whose deadline passed (the
+     * session store has already dropped it) so the server stops working on it.
+     */
+    private void expire(McpSession session, long id) {
+        Log.info("InternalProxy: Deadline exceeded, cancelling ID: " + id);
+        session.cancelRequest(id, CANCEL_REASON);
+    }
+
+    /**
+     * Reads the per-request deadline from {@code X-MCP-Timeout}: seconds (fractions
+     * allowed, optional "s" suffix) or milliseconds with an "ms" suffix.
+     */
+    private long timeoutMillis(BridgeRequest request) {
+        String header = request.getHeader(TIMEOUT_HEADER);
+        if (header == null) {
+            return defaultTimeoutMillis;
+        }
+        String value = header.trim().toLowerCase(Locale.ROOT);
+        double millis;
+        try {
+            if (value.endsWith("ms")) {
+                millis = Double.parseDouble(value.substring(0, value.length() - 2).trim());
+            } else {
+                millis = Double.parseDouble(value.endsWith("s") ? value.substring(0, value.length() - 1).trim() : value) * 1000;
+            }
+        } catch (NumberFormatException e) {
+            millis = Double.NaN;
+        }
+        if (!(millis >= 1)) {
+            throw new IllegalArgumentException("Invalid " + TIMEOUT_HEADER + " header: " + header);
         }
+        return (long) Math.min(millis, MAX_TIMEOUT_MILLIS);
+    }
+
+    private static long remainingMillis(long deadline) {
+        return TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+    }
+
+    private static boolean isTimeout(Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        return cause instanceof TimeoutException;
+    }
+
+    private static boolean isSessionClosed(Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        return cause instanceof McpSession.ClosedException;
+    }
+
+    private static JSONObject errorObject(Object id, String message) {
+        return new JSONObject()
+                .put("jsonrpc", "2.0")
+                .put("id", id)
+                .put("error", new JSONObject().put("code", -32603).put("message", message));
+    }
+
+    private static String describeFailure(Throwable error) {
+        if (isTimeout(error)) return "Timed out waiting for MCP response";
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        return cause.getMessage();
     }
 
     @Override
     public RequestToBeSentAction handleHttpRequestToBeSent(HttpRequestToBeSent requestToBeSent) {
         // Intercept if it's our virtual endpoint (checking Host header or URL path)
         boolean isTarget = false;
-        if (requestToBeSent.url().contains("/invoke")) {
-             if (requestToBeSent.hasHeader("Host", "mcp-asd.local") || requestToBeSent.url().contains("mcp-asd.local")) {
+        if (requestToBeSent.url().contains(INVOKE_PATH)) {
+             if (requestToBeSent.hasHeader("Host", VIRTUAL_HOST) || requestToBeSent.url().contains(VIRTUAL_HOST)) {
                  isTarget = true;
              }
         }
@@ -174,7 +660,7 @@ public class McpProxy implements burp.api.montoya.http.handler.HttpHandler {
                 HttpService internalService = HttpService.httpService("127.0.0.1", internalPort, false);
                 return RequestToBeSentAction.continueWith(requestToBeSent.withService(internalService));
             } else {
-                 api.logging().logToError("Internal server not ready yet.");
+                 Log.error("Internal server not ready yet.");
             }
         }
         return RequestToBeSentAction.continueWith(requestToBeSent);
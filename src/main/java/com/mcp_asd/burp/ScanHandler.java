@@ -17,10 +17,6 @@ import okhttp3.OkHttpClient;
 import okhttp3.Request;
 import okhttp3.Response;
 
-import javax.net.ssl.*;
-import java.security.cert.CertificateException;
-import java.net.InetSocketAddress;
-import java.net.Proxy;
 import java.net.URLDecoder;
 import java.util.Collections;
 import java.util.HashSet;
@@ -60,52 +56,12 @@ public class ScanHandler implements HttpHandler {
     }
 
     private void rebuildClient() {
-        // Create a trust manager that does not validate certificate chains
-        final TrustManager[] trustAllCerts = new TrustManager[] {
-            new X509TrustManager() {
-                @Override
-                public void checkClientTrusted(java.security.cert.X509Certificate[] chain, String authType) throws CertificateException {
-                }
-
-                @Override
-                public void checkServerTrusted(java.security.cert.X509Certificate[] chain, String authType) throws CertificateException {
-                }
-
-                @Override
-                public java.security.cert.X509Certificate[] getAcceptedIssuers() {
-                    return new java.security.cert.X509Certificate[]{};
-                }
-            }
-        };
-
-        try {
-            // Install the all-trusting trust manager
-            final SSLContext sslContext = SSLContext.getInstance("SSL");
-            sslContext.init(null, trustAllCerts, new java.security.SecureRandom());
-            final SSLSocketFactory sslSocketFactory = sslContext.getSocketFactory();
-
-            OkHttpClient.Builder builder = new OkHttpClient.Builder()
-                    .sslSocketFactory(sslSocketFactory, (X509TrustManager)trustAllCerts[0])
-                    .hostnameVerifier((hostname, session) -> true)
-                    .connectTimeout(5, TimeUnit.SECONDS)
-                    .readTimeout(5, TimeUnit.SECONDS)
-                    .followRedirects(false);
-
-            if (settings.isProxyTrafficEnabled()) {
-                String host = settings.getProxyHost();
-                int port = settings.getProxyPort();
-                if (host != null && !host.isEmpty() && port > 0) {
-                    // api.logging().logToOutput("ScanHandler: Using Proxy " + host + ":" + port);
-                    builder.proxy(new Proxy(Proxy.Type.HTTP, new InetSocketAddress(host, port)));
-                } else {
-                     // api.logging().logToOutput("ScanHandler: Proxy enabled but invalid host/port.");
-                }
-            }
-            this.client = builder.build();
-        } catch (Exception e) {
-            api.logging().logToError("ScanHandler: Failed to create insecure SSL client: " + e.getMessage());
-            this.client = new OkHttpClient(); // Fallback
-        }
+        // Derived from the shared client, so probes reuse pooled connections and TLS sessions
+        this.client = HttpClients.forProbes().newBuilder()
+                .connectTimeout(5, TimeUnit.SECONDS)
+                .readTimeout(5, TimeUnit.SECONDS)
+                .followRedirects(false)
+                .build();
     }
 
     /**
@@ -167,7 +123,7 @@ public class ScanHandler implements HttpHandler {
                     if (visitedDomains.putIfAbsent(host, true) == null) {
                         // api.logging().logToOutput("ScanHandler: Triggering active probe for " + host + " (InScope: " + inScope + ")");
                         
-                        // Refresh client to ensure proxy settings are current
+                        // Refresh client to ensure proxy settings are current (cached until they change)
                         rebuildClient();
                         // Trigger active probe in background
                         probeExecutor.submit(() -> performActiveProbe(host, requestToBeSent.httpService().port(), requestToBeSent.httpService().secure()));
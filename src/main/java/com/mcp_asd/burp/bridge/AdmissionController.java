@@ -0,0 +1,195 @@
+package com.mcp_asd.burp.bridge;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Limits how much bridge traffic is in flight towards the MCP server.
+ *
+ * Work is admitted against a global in-flight limit and, when it carries a key
+ * (the tool name for {@code tools/call}), a per-key limit. Work that does not fit
+ * waits in a bounded FIFO queue; once the queue is full, submissions fail fast
+ * with a {@link RejectedException} so the caller can answer 429/503 immediately.
+ * Nothing here blocks: queued work is started once earlier work completes, on a
+ * dedicated thread rather than on the completing thread (a transport reader or the
+ * timer ticker), so a queue of work that finishes immediately can't recurse.
+ */
+public class AdmissionController {
+    // Starts queued work in FIFO order; starting only sends, so one thread is enough
+    private static final ThreadPoolExecutor STARTER = createStarter();
+
+    public static class RejectedException extends RuntimeException {
+        private final int status;
+
+        RejectedException(int status, String message) {
+            super(message);
+            this.status = status;
+        }
+
+        public int getStatus() {
+            return status;
+        }
+    }
+
+    private final Object lock = new Object();
+    private final ArrayDeque<Pending<?>> queue = new ArrayDeque<>();
+    private final Map<String, Integer> inFlightByKey = new HashMap<>();
+    private final AtomicLong rejected = new AtomicLong();
+    private int maxInFlight;
+    private int maxPerKey;
+    private int maxQueued;
+    private int inFlight;
+
+    public AdmissionController(int maxInFlight, int maxPerKey, int maxQueued) {
+        configure(maxInFlight, maxPerKey, maxQueued);
+    }
+
+    private static ThreadPoolExecutor createStarter() {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 30, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), task -> {
+                    Thread thread = new Thread(task, "MCP-ASD-Admission");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    /**
+     * Updates the limits. A value of 0 disables the global or per-key limit; queued
+     * work is re-examined so raising a limit takes effect immediately.
+     */
+    public void configure(int maxInFlight, int maxPerKey, int maxQueued) {
+        List<Pending<?>> ready;
+        synchronized (lock) {
+            this.maxInFlight = Math.max(0, maxInFlight);
+            this.maxPerKey = Math.max(0, maxPerKey);
+            this.maxQueued = Math.max(0, maxQueued);
+            ready = drainRunnable();
+        }
+        startQueued(ready);
+    }
+
+    /**
+     * Runs {@code task} once {@code weight} global permits (and one permit for {@code key},
+     * if non-null) are available. Permits are returned when the task's future completes.
+     */
+    public <T> CompletableFuture<T> submit(String key, int weight, Supplier<CompletableFuture<T>> task) {
+        Pending<T> pending;
+        synchronized (lock) {
+            pending = new Pending<>(key, maxInFlight > 0 ? Math.min(Math.max(weight, 1), maxInFlight) : Math.max(weight, 1), task);
+            if (fits(pending)) {
+                acquire(pending);
+            } else if (queue.size() < maxQueued) {
+                queue.add(pending);
+                return pending.result;
+            } else {
+                rejected.incrementAndGet();
+                boolean keyFull = key != null && maxPerKey > 0 && inFlightByKey.getOrDefault(key, 0) >= maxPerKey;
+                return CompletableFuture.failedFuture(keyFull
+                        ? new RejectedException(429, "Too many in-flight requests for '" + key + "'")
+                        : new RejectedException(503, "Bridge is at capacity (" + inFlight + " in flight, " + queue.size() + " queued)"));
+            }
+        }
+        pending.start();
+        return pending.result;
+    }
+
+    public int getInFlight() {
+        synchronized (lock) {
+            return inFlight;
+        }
+    }
+
+    public int getQueued() {
+        synchronized (lock) {
+            return queue.size();
+        }
+    }
+
+    public long getRejected() {
+        return rejected.get();
+    }
+
+    private boolean fits(Pending<?> pending) {
+        if (maxInFlight > 0 && inFlight + pending.weight > maxInFlight) return false;
+        return pending.key == null || maxPerKey == 0 || inFlightByKey.getOrDefault(pending.key, 0) < maxPerKey;
+    }
+
+    private void acquire(Pending<?> pending) {
+        inFlight += pending.weight;
+        if (pending.key != null) inFlightByKey.merge(pending.key, 1, Integer::sum);
+    }
+
+    private void release(Pending<?> pending) {
+        List<Pending<?>> ready;
+        synchronized (lock) {
+            inFlight -= pending.weight;
+            if (pending.key != null) {
+                inFlightByKey.computeIfPresent(pending.key, (k, count) -> count > 1 ? count - 1 : null);
+            }
+            ready = drainRunnable();
+        }
+        startQueued(ready);
+    }
+
+    private static void startQueued(List<Pending<?>> ready) {
+        if (ready.isEmpty()) return;
+        STARTER.execute(() -> ready.forEach(Pending::start));
+    }
+
+    /** Must hold {@code lock}. Removes and acquires every queued entry that now fits, in FIFO order. */
+    private List<Pending<?>> drainRunnable() {
+        List<Pending<?>> ready = new ArrayList<>();
+        Iterator<Pending<?>> it = queue.iterator();
+        while (it.hasNext() && (maxInFlight == 0 || inFlight < maxInFlight)) {
+            Pending<?> pending = it.next();
+            if (fits(pending)) {
+                it.remove();
+                acquire(pending);
+                ready.add(pending);
+            }
+        }
+        return ready;
+    }
+
+    private final class Pending<T> {
+        private final String key;
+        private final int weight;
+        private final Supplier<CompletableFuture<T>> task;
+        private final CompletableFuture<T> result = new CompletableFuture<>();
+
+        Pending(String key, int weight, Supplier<CompletableFuture<T>> task) {
+            this.key = key;
+            this.weight = weight;
+            this.task = task;
+        }
+
+        void start() {
+            CompletableFuture<T> future;
+            try {
+                future = task.get();
+            } catch (Exception e) {
+                future = CompletableFuture.failedFuture(e);
+            }
+            future.whenComplete((value, error) -> {
+                release(this);
+                if (error != null) {
+                    result.completeExceptionally(error);
+                } else {
+                    result.complete(value);
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.mcp_asd.burp.bridge;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latency and error statistics for bridge traffic, keyed by JSON-RPC method (and
+ * tool name for {@code tools/call}). Everything is updated with atomics so the
+ * request path never locks; the dashboard polls {@link #snapshot()}.
+ */
+public class BridgeMetrics {
+    // Fuzzed tool names would otherwise create unbounded keys
+    private static final int MAX_KEYS = 200;
+    private static final String OVERFLOW_KEY = "(other)";
+
+    public static final class Series {
+        private final LatencyHistogram endToEnd = new LatencyHistogram();
+        private final LatencyHistogram upstream = new LatencyHistogram();
+        private final LongAdder errors = new LongAdder();
+        private final LongAdder timeouts = new LongAdder();
+        private final AtomicInteger inFlight = new AtomicInteger();
+
+        /** Time from the bridge receiving the request to the response being ready. */
+        public LatencyHistogram getEndToEnd() { return endToEnd; }
+        /** Time from sending to the MCP server to the correlated response arriving. */
+        public LatencyHistogram getUpstream() { return upstream; }
+        public long getErrors() { return errors.sum(); }
+        public long getTimeouts() { return timeouts.sum(); }
+        public int getInFlight() { return inFlight.get(); }
+
+        public void recordEndToEnd(long startNanos) {
+            endToEnd.recordNanos(System.nanoTime() - startNanos);
+        }
+
+        /**
+         * Marks an upstream call as started.
+         *
+         * @return the start time to pass to {@link #upstreamFinished}
+         */
+        public long upstreamStarted() {
+            inFlight.incrementAndGet();
+            return System.nanoTime();
+        }
+
+        public void upstreamFinished(long startNanos, boolean error, boolean timeout) {
+            inFlight.decrementAndGet();
+            if (timeout) {
+                timeouts.increment();
+            } else {
+                upstream.recordNanos(System.nanoTime() - startNanos);
+                if (error) errors.increment();
+            }
+        }
+    }
+
+    private final ConcurrentHashMap<String, Series> series = new ConcurrentHashMap<>();
+
+    public static String keyFor(String method, String toolName) {
+        if (method == null) return "(unknown)";
+        return toolName != null ? method + " " + toolName : method;
+    }
+
+    /** Current series, sorted by key. */
+    public Map<String, Series> snapshot() {
+        return new TreeMap<>(series);
+    }
+
+    /**
+     * Starts fresh series. Calls already in flight finish against the series they
+     * started on, so they don't skew the new ones.
+     */
+    public void reset() {
+        series.clear();
+    }
+
+    public Series series(String key) {
+        Series existing = series.get(key);
+        if (existing != null) return existing;
+        if (series.size() >= MAX_KEYS) key = OVERFLOW_KEY;
+        return series.computeIfAbsent(key, k -> new Series());
+    }
+}
@@ -0,0 +1,20 @@
+package com.mcp_asd.burp.bridge;
+
+import java.io.IOException;
+
+/**
+ * Raised while decoding a bridge request that cannot be served. Carries the HTTP
+ * status the connection should be answered with before it is closed.
+ */
+public class BridgeProtocolException extends IOException {
+    private final int status;
+
+    public BridgeProtocolException(int status, String message) {
+        super(message);
+        this.status = status;
+    }
+
+    public int getStatus() {
+        return status;
+    }
+}
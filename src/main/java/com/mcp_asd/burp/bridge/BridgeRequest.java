@@ -0,0 +1,114 @@
+package com.mcp_asd.burp.bridge;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * A single HTTP request read off the internal bridge socket. Header names are
+ * stored lower-cased; the body is kept as raw bytes.
+ */
+public class BridgeRequest {
+    static final int MAX_HEADER_BYTES = 64 * 1024;
+    static final int MAX_BODY_BYTES = 64 * 1024 * 1024;
+
+    private final String method;
+    private final String path;
+    private final String version;
+    private final Map<String, String> headers;
+    private final byte[] body;
+
+    public BridgeRequest(String method, String path, String version, Map<String, String> headers, byte[] body) {
+        this.method = method;
+        this.path = path;
+        this.version = version;
+        this.headers = Collections.unmodifiableMap(headers);
+        this.body = body;
+    }
+
+    public String getMethod() { return method; }
+    public String getPath() { return path; }
+    public String getVersion() { return version; }
+    public Map<String, String> getHeaders() { return headers; }
+    public byte[] getBody() { return body; }
+
+    public String getHeader(String name) {
+        return headers.get(name.toLowerCase(Locale.ROOT));
+    }
+
+    /**
+     * Tries to decode one complete request from the bytes written into {@code buffer}
+     * (i.e. the range {@code [0, position)}). On success the consumed bytes are removed
+     * from the buffer and any trailing bytes are shifted to the front.
+     *
+     * @return the request, or {@code null} if more bytes are needed
+     */
+    static BridgeRequest decode(ByteBuffer buffer) throws BridgeProtocolException {
+        byte[] data = buffer.array();
+        int length = buffer.position();
+
+        int headerEnd = indexOfHeaderEnd(data, length);
+        if (headerEnd < 0) {
+            if (length > MAX_HEADER_BYTES) {
+                throw new BridgeProtocolException(431, "Request headers too large");
+            }
+            return null;
+        }
+
+        String head = new String(data, 0, headerEnd, StandardCharsets.ISO_8859_1);
+        String[] lines = head.split("\r\n");
+        String[] requestLine = lines[0].split(" ");
+        if (requestLine.length != 3) {
+            throw new BridgeProtocolException(400, "Malformed request line");
+        }
+
+        Map<String, String> headers = new LinkedHashMap<>();
+        for (int i = 1; i < lines.length; i++) {
+            int colon = lines[i].indexOf(':');
+            if (colon <= 0) continue;
+            headers.put(lines[i].substring(0, colon).trim().toLowerCase(Locale.ROOT), lines[i].substring(colon + 1).trim());
+        }
+
+        if (headers.containsKey("transfer-encoding")) {
+            throw new BridgeProtocolException(400, "Chunked request bodies are not supported");
+        }
+
+        int contentLength = 0;
+        String contentLengthHeader = headers.get("content-length");
+        if (contentLengthHeader != null) {
+            try {
+                contentLength = Integer.parseInt(contentLengthHeader);
+            } catch (NumberFormatException e) {
+                throw new BridgeProtocolException(400, "Invalid Content-Length");
+            }
+            if (contentLength < 0) throw new BridgeProtocolException(400, "Invalid Content-Length");
+            if (contentLength > MAX_BODY_BYTES) throw new BridgeProtocolException(413, "Request body too large");
+        }
+
+        int bodyStart = headerEnd + 4;
+        int total = bodyStart + contentLength;
+        if (length < total) {
+            return null;
+        }
+
+        byte[] body = Arrays.copyOfRange(data, bodyStart, total);
+        buffer.flip();
+        buffer.position(total);
+        buffer.compact();
+
+        return new BridgeRequest(requestLine[0], requestLine[1], requestLine[2], headers, body);
+    }
+
+    private static int indexOfHeaderEnd(byte[] data, int length) {
+        for (int i = 0; i + 3 < length; i++) {
+            if (data[i] == '\r' && data[i + 1] == '\n' && data[i + 2] == '\r' && data[i + 3] == '\n') {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,96 @@
+package com.mcp_asd.burp.bridge;
+
+import org.json.JSONObject;
+
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * HTTP response produced for a bridge request. Serialized by {@link BridgeServer}
+ * once the handler's future completes. A response created with {@link #chunked}
+ * sends its head immediately and streams the body as it is written.
+ */
+public class BridgeResponse {
+    private final int status;
+    private final String contentType;
+    private final byte[] body;
+    private final ChunkedBody chunkedBody;
+    private final Map<String, String> headers = new LinkedHashMap<>();
+
+    public BridgeResponse(int status, String contentType, byte[] body) {
+        this(status, contentType, body, null);
+    }
+
+    private BridgeResponse(int status, String contentType, byte[] body, ChunkedBody chunkedBody) {
+        this.status = status;
+        this.contentType = contentType;
+        this.body = body;
+        this.chunkedBody = chunkedBody;
+    }
+
+    public static BridgeResponse chunked(int status, String contentType, ChunkedBody body) {
+        return new BridgeResponse(status, contentType, new byte[0], body);
+    }
+
+    public static BridgeResponse json(int status, String json) {
+        return new BridgeResponse(status, "application/json", json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static BridgeResponse error(int status, String message) {
+        return json(status, new JSONObject().put("error", message == null ? "Unknown error" : message).toString());
+    }
+
+    public BridgeResponse withHeader(String name, String value) {
+        headers.put(name, value);
+        return this;
+    }
+
+    /** A copy with the same status, content type and headers, carrying {@code body} instead. */
+    public BridgeResponse withBody(byte[] body) {
+        BridgeResponse copy = new BridgeResponse(status, contentType, body, chunkedBody);
+        copy.headers.putAll(headers);
+        return copy;
+    }
+
+    public int getStatus() { return status; }
+    public byte[] getBody() { return body; }
+    ChunkedBody getChunkedBody() { return chunkedBody; }
+
+    byte[] encode(boolean keepAlive) {
+        StringBuilder head = new StringBuilder();
+        head.append("HTTP/1.1 ").append(status).append(' ').append(reasonPhrase(status)).append("\r\n");
+        head.append("Content-Type: ").append(contentType).append("\r\n");
+        for (Map.Entry<String, String> header : headers.entrySet()) {
+            head.append(header.getKey()).append(": ").append(header.getValue()).append("\r\n");
+        }
+        head.append("Connection: ").append(keepAlive ? "keep-alive" : "close").append("\r\n");
+        if (chunkedBody != null) {
+            head.append("Transfer-Encoding: chunked\r\n\r\n");
+        } else {
+            head.append("Content-Length: ").append(body.length).append("\r\n\r\n");
+        }
+
+        byte[] headBytes = head.toString().getBytes(StandardCharsets.ISO_8859_1);
+        byte[] out = new byte[headBytes.length + body.length];
+        System.arraycopy(headBytes, 0, out, 0, headBytes.length);
+        System.arraycopy(body, 0, out, headBytes.length, body.length);
+        return out;
+    }
+
+    static String reasonPhrase(int status) {
+        switch (status) {
+            case 200: return "OK";
+            case 202: return "Accepted";
+            case 400: return "Bad Request";
+            case 404: return "Not Found";
+            case 413: return "Payload Too Large";
+            case 429: return "Too Many Requests";
+            case 431: return "Request Header Fields Too Large";
+            case 500: return "Internal Server Error";
+            case 503: return "Service Unavailable";
+            case 504: return "Gateway Timeout";
+            default: return "Unknown";
+        }
+    }
+}
@@ -0,0 +1,325 @@
+package com.mcp_asd.burp.bridge;
+
+import burp.api.montoya.MontoyaApi;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Non-blocking HTTP/1.1 server behind the virtual /invoke endpoint.
+ *
+ * A single selector thread accepts connections, decodes requests and writes
+ * responses. Connections are persistent and may carry pipelined requests;
+ * responses are written back in request order.
+ *
+ * Requests are handed to a {@link RequestHandler} which returns a future; the
+ * response is queued for writing from that future's completion, so no thread
+ * is parked while the MCP server works on the call. Chunked responses hold
+ * their place in the pipeline until their body ends.
+ */
+public class BridgeServer {
+
+    public interface RequestHandler {
+        CompletableFuture<BridgeResponse> handle(BridgeRequest request);
+    }
+
+    private static final int BACKLOG = 100; // Absorb Intruder connection bursts
+    private static final int INITIAL_BUFFER_SIZE = 8 * 1024;
+    private static final int MAX_PIPELINED = 64; // Outstanding requests per connection before reads pause
+
+    private final MontoyaApi api;
+    private final RequestHandler handler;
+    private final Queue<Connection> pendingWrites = new ConcurrentLinkedQueue<>();
+    private Selector selector;
+    private ServerSocketChannel serverChannel;
+    private volatile boolean running;
+
+    public BridgeServer(MontoyaApi api, RequestHandler handler) {
+        this.api = api;
+        this.handler = handler;
+    }
+
+    /**
+     * Binds to an ephemeral loopback port and starts the selector thread.
+     *
+     * @return the bound port
+     */
+    public int start() throws IOException {
+        selector = Selector.open();
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(new InetSocketAddress(InetAddress.getByName("127.0.0.1"), 0), BACKLOG);
+        serverChannel.configureBlocking(false);
+        serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+
+        running = true;
+        Thread thread = new Thread(this::run, "MCP-ASD-Bridge");
+        thread.setDaemon(true);
+        thread.start();
+        return ((InetSocketAddress) serverChannel.getLocalAddress()).getPort();
+    }
+
+    public void stop() {
+        running = false;
+        if (selector != null) {
+            selector.wakeup();
+        }
+    }
+
+    private void run() {
+        while (running) {
+            try {
+                selector.select();
+            } catch (IOException | ClosedSelectorException e) {
+                // The selector itself is broken; retrying would only spin on the same failure
+                api.logging().logToError("InternalProxy: Selector failed, bridge stopped: " + e.getMessage());
+                running = false;
+                break;
+            }
+            try {
+                Connection ready;
+                while ((ready = pendingWrites.poll()) != null) {
+                    try {
+                        ready.flush();
+                    } catch (IOException | CancelledKeyException e) {
+                        ready.close();
+                    }
+                }
+
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    try {
+                        if (!key.isValid()) continue;
+                        if (key.isAcceptable()) {
+                            accept();
+                        } else if (key.isReadable()) {
+                            ((Connection) key.attachment()).onReadable();
+                        } else if (key.isWritable()) {
+                            ((Connection) key.attachment()).onWritable();
+                        }
+                    } catch (IOException | CancelledKeyException e) {
+                        Object attachment = key.attachment();
+                        if (attachment instanceof Connection) {
+                            ((Connection) attachment).close();
+                        }
+                    }
+                }
+            } catch (ClosedSelectorException e) {
+                running = false;
+            } catch (RuntimeException e) {
+                // A bug in one request's handling; the other connections keep being served
+                api.logging().logToError("InternalProxy: Selector error: " + e.getMessage());
+            }
+        }
+
+        try {
+            for (SelectionKey key : selector.keys()) {
+                try { key.channel().close(); } catch (IOException ignored) {}
+            }
+        } catch (ClosedSelectorException ignored) {}
+        try { selector.close(); } catch (IOException ignored) {}
+        try { serverChannel.close(); } catch (IOException ignored) {}
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel;
+        while ((channel = serverChannel.accept()) != null) {
+            channel.configureBlocking(false);
+            channel.socket().setTcpNoDelay(true);
+            Connection connection = new Connection(channel);
+            connection.key = channel.register(selector, SelectionKey.OP_READ, connection);
+        }
+    }
+
+    private final class Connection {
+        private final SocketChannel channel;
+        private SelectionKey key;
+        private ByteBuffer in = ByteBuffer.allocate(INITIAL_BUFFER_SIZE);
+        // Only touched on the selector thread. Slots are answered strictly in request order.
+        private final ArrayDeque<Slot> slots = new ArrayDeque<>();
+        private final ArrayDeque<ByteBuffer> out = new ArrayDeque<>();
+        private boolean closeAfterWrite; // A request asked for Connection: close, or was malformed
+        private boolean inputShutdown;
+
+        Connection(SocketChannel channel) {
+            this.channel = channel;
+        }
+
+        void onReadable() throws IOException {
+            if (!in.hasRemaining()) {
+                ByteBuffer larger = ByteBuffer.allocate(in.capacity() * 2);
+                in.flip();
+                larger.put(in);
+                in = larger;
+            }
+
+            int read = channel.read(in);
+            if (read == -1) {
+                inputShutdown = true;
+                if (slots.isEmpty() && out.isEmpty()) {
+                    close();
+                    return;
+                }
+            } else {
+                decodeAvailable();
+            }
+            updateInterest();
+        }
+
+        /**
+         * Decodes every complete request currently buffered (pipelined requests arrive
+         * back to back) and dispatches each into its own response slot.
+         */
+        private void decodeAvailable() {
+            while (!closeAfterWrite && slots.size() < MAX_PIPELINED) {
+                BridgeRequest request;
+                try {
+                    request = BridgeRequest.decode(in);
+                } catch (BridgeProtocolException e) {
+                    closeAfterWrite = true;
+                    Slot slot = new Slot(false);
+                    slots.add(slot);
+                    slot.complete(BridgeResponse.error(e.getStatus(), e.getMessage()));
+                    return;
+                }
+                if (request == null) return;
+
+                boolean keepAlive = isKeepAlive(request);
+                if (!keepAlive) closeAfterWrite = true;
+                Slot slot = new Slot(keepAlive);
+                slots.add(slot);
+                dispatch(request, slot);
+            }
+        }
+
+        private void dispatch(BridgeRequest request, Slot slot) {
+            CompletableFuture<BridgeResponse> future;
+            try {
+                future = handler.handle(request);
+            } catch (Exception e) {
+                future = CompletableFuture.completedFuture(BridgeResponse.error(500, e.getMessage()));
+            }
+            future.whenComplete((response, error) -> {
+                if (error != null || response == null) {
+                    Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+                    response = BridgeResponse.error(500, cause != null ? cause.getMessage() : "No response");
+                }
+                slot.complete(response);
+            });
+        }
+
+        /**
+         * Moves every completed slot at the head of the pipeline into the output queue
+         * and writes as much as the socket accepts.
+         */
+        void flush() throws IOException {
+            if (!key.isValid()) return;
+
+            while (!slots.isEmpty() && slots.peek().response != null) {
+                Slot slot = slots.peek();
+                ChunkedBody chunked = slot.response.getChunkedBody();
+                if (!slot.headSent) {
+                    out.add(ByteBuffer.wrap(slot.response.encode(slot.keepAlive)));
+                    slot.headSent = true;
+                }
+                if (chunked != null) {
+                    // Read the flag first so a chunk written just before end() is not lost
+                    boolean ended = chunked.isEnded();
+                    ByteBuffer chunk;
+                    while ((chunk = chunked.poll()) != null) out.add(chunk);
+                    if (!ended) break;
+                    out.add(ChunkedBody.lastChunk());
+                }
+                slots.poll();
+            }
+            while (!out.isEmpty()) {
+                ByteBuffer buffer = out.peek();
+                channel.write(buffer);
+                if (buffer.hasRemaining()) break;
+                out.poll();
+            }
+
+            if (out.isEmpty() && slots.isEmpty() && (closeAfterWrite || inputShutdown)) {
+                close();
+                return;
+            }
+            // Requests may have been held back while the pipeline was full
+            decodeAvailable();
+            updateInterest();
+        }
+
+        void onWritable() throws IOException {
+            flush();
+        }
+
+        private void updateInterest() {
+            if (!key.isValid()) return;
+            int ops = 0;
+            if (!closeAfterWrite && !inputShutdown && slots.size() < MAX_PIPELINED) ops |= SelectionKey.OP_READ;
+            if (!out.isEmpty()) ops |= SelectionKey.OP_WRITE;
+            key.interestOps(ops);
+        }
+
+        void close() {
+            key.cancel();
+            try {
+                channel.close();
+            } catch (IOException ignored) {}
+        }
+
+        private final class Slot {
+            private final boolean keepAlive;
+            private volatile BridgeResponse response;
+            private boolean headSent; // Selector thread only
+
+            Slot(boolean keepAlive) {
+                this.keepAlive = keepAlive;
+            }
+
+            /**
+             * Called from whichever thread completed the response; the selector thread
+             * picks it up on its next wakeup.
+             */
+            void complete(BridgeResponse response) {
+                this.response = response;
+                if (response.getChunkedBody() != null) {
+                    response.getChunkedBody().onData(this::signal);
+                } else {
+                    signal();
+                }
+            }
+
+            private void signal() {
+                pendingWrites.add(Connection.this);
+                selector.wakeup();
+            }
+        }
+    }
+
+    /**
+     * HTTP/1.1 connections are persistent unless the client says otherwise; HTTP/1.0
+     * clients have to ask for it.
+     */
+    private static boolean isKeepAlive(BridgeRequest request) {
+        String connection = request.getHeader("Connection");
+        if ("HTTP/1.0".equals(request.getVersion())) {
+            return connection != null && connection.equalsIgnoreCase("keep-alive");
+        }
+        return connection == null || !connection.equalsIgnoreCase("close");
+    }
+}
@@ -0,0 +1,63 @@
+package com.mcp_asd.burp.bridge;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Body of a streaming bridge response. Any thread may write chunks; the selector
+ * thread sends each one with HTTP/1.1 chunked framing as soon as it is written,
+ * and ends the response after {@link #end()}.
+ */
+public class ChunkedBody {
+    private static final byte[] LAST_CHUNK = "0\r\n\r\n".getBytes(StandardCharsets.ISO_8859_1);
+
+    private final Queue<byte[]> chunks = new ConcurrentLinkedQueue<>();
+    private volatile boolean ended;
+    private volatile Runnable listener;
+
+    public void write(byte[] data) {
+        if (ended || data.length == 0) return; // A zero-length chunk would terminate the body
+        chunks.add(data);
+        signal();
+    }
+
+    public void end() {
+        ended = true;
+        signal();
+    }
+
+    boolean isEnded() {
+        return ended;
+    }
+
+    /**
+     * Installs the callback that tells the server new data is queued. Runs it once
+     * straight away in case chunks were written before the response was picked up.
+     */
+    void onData(Runnable listener) {
+        this.listener = listener;
+        listener.run();
+    }
+
+    /** Returns the next queued chunk with its framing, or {@code null} if none is queued. */
+    ByteBuffer poll() {
+        byte[] data = chunks.poll();
+        if (data == null) return null;
+        byte[] size = (Integer.toHexString(data.length) + "\r\n").getBytes(StandardCharsets.ISO_8859_1);
+        ByteBuffer framed = ByteBuffer.allocate(size.length + data.length + 2);
+        framed.put(size).put(data).put((byte) '\r').put((byte) '\n');
+        framed.flip();
+        return framed;
+    }
+
+    static ByteBuffer lastChunk() {
+        return ByteBuffer.wrap(LAST_CHUNK);
+    }
+
+    private void signal() {
+        Runnable current = listener;
+        if (current != null) current.run();
+    }
+}
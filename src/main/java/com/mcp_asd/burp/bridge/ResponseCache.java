@@ -0,0 +1,114 @@
+package com.mcp_asd.burp.bridge;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Size-bounded LRU cache with a TTL for results of idempotent MCP methods
+ * (e.g. {@code resources/read}, {@code tools/list}). The caller decides which
+ * methods are cacheable and builds keys from the method and canonicalized params.
+ */
+public class ResponseCache {
+
+    private static final class Entry {
+        private final Object result;
+        private final long expiresAt;
+
+        Entry(Object result, long expiresAt) {
+            this.result = result;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    private final Object lock = new Object();
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true); // Access order = LRU
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private volatile boolean enabled;
+    private int maxEntries;
+    private long ttlNanos;
+
+    public ResponseCache(boolean enabled, int maxEntries, int ttlSeconds) {
+        configure(enabled, maxEntries, ttlSeconds);
+    }
+
+    /**
+     * Applies new settings. Disabling the cache drops every entry.
+     */
+    public void configure(boolean enabled, int maxEntries, int ttlSeconds) {
+        synchronized (lock) {
+            this.enabled = enabled;
+            this.maxEntries = Math.max(1, maxEntries);
+            this.ttlNanos = TimeUnit.SECONDS.toNanos(Math.max(1, ttlSeconds));
+            if (!enabled) {
+                entries.clear();
+            }
+            trim();
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @return the cached JSON-RPC {@code result} for {@code key}, or {@code null} on a miss
+     */
+    public Object get(String key) {
+        synchronized (lock) {
+            Entry entry = entries.get(key);
+            if (entry != null && entry.expiresAt - System.nanoTime() > 0) {
+                hits.incrementAndGet();
+                return entry.result;
+            }
+            if (entry != null) {
+                entries.remove(key);
+            }
+        }
+        misses.incrementAndGet();
+        return null;
+    }
+
+    public void put(String key, Object result) {
+        if (!enabled) return;
+        synchronized (lock) {
+            entries.put(key, new Entry(result, System.nanoTime() + ttlNanos));
+            trim();
+        }
+    }
+
+    /**
+     * Drops every entry, e.g. when connecting to a different server.
+     */
+    public void clear() {
+        synchronized (lock) {
+            entries.clear();
+        }
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public int size() {
+        synchronized (lock) {
+            return entries.size();
+        }
+    }
+
+    /** Must hold {@code lock}. */
+    private void trim() {
+        Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator();
+        while (entries.size() > maxEntries && it.hasNext()) {
+            it.next();
+            it.remove();
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.mcp_asd.burp.bridge;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Shares one in-flight call between concurrent callers with the same key. The
+ * first caller runs the call; callers arriving before it completes get the same
+ * future. Nothing is remembered once the call completes (see {@link ResponseCache}).
+ */
+public class SingleFlight<T> {
+    private final ConcurrentHashMap<String, CompletableFuture<T>> inFlight = new ConcurrentHashMap<>();
+    private final AtomicLong coalesced = new AtomicLong();
+
+    public CompletableFuture<T> run(String key, Supplier<CompletableFuture<T>> call) {
+        CompletableFuture<T> shared = new CompletableFuture<>();
+        CompletableFuture<T> existing = inFlight.putIfAbsent(key, shared);
+        if (existing != null) {
+            coalesced.incrementAndGet();
+            return existing;
+        }
+
+        CompletableFuture<T> result;
+        try {
+            result = call.get();
+        } catch (Exception e) {
+            result = CompletableFuture.failedFuture(e);
+        }
+        result.whenComplete((value, error) -> {
+            // Remove before completing so a caller reacting to the result starts a fresh call
+            inFlight.remove(key, shared);
+            if (error != null) {
+                shared.completeExceptionally(error);
+            } else {
+                shared.complete(value);
+            }
+        });
+        return shared;
+    }
+
+    /** Number of callers that joined an existing call instead of starting their own. */
+    public long getCoalesced() {
+        return coalesced.get();
+    }
+}
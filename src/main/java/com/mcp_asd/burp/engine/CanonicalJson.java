@@ -0,0 +1,50 @@
+package com.mcp_asd.burp.engine;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.util.TreeSet;
+
+/**
+ * Serializes JSON values with object keys in sorted order, so two requests that
+ * differ only in member order or whitespace produce the same string.
+ */
+public final class CanonicalJson {
+
+    private CanonicalJson() {}
+
+    public static String write(Object value) {
+        StringBuilder sb = new StringBuilder();
+        append(sb, value);
+        return sb.toString();
+    }
+
+    private static void append(StringBuilder sb, Object value) {
+        if (value instanceof JSONObject) {
+            JSONObject object = (JSONObject) value;
+            sb.append('{');
+            boolean first = true;
+            for (String key : new TreeSet<>(object.keySet())) {
+                if (!first) sb.append(',');
+                first = false;
+                sb.append(JSONObject.quote(key)).append(':');
+                append(sb, object.opt(key));
+            }
+            sb.append('}');
+        } else if (value instanceof JSONArray) {
+            JSONArray array = (JSONArray) value;
+            sb.append('[');
+            for (int i = 0; i < array.length(); i++) {
+                if (i > 0) sb.append(',');
+                append(sb, array.opt(i));
+            }
+            sb.append(']');
+        } else if (value == null || JSONObject.NULL.equals(value)) {
+            sb.append("null");
+        } else if (value instanceof String) {
+            sb.append(JSONObject.quote((String) value));
+        } else {
+            sb.append(JSONObject.valueToString(value));
+        }
+    }
+}
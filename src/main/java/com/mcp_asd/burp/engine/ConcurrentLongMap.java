@@ -0,0 +1,209 @@
+package com.mcp_asd.burp.engine;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Concurrent map from non-zero {@code long} keys to values, built for numeric JSON-RPC
+ * correlation ids. Keys are spread over lock-striped open-addressing tables (linear
+ * probing, backward-shift deletion), so lookups and updates neither box the key nor
+ * allocate entry nodes.
+ */
+final class ConcurrentLongMap<V> {
+    private static final int STRIPES = 16;
+    private static final int INITIAL_CAPACITY = 64;
+    private static final long EMPTY = 0;
+
+    private static final class Stripe {
+        private long[] keys = new long[INITIAL_CAPACITY];
+        private Object[] values = new Object[INITIAL_CAPACITY];
+        private int size;
+    }
+
+    private final Stripe[] stripes = new Stripe[STRIPES];
+
+    ConcurrentLongMap() {
+        for (int i = 0; i < STRIPES; i++) stripes[i] = new Stripe();
+    }
+
+    // Sequential ids must not cluster in one stripe or one run of slots
+    private static int hash(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    private Stripe stripeFor(int hash) {
+        return stripes[hash & (STRIPES - 1)];
+    }
+
+    private static int slotFor(int hash, int mask) {
+        return (hash >>> 4) & mask;
+    }
+
+    /**
+     * @return the previous value, or {@code null}
+     */
+    V put(long key, V value) {
+        if (key == EMPTY) throw new IllegalArgumentException("Key 0 is reserved");
+        int hash = hash(key);
+        Stripe stripe = stripeFor(hash);
+        synchronized (stripe) {
+            int mask = stripe.keys.length - 1;
+            for (int slot = slotFor(hash, mask); ; slot = (slot + 1) & mask) {
+                long existing = stripe.keys[slot];
+                if (existing == key) {
+                    @SuppressWarnings("unchecked") V previous = (V) stripe.values[slot];
+                    stripe.values[slot] = value;
+                    return previous;
+                }
+                if (existing == EMPTY) {
+                    stripe.keys[slot] = key;
+                    stripe.values[slot] = value;
+                    if (++stripe.size > stripe.keys.length / 2) resize(stripe, stripe.keys.length * 2);
+                    return null;
+                }
+            }
+        }
+    }
+
+    V get(long key) {
+        int hash = hash(key);
+        Stripe stripe = stripeFor(hash);
+        synchronized (stripe) {
+            int slot = find(stripe, key, hash);
+            @SuppressWarnings("unchecked") V value = slot < 0 ? null : (V) stripe.values[slot];
+            return value;
+        }
+    }
+
+    /**
+     * @return the removed value, or {@code null} if the key was absent
+     */
+    V remove(long key) {
+        int hash = hash(key);
+        Stripe stripe = stripeFor(hash);
+        synchronized (stripe) {
+            int slot = find(stripe, key, hash);
+            return slot < 0 ? null : removeAt(stripe, slot);
+        }
+    }
+
+    /**
+     * Removes the entry only if it still maps to {@code value} (by identity).
+     */
+    boolean remove(long key, V value) {
+        int hash = hash(key);
+        Stripe stripe = stripeFor(hash);
+        synchronized (stripe) {
+            int slot = find(stripe, key, hash);
+            if (slot < 0 || stripe.values[slot] != value) return false;
+            removeAt(stripe, slot);
+            return true;
+        }
+    }
+
+    int size() {
+        int size = 0;
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                size += stripe.size;
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Visits every value, one stripe at a time; not a consistent snapshot.
+     */
+    void forEachValue(Consumer<V> action) {
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                for (Object value : stripe.values) {
+                    if (value != null) {
+                        @SuppressWarnings("unchecked") V typed = (V) value;
+                        action.accept(typed);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Removes every entry, one stripe at a time, and shrinks the tables back to their
+     * initial size.
+     *
+     * @return the removed values
+     */
+    List<V> clear() {
+        List<V> removed = new ArrayList<>();
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                if (stripe.size == 0) continue;
+                for (Object value : stripe.values) {
+                    if (value != null) {
+                        @SuppressWarnings("unchecked") V typed = (V) value;
+                        removed.add(typed);
+                    }
+                }
+                stripe.keys = new long[INITIAL_CAPACITY];
+                stripe.values = new Object[INITIAL_CAPACITY];
+                stripe.size = 0;
+            }
+        }
+        return removed;
+    }
+
+    private static int find(Stripe stripe, long key, int hash) {
+        if (key == EMPTY) return -1;
+        int mask = stripe.keys.length - 1;
+        for (int slot = slotFor(hash, mask); ; slot = (slot + 1) & mask) {
+            long existing = stripe.keys[slot];
+            if (existing == key) return slot;
+            if (existing == EMPTY) return -1;
+        }
+    }
+
+    private static <V> V removeAt(Stripe stripe, int slot) {
+        @SuppressWarnings("unchecked") V removed = (V) stripe.values[slot];
+        long[] keys = stripe.keys;
+        Object[] values = stripe.values;
+        int mask = keys.length - 1;
+
+        // Shift later entries of the probe run back so lookups never stop at a gap
+        int hole = slot;
+        for (int i = (slot + 1) & mask; keys[i] != EMPTY; i = (i + 1) & mask) {
+            int ideal = slotFor(hash(keys[i]), mask);
+            if (((i - ideal) & mask) >= ((i - hole) & mask)) {
+                keys[hole] = keys[i];
+                values[hole] = values[i];
+                hole = i;
+            }
+        }
+        keys[hole] = EMPTY;
+        values[hole] = null;
+
+        // Give the memory of a burst back once it has drained
+        if (--stripe.size < keys.length / 8 && keys.length > INITIAL_CAPACITY) {
+            resize(stripe, keys.length / 2);
+        }
+        return removed;
+    }
+
+    private static void resize(Stripe stripe, int capacity) {
+        long[] oldKeys = stripe.keys;
+        Object[] oldValues = stripe.values;
+        long[] keys = new long[capacity];
+        Object[] values = new Object[capacity];
+        int mask = capacity - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] == EMPTY) continue;
+            int slot = slotFor(hash(oldKeys[i]), mask);
+            while (keys[slot] != EMPTY) slot = (slot + 1) & mask;
+            keys[slot] = oldKeys[i];
+            values[slot] = oldValues[i];
+        }
+        stripe.keys = keys;
+        stripe.values = values;
+    }
+}
@@ -2,337 +2,203 @@ package com.mcp_asd.burp.engine;
 
 import burp.api.montoya.MontoyaApi;
 import com.mcp_asd.burp.GlobalSettings;
-import com.mcp_asd.burp.ui.DashboardTab;
+import com.mcp_asd.burp.Log;
+import com.mcp_asd.burp.journal.TrafficJournal;
 import com.mcp_asd.burp.ui.ConnectionConfiguration;
-import org.json.JSONObject;
-import org.json.JSONArray;
-
-import javax.swing.SwingUtilities;
-import java.util.concurrent.CountDownLatch;
+import com.mcp_asd.burp.ui.DashboardTab;
+import com.mcp_asd.burp.ui.TargetView;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Keeps one {@link TargetConnection} per MCP server being audited. Connection attempts
+ * (which block for up to a minute on a slow handshake) run on a small bounded worker
+ * pool, so many servers can be enumerated at once without a thread each.
+ *
+ * Bridge requests name their target ({@code /invoke/{target}} or a
+ * {@code {target}.mcp-asd.local} Host header); requests without one go to the most
+ * recently connected target.
+ */
+public class EnumerationEngine {
+    private static final int CONNECT_WORKERS = 4;
 
-public class EnumerationEngine implements TransportListener {
     private final MontoyaApi api;
     private final GlobalSettings settings;
+    private final TrafficJournal journal;
     private DashboardTab dashboardTab;
-    private final SessionStore sessionStore;
-    private McpTransport transport;
-    private CountDownLatch latch;
-    private volatile boolean connectionFailed = false;
-    private ConnectionConfiguration currentConfig;
-    private volatile boolean cancelled = false;
-    
-    // Request IDs for tracking enumeration responses
-    private String initializeRequestId;
-    private String toolsRequestId;
-    private String resourcesRequestId;
-    private String promptsRequestId;
-    
-    private boolean toolsDone = false;
-    private boolean resourcesDone = false;
-    private boolean promptsDone = false;
+    private final Map<String, TargetConnection> targets = new LinkedHashMap<>(); // Guarded by this
+    private volatile TargetConnection defaultTarget;
+    private final ThreadPoolExecutor connectWorkers;
 
-    public EnumerationEngine(MontoyaApi api, DashboardTab dashboardTab, SessionStore sessionStore, GlobalSettings settings) {
+    public EnumerationEngine(MontoyaApi api, DashboardTab dashboardTab, GlobalSettings settings, TrafficJournal journal) {
         this.api = api;
         this.dashboardTab = dashboardTab;
-        this.sessionStore = sessionStore;
         this.settings = settings;
+        this.journal = journal;
+        AtomicInteger count = new AtomicInteger();
+        this.connectWorkers = new ThreadPoolExecutor(CONNECT_WORKERS, CONNECT_WORKERS, 30, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), task -> {
+                    Thread thread = new Thread(task, "MCP-ASD-Connect-" + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        connectWorkers.allowCoreThreadTimeOut(true);
     }
 
     public void setDashboardTab(DashboardTab dashboardTab) {
         this.dashboardTab = dashboardTab;
     }
 
-    public void cancel() {
-        this.cancelled = true;
-        api.logging().logToOutput("Cancellation requested by user.");
-        if (transport != null) {
-            transport.close();
-        }
-        if (latch != null) {
-            latch.countDown();
-        }
-        if (dashboardTab != null) {
-            dashboardTab.setStatus("⚪ Cancelled", java.awt.Color.GRAY);
-            dashboardTab.setCancelEnabled(false);
-        }
-    }
-
-    public void start(ConnectionConfiguration config) {
-        this.currentConfig = config;
-        
-        // Reset state
-        this.cancelled = false;
-        this.connectionFailed = false;
-        this.toolsDone = false;
-        this.resourcesDone = false;
-        this.promptsDone = false;
-
-        if (dashboardTab != null) {
-            dashboardTab.setTarget(config.getHost(), config.getPort());
-            dashboardTab.setStatus("🟠 Connecting via " + config.getTransport() + "...", java.awt.Color.ORANGE.darker());
-            dashboardTab.setCancelEnabled(true);
-        }
-        
-        new Thread(() -> {
-            boolean success = attemptConnection(config, false);
-            if (cancelled) return; // Exit if cancelled
-
-            if (!success && !config.getTransport().equals("WebSocket") && !config.getTransport().equals("HTTP (POST only)")) {
-                api.logging().logToOutput("Enumeration failed or timed out. Retrying with forced HTTP/1.1...");
-                if (dashboardTab != null) {
-                    dashboardTab.setStatus("🟠 Retrying (HTTP/1.1)...", java.awt.Color.ORANGE.darker());
-                }
-                attemptConnection(config, true);
+    /**
+     * Connects to (and enumerates) a server. Connecting again to the same host, port
+     * and path replaces that target; anything else is added next to the existing ones.
+     */
+    public TargetConnection start(ConnectionConfiguration config) {
+        TargetConnection target;
+        TargetConnection replaced;
+        synchronized (this) {
+            String name = null;
+            for (TargetConnection existing : targets.values()) {
+                if (sameServer(existing.getConfig(), config)) name = existing.getName();
             }
-            
+            if (name == null) name = uniqueName(baseName(config));
+            TargetView view = null;
             if (dashboardTab != null) {
-                dashboardTab.setCancelEnabled(false);
+                // A local process has no port; the view shows its command line instead
+                view = config.isStdio()
+                        ? dashboardTab.addTarget(name, config.getCommand(), 0)
+                        : dashboardTab.addTarget(name, config.getHost(), config.getPort());
             }
-        }).start();
-    }
+            target = new TargetConnection(api, settings, journal, name, config, view);
+            replaced = targets.put(name, target);
+            defaultTarget = target;
+        }
+        if (replaced != null) replaced.cancel();
 
-    private boolean attemptConnection(ConnectionConfiguration config, boolean forceHttp1) {
-        if (cancelled) return false;
-        try {
-            latch = new CountDownLatch(1); // Wait for Handshake (initialize response)
-            this.connectionFailed = false;
+        int waiting = connectWorkers.getQueue().size() + connectWorkers.getActiveCount();
+        if (waiting >= CONNECT_WORKERS) {
+            Log.info("[" + target.getName() + "] Queued; " + waiting + " connection attempt(s) ahead.");
+        }
+        connectWorkers.execute(target::connect);
+        return target;
+    }
 
-            if ("WebSocket".equals(config.getTransport())) {
-                transport = new WebSocketTransport(api, settings);
-            } else if ("HTTP (POST only)".equals(config.getTransport())) {
-                transport = new PostOnlyTransport(api, settings);
-            } else {
-                SseTransport sse = new SseTransport(api, settings);
-                if (forceHttp1) sse.setForceHttp1(true);
-                transport = sse;
+    /** Disconnects and forgets a target. */
+    public void remove(String name) {
+        TargetConnection removed;
+        synchronized (this) {
+            removed = targets.remove(name);
+            if (removed != null && removed == defaultTarget) {
+                TargetConnection last = null;
+                for (TargetConnection target : targets.values()) last = target;
+                defaultTarget = last;
             }
-            
-            api.logging().logToOutput("Starting connection attempt (Force HTTP/1.1: " + forceHttp1 + ")");
-            transport.connect(config, this);
+        }
+        if (removed != null) {
+            removed.cancel();
+            Log.info("[" + name + "] Removed.");
+        }
+    }
 
-            // Wait for INITIALIZE response, not full enumeration
-            if (!latch.await(30, TimeUnit.SECONDS)) {
-                api.logging().logToError("Connection attempt timed out waiting for handshake.");
-                transport.close();
-                return false;
-            }
-            
-            if (cancelled) {
-                api.logging().logToOutput("Connection attempt aborted (cancelled).");
-                return false;
-            }
-            
-            if (connectionFailed) {
-                transport.close();
-                return false;
-            }
-            
-            api.logging().logToOutput("Handshake successful. Connection secured.");
-            // Status remains "Enumerating..." set by onMessage
-            return true;
+    /**
+     * The dashboard's Cancel button for one target: abandons the connection attempt, or
+     * stops a running enumeration while keeping the connection.
+     */
+    public void cancelFromDashboard(String name) {
+        TargetConnection target = getTarget(name);
+        if (target != null) target.cancelFromDashboard();
+    }
 
-        } catch (Exception e) {
-            api.logging().logToError("Exception during connection attempt: " + e.getMessage());
-            if (dashboardTab != null) {
-                dashboardTab.setStatus("🔴 Connection Error: " + e.getMessage(), java.awt.Color.RED);
-            }
-            return false;
+    /** Closes every target (extension unload). */
+    public void cancel() {
+        List<TargetConnection> all;
+        synchronized (this) {
+            all = new ArrayList<>(targets.values());
         }
+        all.forEach(TargetConnection::cancel);
+        connectWorkers.shutdownNow();
     }
 
-    public void sendRequest(String requestBody) {
-        if (transport != null) {
-            transport.send(requestBody);
-        }
+    public synchronized TargetConnection getTarget(String name) {
+        return targets.get(name);
     }
 
-    // --- TransportListener Implementation ---
+    public synchronized List<TargetConnection> getTargets() {
+        return new ArrayList<>(targets.values());
+    }
 
-    @Override
-    public void onOpen() {
-        api.logging().logToOutput("Transport connected.");
-        if (dashboardTab != null) dashboardTab.setStatus("🔵 Handshaking...", java.awt.Color.BLUE.darker());
-        
-        // Trigger initial discovery
-        JSONObject initParams = new JSONObject();
-        initParams.put("protocolVersion", "2024-11-05");
-        initParams.put("capabilities", new JSONObject());
-        initParams.put("clientInfo", new JSONObject().put("name", "MCP-ASD").put("version", "1.0.1"));
-        
-        if (currentConfig != null && currentConfig.getInitializationOptions() != null && !currentConfig.getInitializationOptions().trim().isEmpty()) {
-            try {
-                JSONObject userParams = new JSONObject(currentConfig.getInitializationOptions());
-                for (String key : userParams.keySet()) {
-                    initParams.put(key, userParams.get(key));
-                }
-            } catch (Exception e) {
-                api.logging().logToError("Invalid JSON in Initialization Options: " + e.getMessage());
+    /**
+     * The target for a bridge request: the named one, or the default target if
+     * {@code name} is null. A default target whose connection is down is passed over for
+     * the most recently added live one. Returns {@code null} if there is no such target.
+     */
+    public TargetConnection resolveTarget(String name) {
+        if (name != null) return getTarget(name.toLowerCase(Locale.ROOT));
+        TargetConnection target = defaultTarget;
+        if (target == null || target.isReady()) return target;
+        // The default target's connection is down; use the latest one that is live
+        synchronized (this) {
+            TargetConnection live = null;
+            for (TargetConnection candidate : targets.values()) {
+                if (candidate.isReady()) live = candidate;
             }
+            return live;
         }
-        
-        initializeRequestId = java.util.UUID.randomUUID().toString();
-        
-        JSONObject initRequest = new JSONObject();
-        initRequest.put("jsonrpc", "2.0");
-        initRequest.put("method", "initialize");
-        initRequest.put("params", initParams);
-        initRequest.put("id", initializeRequestId);
-
-        sendRequest(initRequest.toString());
     }
 
-    @Override
-    public void onMessage(String data) {
-        if (data == null || data.trim().isEmpty()) return;
-        
-        api.logging().logToOutput("Received event data: " + data);
-        try {
-            JSONObject json = null;
-            if (data.trim().startsWith("[")) {
-                // Handle batch response or empty array (keep-alive?)
-                JSONArray arr = new JSONArray(data);
-                if (arr.length() > 0 && arr.get(0) instanceof JSONObject) {
-                    json = arr.getJSONObject(0); // Process first item for now
-                } else {
-                    api.logging().logToOutput("Received array response, ignoring: " + data);
-                    return;
-                }
-            } else {
-                json = new JSONObject(data);
-            }
-            
-            // 1. Correlation Logic for Proxy
-            if (json != null && json.has("id") && !json.isNull("id")) {
-                String msgId = json.getString("id");
-                if (sessionStore.getRequest(msgId) != null) {
-                    api.logging().logToOutput("Engine: Found matching pending request for ID: " + msgId);
-                    sessionStore.completeRequest(msgId, json);
-                }
-            }
-
-            // 2. Enumeration Logic
-            if (json != null && json.has("id") && !json.isNull("id")) {
-                String id = json.getString("id");
-                final JSONObject finalJson = json; // Create final reference for lambdas
-                
-                // Handshake Response
-                if (id.equals(initializeRequestId)) {
-                     if (json.has("error")) {
-                         api.logging().logToError("Initialization Failed: " + json.getJSONObject("error").toString());
-                         if (dashboardTab != null) dashboardTab.setStatus("🔴 Init Failed", java.awt.Color.RED);
-                         connectionFailed = true;
-                         if (latch != null) latch.countDown();
-                         return;
-                     }
-                     
-                     api.logging().logToOutput("Handshake successful. Sending 'notifications/initialized' and starting enumeration.");
-                     if (dashboardTab != null) {
-                         dashboardTab.setStatus("🔵 Enumerating...", java.awt.Color.BLUE.darker());
-                         if (json.has("result")) {
-                             dashboardTab.updateServerInfo(finalJson.getJSONObject("result"));
-                         }
-                     }
-                     
-                     // Signal success to the attemptConnection waiter
-                     if (latch != null) latch.countDown();
-
-                     // Send 'notifications/initialized' notification (No ID)
-                     JSONObject initializedNotify = new JSONObject();
-                     initializedNotify.put("jsonrpc", "2.0");
-                     initializedNotify.put("method", "notifications/initialized");
-                     sendRequest(initializedNotify.toString());
-
-                     // NOW trigger enumeration
-                     toolsRequestId = java.util.UUID.randomUUID().toString();
-                     resourcesRequestId = java.util.UUID.randomUUID().toString();
-                     promptsRequestId = java.util.UUID.randomUUID().toString();
-
-                     sendRequest("{\"jsonrpc\":\"2.0\",\"method\":\"tools/list\",\"id\":\"" + toolsRequestId + "\"}");
-                     sendRequest("{\"jsonrpc\":\"2.0\",\"method\":\"resources/list\",\"id\":\"" + resourcesRequestId + "\"}");
-                     sendRequest("{\"jsonrpc\":\"2.0\",\"method\":\"prompts/list\",\"id\":\"" + promptsRequestId + "\"}");
-                     
-                     return;
-                }
+    /**
+     * Least-busy session of the default target, or {@code null} if nothing is connected.
+     */
+    public McpSession selectSession() {
+        TargetConnection target = resolveTarget(null);
+        return target != null ? target.selectSession() : null;
+    }
 
-                if (id.equals(toolsRequestId)) {
-                    toolsDone = true;
-                    if (json.has("result")) {
-                        SwingUtilities.invokeLater(() -> dashboardTab.updateTools(finalJson.getJSONObject("result")));
-                    } else if (json.has("error")) {
-                         api.logging().logToError("Tools Enumeration Failed: " + json.getJSONObject("error").toString());
-                    }
-                    checkEnumerationComplete();
-                } 
-                else if (id.equals(resourcesRequestId)) {
-                    resourcesDone = true;
-                    if (json.has("result")) {
-                        SwingUtilities.invokeLater(() -> dashboardTab.updateResources(finalJson.getJSONObject("result")));
-                    } else if (json.has("error")) {
-                         api.logging().logToError("Resources Enumeration Failed: " + json.getJSONObject("error").toString());
-                    }
-                    checkEnumerationComplete();
-                } 
-                else if (id.equals(promptsRequestId)) {
-                    promptsDone = true;
-                    if (json.has("result")) {
-                        SwingUtilities.invokeLater(() -> dashboardTab.updatePrompts(finalJson.getJSONObject("result")));
-                    } else if (json.has("error")) {
-                         api.logging().logToError("Prompts Enumeration Failed: " + json.getJSONObject("error").toString());
-                    }
-                    checkEnumerationComplete();
-                }
-            }
-        } catch (Exception e) {
-            api.logging().logToError("Failed to parse event JSON: " + e.getMessage());
-            api.logging().logToError("Raw Data was: [" + data + "]");
-            
-            // Attempt recovery: Sometimes data comes as "data: {json}" but we stripped "data: ".
-            // If it's just a raw string like "Connection established", ignore.
-            // But if it looks like JSON, maybe we can clean it?
-            
-            // Critical: If we can't parse it, we must check if it's a response to a pending request.
-            // Since we can't parse the ID, we can't correlate it easily.
-            // However, we can try to extract ID via regex as a fallback.
-            try {
-                java.util.regex.Matcher m = java.util.regex.Pattern.compile("\"id\"\s*:\s*\"([^\"]+)\"").matcher(data);
-                if (m.find()) {
-                    String id = m.group(1);
-                    if (sessionStore.getRequest(id) != null) {
-                        JSONObject errorResponse = new JSONObject();
-                        errorResponse.put("jsonrpc", "2.0");
-                        errorResponse.put("id", id);
-                        errorResponse.put("error", new JSONObject().put("code", -32700).put("message", "Parse Error: Server returned invalid JSON").put("data", data));
-                        sessionStore.completeRequest(id, errorResponse);
-                    }
-                }
-            } catch (Exception ignored) {}
+    /**
+     * Every session of every target (for the dashboard's pending-request counters).
+     */
+    public List<McpSession> getSessions() {
+        List<McpSession> sessions = new ArrayList<>();
+        for (TargetConnection target : getTargets()) {
+            sessions.addAll(target.getSessions());
         }
+        return sessions;
     }
-    
-    private void checkEnumerationComplete() {
-        if (toolsDone && resourcesDone && promptsDone) {
-            if (dashboardTab != null) {
-                dashboardTab.setStatus("🟢 Connected & Ready", java.awt.Color.GREEN.darker());
-            }
+
+    private static boolean sameServer(ConnectionConfiguration a, ConnectionConfiguration b) {
+        if (a.isStdio() || b.isStdio()) {
+            return a.isStdio() && b.isStdio() && String.valueOf(a.getCommand()).equals(String.valueOf(b.getCommand()))
+                    && String.valueOf(a.getWorkingDirectory()).equals(String.valueOf(b.getWorkingDirectory()));
         }
+        return a.getHost().equalsIgnoreCase(b.getHost()) && a.getPort() == b.getPort()
+                && String.valueOf(a.getPath()).equals(String.valueOf(b.getPath()));
     }
 
-    @Override
-    public void onClose() {
-        api.logging().logToOutput("Transport closed.");
+    // e.g. "api.example.com" port 443 -> "api-example-com-443", "python server.py" -> "stdio-python"
+    private static String baseName(ConnectionConfiguration config) {
+        if (config.isStdio()) {
+            List<String> command = StdioTransport.parseCommand(config.getCommand());
+            String program = command.isEmpty() ? "" : new java.io.File(command.get(0)).getName();
+            program = program.toLowerCase(Locale.ROOT).replaceAll("\\.exe$", "").replaceAll("[^a-z0-9]+", "-").replaceAll("^-|-$", "");
+            return program.isEmpty() ? "stdio" : "stdio-" + program;
+        }
+        String host = config.getHost().toLowerCase(Locale.ROOT).replaceAll("[^a-z0-9]+", "-").replaceAll("^-|-$", "");
+        return (host.isEmpty() ? "target" : host) + "-" + config.getPort();
     }
 
-    @Override
-    public void onError(Throwable t) {
-        connectionFailed = true;
-        String errorMsg = (t != null ? t.getMessage() : "Unknown error");
-        api.logging().logToError("Transport failure: " + errorMsg);
-        
-        if (latch != null) latch.countDown();
-        
-        if (dashboardTab != null) {
-            dashboardTab.setStatus("🔴 Failed: " + errorMsg, java.awt.Color.RED);
+    private String uniqueName(String base) {
+        String name = base;
+        for (int i = 2; targets.containsKey(name); i++) {
+            name = base + "-" + i;
         }
+        return name;
     }
 }
@@ -0,0 +1,123 @@
+package com.mcp_asd.burp.engine;
+
+import com.mcp_asd.burp.Log;
+import org.json.JSONObject;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Routes the messages a session receives. A response is matched to its pending
+ * request after one scan for the top-level {@code id} and {@code method}, and handed
+ * over as raw bytes. Only notifications, server requests and responses nobody is
+ * waiting for are parsed into a JSON tree.
+ *
+ * The elements of a batch are scanned on the transport thread and then handled in
+ * parallel, so one slow consumer (e.g. a large bridge response being written out)
+ * doesn't hold up the rest of the batch.
+ */
+final class InboundRouter {
+    private static final int DISPATCH_THREADS = Math.max(2, Math.min(8, Runtime.getRuntime().availableProcessors()));
+    private static final Executor DIRECT = Runnable::run;
+    private static final Executor BATCH_DISPATCHER = createDispatcher();
+
+    private InboundRouter() {}
+
+    // Idle threads exit, so nothing needs shutting down when the extension unloads
+    private static Executor createDispatcher() {
+        AtomicInteger count = new AtomicInteger();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(DISPATCH_THREADS, DISPATCH_THREADS, 30, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), task -> {
+                    Thread thread = new Thread(task, "MCP-ASD-Dispatch-" + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    /**
+     * @param unclaimed receives responses without a pending request (e.g. enumeration
+     *                  or handshake replies) and requests from the server; called
+     *                  concurrently for the elements of a batch
+     * @throws IllegalArgumentException if the frame is not well-formed JSON
+     */
+    static void route(String data, SessionStore store, Consumer<JSONObject> unclaimed) {
+        byte[] bytes = data.getBytes(StandardCharsets.UTF_8);
+        int first = JsonRpcScanner.skipWhitespace(bytes, 0, bytes.length);
+        if (first < bytes.length && bytes[first] == '[') {
+            // Batch response (or empty keep-alive array): route every element
+            List<int[]> elements = JsonRpcScanner.splitArray(bytes);
+            Executor executor = elements.size() > 1 ? BATCH_DISPATCHER : DIRECT;
+            for (int[] span : elements) {
+                if (bytes[span[0]] == '{') {
+                    routeMessage(bytes, span[0], span[1], store, unclaimed, executor);
+                }
+            }
+            return;
+        }
+        routeMessage(bytes, 0, bytes.length, store, unclaimed, DIRECT);
+    }
+
+    private static void routeMessage(byte[] bytes, int from, int to, SessionStore store,
+                                     Consumer<JSONObject> unclaimed, Executor executor) {
+        int[][] members = JsonRpcScanner.findMembers(bytes, from, to, "id", "method");
+        int[] id = members[0];
+        if (members[1] != null) {
+            // Notifications (progress/logging for streaming requests) and server requests
+            dispatch(executor, () -> {
+                JSONObject json = new JSONObject(new String(bytes, from, to - from, StandardCharsets.UTF_8));
+                if (id == null) {
+                    store.dispatchNotification(json);
+                } else {
+                    unclaimed.accept(json);
+                }
+            });
+            return;
+        }
+        if (id == null || bytes[id[0]] == 'n') return; // No id (or null): nothing to correlate with
+
+        JsonRpcMessage message = new JsonRpcMessage(from == 0 && to == bytes.length ? bytes : Arrays.copyOfRange(bytes, from, to));
+        if (bytes[id[0]] != '"') {
+            try {
+                // Bridge ids are numeric; enumeration and handshake ids never are
+                long numericId = JsonRpcScanner.longValue(bytes, id);
+                dispatch(executor, () -> {
+                    if (!store.completeRequest(numericId, message)) {
+                        Log.debug(() -> "Engine: No pending request for ID: " + numericId);
+                    }
+                });
+                return;
+            } catch (NumberFormatException e) {
+                // Not a plain integer (e.g. 1.5); correlated by its literal like a string id
+            }
+        }
+        String stringId = JsonRpcScanner.idValue(bytes, id);
+        dispatch(executor, () -> {
+            if (!store.completeRequest(stringId, message)) {
+                unclaimed.accept(message.toJson());
+            }
+        });
+    }
+
+    private static void dispatch(Executor executor, Runnable task) {
+        if (executor == DIRECT) {
+            task.run(); // Failures propagate to the transport listener as before
+            return;
+        }
+        executor.execute(() -> {
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                Log.error("Engine: Failed to handle batch element: " + e.getMessage());
+            }
+        });
+    }
+}
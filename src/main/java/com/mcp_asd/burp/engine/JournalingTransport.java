@@ -0,0 +1,76 @@
+package com.mcp_asd.burp.engine;
+
+import com.mcp_asd.burp.journal.TrafficJournal;
+import com.mcp_asd.burp.ui.ConnectionConfiguration;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Wraps a transport so every frame it sends, and every message it delivers to its
+ * listener, is appended to the {@link TrafficJournal} under the session's name.
+ */
+class JournalingTransport implements McpTransport {
+    private final McpTransport delegate;
+    private final TrafficJournal journal;
+    private final String session;
+
+    JournalingTransport(McpTransport delegate, TrafficJournal journal, String session) {
+        this.delegate = delegate;
+        this.journal = journal;
+        this.session = session;
+    }
+
+    @Override
+    public void connect(ConnectionConfiguration config, TransportListener listener) {
+        delegate.connect(config, new TransportListener() {
+            @Override
+            public void onMessage(String message) {
+                if (journal.isEnabled() && message != null) {
+                    journal.append(TrafficJournal.Direction.INBOUND, session, message.getBytes(StandardCharsets.UTF_8));
+                }
+                listener.onMessage(message);
+            }
+
+            @Override
+            public void onOpen() {
+                listener.onOpen();
+            }
+
+            @Override
+            public void onClose() {
+                listener.onClose();
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                listener.onError(t);
+            }
+        });
+    }
+
+    @Override
+    public void send(String message) {
+        if (journal.isEnabled()) {
+            journal.append(TrafficJournal.Direction.OUTBOUND, session, message.getBytes(StandardCharsets.UTF_8));
+        }
+        delegate.send(message);
+    }
+
+    @Override
+    public void send(byte[] message) {
+        if (journal.isEnabled()) {
+            journal.append(TrafficJournal.Direction.OUTBOUND, session, message);
+        }
+        delegate.send(message);
+    }
+
+    @Override
+    public int getQueuedMessages() {
+        return delegate.getQueuedMessages();
+    }
+
+    @Override
+    public void close() {
+        delegate.close();
+    }
+}
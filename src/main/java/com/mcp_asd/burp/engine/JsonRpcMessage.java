@@ -0,0 +1,68 @@
+package com.mcp_asd.burp.engine;
+
+import org.json.JSONObject;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A JSON-RPC message as received from the server. Responses are routed to their
+ * waiting bridge request by id alone, so the raw bytes are kept and only parsed into
+ * a {@link JSONObject} if a consumer asks for it.
+ */
+public final class JsonRpcMessage {
+    private final byte[] bytes;
+    private volatile JSONObject json;
+
+    public JsonRpcMessage(byte[] bytes) {
+        this.bytes = bytes;
+    }
+
+    /** Wraps a message that was built rather than received (e.g. a synthesized error). */
+    public static JsonRpcMessage of(JSONObject json) {
+        JsonRpcMessage message = new JsonRpcMessage(json.toString().getBytes(StandardCharsets.UTF_8));
+        message.json = json;
+        return message;
+    }
+
+    /** The raw message; callers must not modify it. */
+    public byte[] getBytes() {
+        return bytes;
+    }
+
+    public String getText() {
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Whether the message carries a top-level {@code error} member, checked on the raw
+     * bytes.
+     */
+    public boolean isError() {
+        JSONObject parsed = json;
+        if (parsed != null) return parsed.has("error");
+        try {
+            return JsonRpcScanner.findMember(bytes, 0, bytes.length, "error") != null;
+        } catch (IllegalArgumentException e) {
+            return true;
+        }
+    }
+
+    /**
+     * The parsed message, built on first use.
+     *
+     * @throws org.json.JSONException if the message is not a JSON object
+     */
+    public JSONObject toJson() {
+        JSONObject parsed = json;
+        if (parsed == null) {
+            parsed = new JSONObject(getText());
+            json = parsed;
+        }
+        return parsed;
+    }
+
+    @Override
+    public String toString() {
+        return getText();
+    }
+}
@@ -0,0 +1,309 @@
+package com.mcp_asd.burp.engine;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Byte-level helpers for JSON-RPC frames that avoid building a JSON tree.
+ *
+ * The scanner only understands enough JSON to walk the members of a top-level
+ * object (strings with escapes, nested objects/arrays, bare literals). It checks
+ * that brackets and strings are balanced, but does not validate numbers or
+ * literals; the MCP server does that.
+ */
+public final class JsonRpcScanner {
+
+    private JsonRpcScanner() {}
+
+    /**
+     * Locates the value of a top-level member of the JSON object in {@code json[from, to)}.
+     *
+     * @return {@code {valueStart, valueEnd}}, or {@code null} if the member is absent
+     * @throws IllegalArgumentException if the range does not hold a well-formed object
+     */
+    public static int[] findMember(byte[] json, int from, int to, String name) {
+        return findMembers(json, from, to, name)[0];
+    }
+
+    /**
+     * Locates several top-level members in one pass over the object.
+     *
+     * @return one {@code {valueStart, valueEnd}} span (or {@code null}) per name, in order
+     * @throws IllegalArgumentException if the range does not hold a well-formed object, or
+     *         one of the names occurs more than once (parsers disagree on which one wins)
+     */
+    public static int[][] findMembers(byte[] json, int from, int to, String... names) {
+        int[][] result = new int[names.length][];
+        int i = skipWhitespace(json, from, to);
+        if (i >= to || json[i] != '{') {
+            throw new IllegalArgumentException("Expected a JSON object");
+        }
+        i = skipWhitespace(json, i + 1, to);
+        if (i < to && json[i] == '}') {
+            ensureTrailingWhitespace(json, i + 1, to);
+            return result;
+        }
+
+        while (true) {
+            if (i >= to || json[i] != '"') {
+                throw new IllegalArgumentException("Expected a member name at offset " + i);
+            }
+            int keyStart = i;
+            int keyEnd = skipString(json, i, to);
+            i = skipWhitespace(json, keyEnd, to);
+            if (i >= to || json[i] != ':') {
+                throw new IllegalArgumentException("Expected ':' at offset " + i);
+            }
+            int valueStart = skipWhitespace(json, i + 1, to);
+            int valueEnd = skipValue(json, valueStart, to);
+            for (int n = 0; n < names.length; n++) {
+                if (keyEquals(json, keyStart, keyEnd, names[n])) {
+                    if (result[n] != null) {
+                        throw new IllegalArgumentException("Duplicate member '" + names[n] + "' at offset " + keyStart);
+                    }
+                    result[n] = new int[]{valueStart, valueEnd};
+                    break;
+                }
+            }
+
+            i = skipWhitespace(json, valueEnd, to);
+            if (i < to && json[i] == ',') {
+                i = skipWhitespace(json, i + 1, to);
+            } else if (i < to && json[i] == '}') {
+                ensureTrailingWhitespace(json, i + 1, to);
+                return result;
+            } else {
+                throw new IllegalArgumentException("Expected ',' or '}' at offset " + i);
+            }
+        }
+    }
+
+    /**
+     * Returns the decoded value of a top-level string member, or {@code null} if the
+     * member is absent or not a string.
+     */
+    public static String stringMember(byte[] json, int from, int to, String name) {
+        int[] span = findMember(json, from, to, name);
+        if (span == null || json[span[0]] != '"') return null;
+        return decodeString(json, span);
+    }
+
+    /**
+     * Returns a JSON-RPC id value the way correlation keys it: the decoded string for
+     * string ids, the literal text otherwise (e.g. {@code 42}), or {@code null} for a
+     * JSON null.
+     */
+    public static String idValue(byte[] json, int[] span) {
+        if (json[span[0]] == '"') return decodeString(json, span);
+        String literal = new String(json, span[0], span[1] - span[0], StandardCharsets.UTF_8);
+        return "null".equals(literal) ? null : literal;
+    }
+
+    /**
+     * Parses an integer literal without going through a String.
+     *
+     * @throws NumberFormatException if the value is not an integer that fits in a long
+     */
+    public static long longValue(byte[] json, int[] span) {
+        int i = span[0];
+        boolean negative = i < span[1] && json[i] == '-';
+        if (negative) i++;
+        if (i >= span[1]) throw new NumberFormatException("Not an integer");
+        long value = 0;
+        for (; i < span[1]; i++) {
+            int digit = json[i] - '0';
+            if (digit < 0 || digit > 9 || value > (Long.MAX_VALUE - digit) / 10) {
+                throw new NumberFormatException("Not an integer that fits in a long");
+            }
+            value = value * 10 + digit;
+        }
+        return negative ? -value : value;
+    }
+
+    private static String decodeString(byte[] json, int[] span) {
+        String raw = new String(json, span[0] + 1, span[1] - span[0] - 2, StandardCharsets.UTF_8);
+        return raw.indexOf('\\') < 0 ? raw : unescape(raw);
+    }
+
+    /**
+     * Splits a top-level JSON array (e.g. a JSON-RPC batch) into the byte spans of its
+     * elements without parsing them.
+     *
+     * @return one {@code {start, end}} pair per element, in order
+     * @throws IllegalArgumentException if {@code json} is not a well-formed array
+     */
+    public static List<int[]> splitArray(byte[] json) {
+        int to = json.length;
+        List<int[]> elements = new ArrayList<>();
+        int i = skipWhitespace(json, 0, to);
+        if (i >= to || json[i] != '[') {
+            throw new IllegalArgumentException("Expected a JSON array");
+        }
+        i = skipWhitespace(json, i + 1, to);
+        if (i < to && json[i] == ']') {
+            ensureTrailingWhitespace(json, i + 1, to);
+            return elements;
+        }
+
+        while (true) {
+            int end = skipValue(json, i, to);
+            elements.add(new int[]{i, end});
+            i = skipWhitespace(json, end, to);
+            if (i < to && json[i] == ',') {
+                i = skipWhitespace(json, i + 1, to);
+            } else if (i < to && json[i] == ']') {
+                ensureTrailingWhitespace(json, i + 1, to);
+                return elements;
+            } else {
+                throw new IllegalArgumentException("Expected ',' or ']' at offset " + i);
+            }
+        }
+    }
+
+    /**
+     * Returns a copy of the object in {@code json} whose top-level {@code id} is replaced
+     * by {@code idLiteral} (already-encoded JSON, e.g. {@code "\"abc\""}). If the object has
+     * no id (a notification), one is inserted after the opening brace. All other bytes are
+     * copied through untouched.
+     */
+    public static byte[] spliceId(byte[] json, String idLiteral) {
+        return spliceId(json, 0, json.length, idLiteral);
+    }
+
+    public static byte[] spliceId(byte[] json, int from, int to, String idLiteral) {
+        byte[] id = idLiteral.getBytes(StandardCharsets.UTF_8);
+        int[] span = findMember(json, from, to, "id");
+        if (span != null) {
+            byte[] out = new byte[(span[0] - from) + id.length + (to - span[1])];
+            System.arraycopy(json, from, out, 0, span[0] - from);
+            System.arraycopy(id, 0, out, span[0] - from, id.length);
+            System.arraycopy(json, span[1], out, span[0] - from + id.length, to - span[1]);
+            return out;
+        }
+
+        int brace = skipWhitespace(json, from, to);
+        boolean empty = json[skipWhitespace(json, brace + 1, to)] == '}';
+        byte[] member = ("\"id\":" + idLiteral + (empty ? "" : ",")).getBytes(StandardCharsets.UTF_8);
+        byte[] out = new byte[(to - from) + member.length];
+        System.arraycopy(json, from, out, 0, brace + 1 - from);
+        System.arraycopy(member, 0, out, brace + 1 - from, member.length);
+        System.arraycopy(json, brace + 1, out, brace + 1 - from + member.length, to - brace - 1);
+        return out;
+    }
+
+    /**
+     * Returns the offset just past the JSON value starting at {@code i}.
+     */
+    public static int skipValue(byte[] json, int i, int to) {
+        if (i >= to) throw new IllegalArgumentException("Unexpected end of input");
+        byte b = json[i];
+        if (b == '"') return skipString(json, i, to);
+        if (b == '{' || b == '[') return skipContainer(json, i, to);
+        int start = i;
+        while (i < to) {
+            b = json[i];
+            if (b == ',' || b == '}' || b == ']' || b == ' ' || b == '\t' || b == '\r' || b == '\n') break;
+            i++;
+        }
+        if (i == start) throw new IllegalArgumentException("Expected a value at offset " + start);
+        return i;
+    }
+
+    public static int skipWhitespace(byte[] json, int i, int to) {
+        while (i < to && (json[i] == ' ' || json[i] == '\t' || json[i] == '\r' || json[i] == '\n')) i++;
+        return i;
+    }
+
+    private static int skipString(byte[] json, int i, int to) {
+        i++; // opening quote
+        while (i < to) {
+            byte b = json[i];
+            if (b == '\\') {
+                i += 2;
+            } else if (b == '"') {
+                return i + 1;
+            } else {
+                i++;
+            }
+        }
+        throw new IllegalArgumentException("Unterminated string");
+    }
+
+    private static int skipContainer(byte[] json, int i, int to) {
+        int depth = 0;
+        while (i < to) {
+            byte b = json[i];
+            if (b == '"') {
+                i = skipString(json, i, to);
+                continue;
+            }
+            if (b == '{' || b == '[') {
+                depth++;
+            } else if (b == '}' || b == ']') {
+                depth--;
+                if (depth == 0) return i + 1;
+            }
+            i++;
+        }
+        throw new IllegalArgumentException("Unbalanced brackets");
+    }
+
+    private static void ensureTrailingWhitespace(byte[] json, int i, int to) {
+        if (skipWhitespace(json, i, to) != to) {
+            throw new IllegalArgumentException("Unexpected data after JSON object");
+        }
+    }
+
+    /**
+     * Compares a quoted member name against an ASCII name. Names containing escapes are
+     * decoded first so that e.g. {@code "id"} still matches {@code id}.
+     */
+    private static boolean keyEquals(byte[] json, int keyStart, int keyEnd, String name) {
+        int length = keyEnd - keyStart - 2;
+        boolean escaped = false;
+        for (int i = keyStart + 1; i < keyEnd - 1; i++) {
+            if (json[i] == '\\') {
+                escaped = true;
+                break;
+            }
+        }
+        if (!escaped) {
+            if (length != name.length()) return false;
+            for (int i = 0; i < length; i++) {
+                if (json[keyStart + 1 + i] != name.charAt(i)) return false;
+            }
+            return true;
+        }
+        return name.equals(unescape(new String(json, keyStart + 1, length, StandardCharsets.UTF_8)));
+    }
+
+    private static String unescape(String s) {
+        StringBuilder sb = new StringBuilder(s.length());
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c != '\\' || i + 1 >= s.length()) {
+                sb.append(c);
+                continue;
+            }
+            char next = s.charAt(++i);
+            switch (next) {
+                case 'u':
+                    if (i + 4 >= s.length()) {
+                        throw new IllegalArgumentException("Truncated \\u escape");
+                    }
+                    // NumberFormatException (an IllegalArgumentException) for non-hex digits
+                    sb.append((char) Integer.parseInt(s.substring(i + 1, i + 5), 16));
+                    i += 4;
+                    break;
+                case 'n': sb.append('\n'); break;
+                case 't': sb.append('\t'); break;
+                case 'r': sb.append('\r'); break;
+                case 'b': sb.append('\b'); break;
+                case 'f': sb.append('\f'); break;
+                default: sb.append(next);
+            }
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,122 @@
+package com.mcp_asd.burp.engine;
+
+import org.json.JSONObject;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * One MCP connection that bridge traffic can be sent over. Every session has its
+ * own {@link SessionStore}, so responses are only correlated with requests sent on
+ * the same connection.
+ */
+public class McpSession {
+    /**
+     * Fails requests whose session lost its transport before they were answered.
+     */
+    public static class ClosedException extends RuntimeException {
+        public ClosedException(String message) {
+            super(message);
+        }
+    }
+
+    private final String name;
+    private final SessionStore sessionStore;
+    private final AtomicInteger outstanding = new AtomicInteger();
+    private final AtomicLong requestIds = new AtomicLong();
+    private volatile McpTransport transport; // null until the session can carry traffic
+
+    public McpSession(String name, SessionStore sessionStore) {
+        this.name = name;
+        this.sessionStore = sessionStore;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public SessionStore getSessionStore() {
+        return sessionStore;
+    }
+
+    /**
+     * Next numeric JSON-RPC id for bridge traffic on this session (starts at 1, never
+     * reused while the session lives).
+     */
+    public long nextRequestId() {
+        return requestIds.incrementAndGet();
+    }
+
+    public boolean isReady() {
+        return transport != null;
+    }
+
+    void setTransport(McpTransport transport) {
+        this.transport = transport;
+    }
+
+    /**
+     * Takes the session out of service: it stops being routable and every request still
+     * waiting on it fails with a {@link ClosedException} instead of running into its
+     * deadline.
+     *
+     * @return how many pending requests were failed
+     */
+    int fail(String reason) {
+        // Unroutable first, so nothing registered after the sweep can be sent
+        setTransport(null);
+        return sessionStore.failAll(new ClosedException("Session " + name + " closed: " + reason));
+    }
+
+    /**
+     * @return {@code false} if the session has no transport and the message was dropped
+     */
+    public boolean send(String message) {
+        McpTransport current = transport;
+        if (current == null) return false;
+        current.send(message);
+        return true;
+    }
+
+    /**
+     * @return {@code false} if the session has no transport and the message was dropped
+     */
+    public boolean send(byte[] message) {
+        McpTransport current = transport;
+        if (current == null) return false;
+        current.send(message);
+        return true;
+    }
+
+    /**
+     * Tells the server to stop working on a request whose caller has given up on it.
+     */
+    public void cancelRequest(Object id, String reason) {
+        JSONObject cancelled = new JSONObject();
+        cancelled.put("jsonrpc", "2.0");
+        cancelled.put("method", "notifications/cancelled");
+        cancelled.put("params", new JSONObject().put("requestId", id).put("reason", reason));
+        send(cancelled.toString());
+    }
+
+    /**
+     * Counts {@code future} as outstanding on this session until it completes; used for
+     * least-outstanding balancing across the session pool.
+     */
+    public <T> CompletableFuture<T> track(CompletableFuture<T> future) {
+        outstanding.incrementAndGet();
+        future.whenComplete((value, error) -> outstanding.decrementAndGet());
+        return future;
+    }
+
+    public int getOutstanding() {
+        return outstanding.get();
+    }
+
+    /** Messages queued in the transport but not yet sent. */
+    public int getQueuedMessages() {
+        McpTransport current = transport;
+        return current != null ? current.getQueuedMessages() : 0;
+    }
+}
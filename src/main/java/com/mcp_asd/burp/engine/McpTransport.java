@@ -2,8 +2,26 @@ package com.mcp_asd.burp.engine;
 
 import com.mcp_asd.burp.ui.ConnectionConfiguration;
 
+import java.nio.charset.StandardCharsets;
+
 public interface McpTransport {
     void connect(ConnectionConfiguration config, TransportListener listener);
     void send(String message);
     void close();
+
+    /**
+     * Sends an already UTF-8 encoded JSON-RPC message. Transports that can put raw
+     * bytes on the wire override this to skip the String round trip.
+     */
+    default void send(byte[] message) {
+        send(new String(message, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Messages accepted by {@link #send} but not yet on the wire, for transports that
+     * queue outbound messages.
+     */
+    default int getQueuedMessages() {
+        return 0;
+    }
 }
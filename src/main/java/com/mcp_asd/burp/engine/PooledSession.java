@@ -0,0 +1,99 @@
+package com.mcp_asd.burp.engine;
+
+import burp.api.montoya.MontoyaApi;
+import com.mcp_asd.burp.Log;
+import com.mcp_asd.burp.ui.ConnectionConfiguration;
+import org.json.JSONObject;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * An additional session opened next to the primary connection. It performs its own
+ * initialize handshake and only becomes routable once the server has accepted it.
+ * Enumeration always stays on the primary session.
+ */
+class PooledSession extends McpSession implements TransportListener {
+    private final MontoyaApi api;
+    private final McpTransport connection;
+    private final JSONObject initializeParams;
+    private final CompletableFuture<Void> handshake = new CompletableFuture<>();
+    private volatile String initializeRequestId;
+
+    PooledSession(MontoyaApi api, String name, McpTransport connection, JSONObject initializeParams) {
+        super(name, new SessionStore());
+        this.api = api;
+        this.connection = connection;
+        this.initializeParams = initializeParams;
+    }
+
+    /**
+     * Connects and starts the handshake.
+     *
+     * @return a future that completes once the session is ready for traffic
+     */
+    CompletableFuture<Void> open(ConnectionConfiguration config) {
+        connection.connect(config, this);
+        return handshake;
+    }
+
+    void close() {
+        fail("pool closed");
+        connection.close();
+    }
+
+    @Override
+    public void onOpen() {
+        initializeRequestId = java.util.UUID.randomUUID().toString();
+        JSONObject initRequest = new JSONObject();
+        initRequest.put("jsonrpc", "2.0");
+        initRequest.put("method", "initialize");
+        initRequest.put("params", initializeParams);
+        initRequest.put("id", initializeRequestId);
+        connection.send(initRequest.toString());
+    }
+
+    @Override
+    public void onMessage(String data) {
+        if (data == null || data.trim().isEmpty()) return;
+        try {
+            InboundRouter.route(data, getSessionStore(), this::handleMessage);
+        } catch (Exception e) {
+            Log.error("SessionPool: " + getName() + " failed to parse message: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Handles a parsed message no bridge request was waiting for; only the handshake
+     * response matters here.
+     */
+    private void handleMessage(JSONObject json) {
+        if (json.has("method") || json.isNull("id")) return; // Requests from the server
+        String id = json.get("id").toString();
+        if (!id.equals(initializeRequestId)) return;
+
+        if (json.has("error")) {
+            handshake.completeExceptionally(new IllegalStateException("initialize failed: " + json.get("error")));
+            return;
+        }
+        JSONObject initializedNotify = new JSONObject();
+        initializedNotify.put("jsonrpc", "2.0");
+        initializedNotify.put("method", "notifications/initialized");
+        connection.send(initializedNotify.toString());
+        setTransport(connection);
+        handshake.complete(null);
+    }
+
+    @Override
+    public void onClose() {
+        int failed = fail("connection closed");
+        Log.info("SessionPool: " + getName() + " closed" + (failed > 0 ? "; failed " + failed + " pending request(s)." : "."));
+    }
+
+    @Override
+    public void onError(Throwable t) {
+        int failed = fail(t != null && t.getMessage() != null ? t.getMessage() : "transport failure");
+        if (failed > 0) Log.info("SessionPool: " + getName() + " failed " + failed + " pending request(s).");
+        handshake.completeExceptionally(t != null ? t : new IllegalStateException("Transport failure"));
+        Log.error("SessionPool: " + getName() + " failed: " + (t != null ? t.getMessage() : "Unknown error"));
+    }
+}
@@ -2,20 +2,19 @@ package com.mcp_asd.burp.engine;
 
 import burp.api.montoya.MontoyaApi;
 import com.mcp_asd.burp.GlobalSettings;
+import com.mcp_asd.burp.HttpClients;
+import com.mcp_asd.burp.Log;
 import com.mcp_asd.burp.ui.ConnectionConfiguration;
 import okhttp3.MediaType;
 import okhttp3.OkHttpClient;
 import okhttp3.Request;
 import okhttp3.RequestBody;
 import okhttp3.Response;
+import org.json.JSONObject;
 
-import javax.net.ssl.*;
-import java.io.FileInputStream;
-import java.net.InetSocketAddress;
-import java.net.Proxy;
-import java.security.KeyStore;
-import java.security.SecureRandom;
-import java.security.cert.CertificateException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
@@ -24,6 +23,10 @@ import java.util.concurrent.TimeUnit;
  * MCP transport that uses only HTTP POST (no GET). For servers that do not
  * support GET (e.g. no SSE stream). Each JSON-RPC message is sent as a POST;
  * the response is read from the HTTP response body.
+ *
+ * Every POST stands alone, so a failed one (an error status for a fuzzed body, a
+ * dropped connection) is answered with a JSON-RPC error for each request it carried
+ * rather than reported as a failure of the whole transport.
  */
 public class PostOnlyTransport implements McpTransport {
     private final MontoyaApi api;
@@ -43,54 +46,21 @@ public class PostOnlyTransport implements McpTransport {
         this.config = config;
         this.listener = listener;
 
-        OkHttpClient.Builder builder = new OkHttpClient.Builder()
-                .connectTimeout(10, TimeUnit.SECONDS)
+        client = HttpClients.forTarget(config, false).newBuilder()
                 .readTimeout(60, TimeUnit.SECONDS)
-                .writeTimeout(30, TimeUnit.SECONDS);
-
-        try {
-            final TrustManager[] trustAllCerts = new TrustManager[]{
-                    new X509TrustManager() {
-                        @Override
-                        public void checkClientTrusted(java.security.cert.X509Certificate[] chain, String authType) throws CertificateException {}
-
-                        @Override
-                        public void checkServerTrusted(java.security.cert.X509Certificate[] chain, String authType) throws CertificateException {}
-
-                        @Override
-                        public java.security.cert.X509Certificate[] getAcceptedIssuers() {
-                            return new java.security.cert.X509Certificate[]{};
-                        }
-                    }
-            };
-            final SSLContext sslContext = SSLContext.getInstance("SSL");
-            sslContext.init(null, trustAllCerts, new SecureRandom());
-            builder.sslSocketFactory(sslContext.getSocketFactory(), (X509TrustManager) trustAllCerts[0]);
-            builder.hostnameVerifier((hostname, session) -> true);
-        } catch (Exception e) {
-            api.logging().logToError("PostOnlyTransport: Failed to create SSL context: " + e.getMessage());
-        }
-
-        if (config.isUseMtls()) {
-            configureMtls(builder, config);
-        }
-
-        if (settings != null && settings.isProxyTrafficEnabled()) {
-            String host = settings.getProxyHost();
-            int port = settings.getProxyPort();
-            if (host != null && !host.isEmpty() && port > 0) {
-                api.logging().logToOutput("PostOnlyTransport: Using proxy " + host + ":" + port);
-                builder.proxy(new Proxy(Proxy.Type.HTTP, new InetSocketAddress(host, port)));
-            }
-        }
-
-        client = builder.build();
-        api.logging().logToOutput("PostOnlyTransport: Connected (POST-only, no GET).");
+                .writeTimeout(30, TimeUnit.SECONDS)
+                .build();
+        Log.info("PostOnlyTransport: Connected (POST-only, no GET).");
         listener.onOpen();
     }
 
     @Override
     public void send(String message) {
+        send(message.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public void send(byte[] message) {
         if (client == null || config == null) return;
 
         executor.submit(() -> {
@@ -100,7 +70,7 @@ public class PostOnlyTransport implements McpTransport {
                     url = url.replace("http://", "https://");
                 }
 
-                api.logging().logToOutput("PostOnlyTransport: POST to " + url + ": " + message);
+                if (Log.isEnabled(Log.Level.DEBUG)) Log.debug("PostOnlyTransport: POST to " + url + ": " + Log.payload(new String(message, StandardCharsets.UTF_8)));
 
                 Request.Builder requestBuilder = new Request.Builder()
                         .url(url)
@@ -114,8 +84,8 @@ public class PostOnlyTransport implements McpTransport {
                 try (Response response = client.newCall(requestBuilder.build()).execute()) {
                     if (!response.isSuccessful()) {
                         String body = response.body() != null ? response.body().string() : "";
-                        api.logging().logToError("PostOnlyTransport: HTTP " + response.code() + " " + response.message() + " body: " + body);
-                        listener.onError(new RuntimeException("HTTP " + response.code() + " " + response.message() + (body.isEmpty() ? "" : " " + body)));
+                        Log.error("PostOnlyTransport: HTTP " + response.code() + " " + response.message() + " body: " + Log.payload(body));
+                        failRequests(message, "HTTP " + response.code() + " " + response.message() + (body.isEmpty() ? "" : " " + body));
                         return;
                     }
                     String responseBody = response.body() != null ? response.body().string() : "";
@@ -124,45 +94,48 @@ public class PostOnlyTransport implements McpTransport {
                     }
                 }
             } catch (Exception e) {
-                api.logging().logToError("PostOnlyTransport: Send failed: " + e.getMessage());
-                listener.onError(e);
+                Log.error("PostOnlyTransport: Send failed: " + e.getMessage());
+                failRequests(message, "Request failed: " + e.getMessage());
             }
         });
     }
 
-    @Override
-    public void close() {
-        executor.shutdownNow();
-        if (client != null) {
-            client.dispatcher().executorService().shutdown();
-        }
-        if (listener != null) {
-            listener.onClose();
+    /**
+     * Answers each request in {@code message} with a JSON-RPC error, so whoever waits
+     * for it fails now instead of at its deadline.
+     */
+    private void failRequests(byte[] message, String reason) {
+        for (String id : requestIds(message)) {
+            listener.onMessage("{\"jsonrpc\":\"2.0\",\"id\":" + id
+                    + ",\"error\":{\"code\":-32000,\"message\":" + JSONObject.quote(reason) + "}}");
         }
     }
 
-    private void configureMtls(OkHttpClient.Builder builder, ConnectionConfiguration config) {
+    // The id literals of the requests (not notifications or replies) in a message or batch
+    private static List<String> requestIds(byte[] message) {
+        List<String> ids = new ArrayList<>();
         try {
-            KeyStore keyStore = KeyStore.getInstance("PKCS12");
-            try (FileInputStream fis = new FileInputStream(config.getClientCertPath())) {
-                keyStore.load(fis, config.getClientCertPassword().toCharArray());
-            }
-            KeyManagerFactory kmf = KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
-            kmf.init(keyStore, config.getClientCertPassword().toCharArray());
-
-            // Reuse trust-all manager so self-signed certs still work with mTLS
-            final TrustManager[] trustAllCerts = new TrustManager[]{
-                new X509TrustManager() {
-                    @Override public void checkClientTrusted(java.security.cert.X509Certificate[] chain, String authType) throws CertificateException {}
-                    @Override public void checkServerTrusted(java.security.cert.X509Certificate[] chain, String authType) throws CertificateException {}
-                    @Override public java.security.cert.X509Certificate[] getAcceptedIssuers() { return new java.security.cert.X509Certificate[]{}; }
+            int first = JsonRpcScanner.skipWhitespace(message, 0, message.length);
+            List<int[]> elements = first < message.length && message[first] == '['
+                    ? JsonRpcScanner.splitArray(message)
+                    : List.of(new int[]{0, message.length});
+            for (int[] element : elements) {
+                int[][] members = JsonRpcScanner.findMembers(message, element[0], element[1], "id", "method");
+                if (members[0] != null && members[1] != null) {
+                    ids.add(new String(message, members[0][0], members[0][1] - members[0][0], StandardCharsets.UTF_8));
                 }
-            };
-            SSLContext sslContext = SSLContext.getInstance("TLS");
-            sslContext.init(kmf.getKeyManagers(), trustAllCerts, new SecureRandom());
-            builder.sslSocketFactory(sslContext.getSocketFactory(), (X509TrustManager) trustAllCerts[0]);
-        } catch (Exception e) {
-            api.logging().logToError("PostOnlyTransport: Failed to configure mTLS: " + e.getMessage());
+            }
+        } catch (IllegalArgumentException e) {
+            // No ids to fail later; the server answers (or rejects) it
+        }
+        return ids;
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+        if (listener != null) {
+            listener.onClose();
         }
     }
 }
@@ -0,0 +1,161 @@
+package com.mcp_asd.burp.engine;
+
+import com.mcp_asd.burp.Log;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Outbound queue for a transport that sends every message as its own HTTP request.
+ * Messages are held until the pipeline is opened (for SSE, when the {@code endpoint}
+ * event names the POST URL) and then sent by at most {@code concurrency} workers.
+ *
+ * Only the handshake is ordered: {@code initialize} and
+ * {@code notifications/initialized} wait until every earlier message has been sent and
+ * hold back later ones until they have been sent themselves. Everything else (requests,
+ * cancellations, progress and other notifications, replies to the server) is
+ * independent and may overtake other messages, so a slow call never delays a
+ * cancellation of it.
+ */
+final class SendPipeline {
+    // Shared by all pipelines; each one stays within its own concurrency, and all of
+    // them together within the per-host limit of the shared HTTP dispatcher
+    private static final int MAX_WORKERS = 64;
+    private static final ExecutorService WORKERS = createWorkers();
+
+    /** Sends one message; returns once the HTTP exchange is done. */
+    interface Sender {
+        void send(byte[] message) throws Exception;
+    }
+
+    private static final class Item {
+        private final byte[] message;
+        private final boolean ordered;
+
+        Item(byte[] message, boolean ordered) {
+            this.message = message;
+            this.ordered = ordered;
+        }
+    }
+
+    private final String owner;
+    private final Sender sender;
+    private final int concurrency;
+    private final ArrayDeque<Item> queue = new ArrayDeque<>();
+    private int running;
+    private boolean orderedRunning;
+    private boolean open;
+    private boolean closed;
+
+    /**
+     * @param owner prefix for log messages
+     */
+    SendPipeline(String owner, Sender sender, int concurrency) {
+        this.owner = owner;
+        this.sender = sender;
+        this.concurrency = Math.max(1, concurrency);
+    }
+
+    private static ExecutorService createWorkers() {
+        AtomicInteger count = new AtomicInteger();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(MAX_WORKERS, MAX_WORKERS, 30, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), task -> {
+                    Thread thread = new Thread(task, "MCP-ASD-Send-" + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    void submit(byte[] message) {
+        synchronized (this) {
+            if (closed) return;
+            queue.add(new Item(message, isOrdered(message)));
+        }
+        drain();
+    }
+
+    /** Starts sending; messages submitted before this were buffered. */
+    void open() {
+        synchronized (this) {
+            if (open) return;
+            open = true;
+        }
+        drain();
+    }
+
+    synchronized boolean isOpen() {
+        return open;
+    }
+
+    /** Drops the messages not yet sent; those being sent finish. */
+    void close() {
+        int dropped;
+        synchronized (this) {
+            closed = true;
+            dropped = queue.size();
+            queue.clear();
+        }
+        if (dropped > 0) {
+            Log.info(owner + ": Dropped " + dropped + " unsent message(s) on close.");
+        }
+    }
+
+    /** Messages waiting to be sent (not counting those being sent). */
+    synchronized int depth() {
+        return queue.size();
+    }
+
+    private void drain() {
+        List<Item> started = new ArrayList<>();
+        synchronized (this) {
+            while (open && !closed && !orderedRunning && running < concurrency && !queue.isEmpty()) {
+                Item next = queue.peek();
+                if (next.ordered && running > 0) break; // Waits for everything before it
+                queue.poll();
+                running++;
+                started.add(next);
+                if (next.ordered) {
+                    orderedRunning = true;
+                    break;
+                }
+            }
+        }
+        for (Item item : started) {
+            WORKERS.execute(() -> run(item));
+        }
+    }
+
+    private void run(Item item) {
+        try {
+            sender.send(item.message);
+        } catch (Exception e) {
+            Log.error(owner + ": Send failed: " + e.getMessage());
+        } finally {
+            synchronized (this) {
+                running--;
+                if (item.ordered) orderedRunning = false;
+            }
+            drain();
+        }
+    }
+
+    // The server must see initialize, then notifications/initialized, before anything else
+    private static boolean isOrdered(byte[] message) {
+        try {
+            int first = JsonRpcScanner.skipWhitespace(message, 0, message.length);
+            if (first < message.length && message[first] == '[') return false; // Batch of requests
+            String method = JsonRpcScanner.stringMember(message, 0, message.length, "method");
+            return "initialize".equals(method) || "notifications/initialized".equals(method);
+        } catch (IllegalArgumentException e) {
+            return false; // Malformed (e.g. a fuzzed body); let the server reject it
+        }
+    }
+}
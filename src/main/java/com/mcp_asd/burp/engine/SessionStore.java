@@ -1,25 +1,269 @@
 package com.mcp_asd.burp.engine;
 
 import org.json.JSONObject;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
 
+/**
+ * Correlates JSON-RPC responses with the futures waiting for them. Bridge traffic uses
+ * numeric ids from {@link McpSession#nextRequestId()}, kept in a primitive-keyed map;
+ * string ids (enumeration, handshakes) have their own map. Every registration
+ * has a deadline on the shared {@link TimerWheel}: a request that is never answered is
+ * removed and its future completed with a {@link TimeoutException}, so orphaned
+ * entries can't accumulate over a long run against a flaky server.
+ *
+ * The wheel's ticker only takes the expired entry out of the map; the future is
+ * failed on a separate executor, so the stages that depend on it never run on the
+ * ticker and hold up other deadlines. Requests failed because their connection went
+ * away are completed there too.
+ */
 public class SessionStore {
-    // Maps JSON-RPC IDs to CompletableFutures that will hold the response JSON
-    private final ConcurrentHashMap<String, CompletableFuture<JSONObject>> pendingRequests = new ConcurrentHashMap<>();
+    // Backstop for registrations without an explicit deadline (enumeration, handshakes)
+    public static final long DEFAULT_TIMEOUT_MILLIS = TimeUnit.MINUTES.toMillis(5);
+    private static final Executor SHARED_COMPLETER = createCompleter();
 
-    public void registerRequest(String id, CompletableFuture<JSONObject> future) {
-        pendingRequests.put(id, future);
+    private static final class Pending {
+        private final CompletableFuture<JsonRpcMessage> future;
+        private final long registeredNanos = System.nanoTime();
+        private volatile TimerWheel.Timeout timeout;
+
+        Pending(CompletableFuture<JsonRpcMessage> future) {
+            this.future = future;
+        }
+    }
+
+    // Maps JSON-RPC IDs to the futures that will hold the raw response
+    private final ConcurrentHashMap<String, Pending> pendingRequests = new ConcurrentHashMap<>();
+    private final ConcurrentLongMap<Pending> pendingNumericRequests = new ConcurrentLongMap<>();
+    // Maps progress tokens of streaming bridge requests to the stream that relays their notifications
+    private final ConcurrentHashMap<String, Consumer<JSONObject>> progressListeners = new ConcurrentHashMap<>();
+    private final TimerWheel timerWheel;
+    private final Executor completer;
+    private final LongAdder expired = new LongAdder();
+
+    public SessionStore() {
+        this(TimerWheel.shared(), SHARED_COMPLETER);
+    }
+
+    SessionStore(TimerWheel timerWheel) {
+        this(timerWheel, SHARED_COMPLETER);
+    }
+
+    SessionStore(TimerWheel timerWheel, Executor completer) {
+        this.timerWheel = timerWheel;
+        this.completer = completer;
+    }
+
+    private static Executor createCompleter() {
+        AtomicInteger count = new AtomicInteger();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(2, 2, 30, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), task -> {
+                    Thread thread = new Thread(task, "MCP-ASD-Expiry-" + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    public void registerRequest(String id, CompletableFuture<JsonRpcMessage> future) {
+        registerRequest(id, future, DEFAULT_TIMEOUT_MILLIS);
+    }
+
+    /**
+     * Registers {@code future} for the response to {@code id}. If no response arrives
+     * within {@code timeoutMillis}, the entry is dropped and the future completes
+     * exceptionally with a {@link TimeoutException}.
+     */
+    public void registerRequest(String id, CompletableFuture<JsonRpcMessage> future, long timeoutMillis) {
+        Pending pending = new Pending(future);
+        Pending replaced = pendingRequests.put(id, pending);
+        if (replaced != null && replaced.timeout != null) {
+            replaced.timeout.cancel();
+        }
+        pending.timeout = timerWheel.schedule(timeoutMillis, () -> {
+            // Only if still pending: a response may have won the race
+            if (pendingRequests.remove(id, pending)) expire(pending, timeoutMillis);
+        });
+        if (pendingRequests.get(id) != pending) {
+            pending.timeout.cancel(); // Answered or removed while the timeout was being scheduled
+        }
+    }
+
+    /**
+     * Numeric-id variant of {@link #registerRequest(String, CompletableFuture, long)}.
+     *
+     * @param id a non-zero id, normally from {@link McpSession#nextRequestId()}
+     */
+    public void registerRequest(long id, CompletableFuture<JsonRpcMessage> future, long timeoutMillis) {
+        Pending pending = new Pending(future);
+        Pending replaced = pendingNumericRequests.put(id, pending);
+        if (replaced != null) {
+            cancelTimeout(replaced);
+        }
+        pending.timeout = timerWheel.schedule(timeoutMillis, () -> {
+            if (pendingNumericRequests.remove(id, pending)) expire(pending, timeoutMillis);
+        });
+        if (pendingNumericRequests.get(id) != pending) {
+            pending.timeout.cancel();
+        }
+    }
+
+    // Runs on the ticker once the entry has been removed
+    private void expire(Pending pending, long timeoutMillis) {
+        expired.increment();
+        completer.execute(() -> pending.future.completeExceptionally(new TimeoutException("No response within " + timeoutMillis + " ms")));
+    }
+
+    /**
+     * Drops a request nobody is waiting for any more, so a late response is ignored
+     * instead of completing a stale future.
+     *
+     * @return true if the request was still pending
+     */
+    public boolean removeRequest(String id) {
+        Pending pending = pendingRequests.remove(id);
+        if (pending == null) return false;
+        cancelTimeout(pending);
+        return true;
+    }
+
+    public boolean removeRequest(long id) {
+        Pending pending = pendingNumericRequests.remove(id);
+        if (pending == null) return false;
+        cancelTimeout(pending);
+        return true;
+    }
+
+    /**
+     * @return true if a request was waiting for this response
+     */
+    public boolean completeRequest(String id, JsonRpcMessage response) {
+        return complete(pendingRequests.remove(id), response);
+    }
+
+    public boolean completeRequest(long id, JsonRpcMessage response) {
+        return complete(pendingNumericRequests.remove(id), response);
+    }
+
+    /**
+     * Fails a request that can no longer be answered (e.g. it was never sent).
+     *
+     * @return true if the request was still pending
+     */
+    public boolean failRequest(long id, Throwable cause) {
+        Pending pending = pendingNumericRequests.remove(id);
+        if (pending == null) return false;
+        cancelTimeout(pending);
+        pending.future.completeExceptionally(cause);
+        return true;
+    }
+
+    private static boolean complete(Pending pending, JsonRpcMessage response) {
+        if (pending == null) return false;
+        cancelTimeout(pending);
+        pending.future.complete(response);
+        return true;
+    }
+
+    private static void cancelTimeout(Pending pending) {
+        TimerWheel.Timeout timeout = pending.timeout;
+        if (timeout != null) timeout.cancel();
+    }
+
+    /**
+     * Fails every pending request with {@code cause}; used when the connection they were
+     * sent on is gone and no response can arrive.
+     *
+     * @return how many requests were failed
+     */
+    public int failAll(Throwable cause) {
+        List<Pending> failed = new ArrayList<>(pendingNumericRequests.clear());
+        for (String id : pendingRequests.keySet()) {
+            Pending pending = pendingRequests.remove(id);
+            if (pending != null) failed.add(pending);
+        }
+        for (Pending pending : failed) {
+            cancelTimeout(pending);
+        }
+        if (!failed.isEmpty()) {
+            completer.execute(() -> failed.forEach(pending -> pending.future.completeExceptionally(cause)));
+        }
+        return failed.size();
     }
 
-    public CompletableFuture<JSONObject> getRequest(String id) {
-        return pendingRequests.get(id);
+    /** Requests currently waiting for a response. */
+    public int size() {
+        return pendingRequests.size() + pendingNumericRequests.size();
     }
 
-    public void completeRequest(String id, JSONObject response) {
-        CompletableFuture<JSONObject> future = pendingRequests.remove(id);
-        if (future != null) {
-            future.complete(response);
+    /** Requests dropped because their deadline passed without a response. */
+    public long getExpiredCount() {
+        return expired.sum();
+    }
+
+    /**
+     * Age of the longest-waiting request, or 0 if none is pending. Walks all entries, so
+     * it is meant for periodic polling rather than the request path.
+     */
+    public long getOldestAgeMillis() {
+        long now = System.nanoTime();
+        long[] oldest = {0};
+        for (Pending pending : pendingRequests.values()) {
+            oldest[0] = Math.max(oldest[0], now - pending.registeredNanos);
+        }
+        pendingNumericRequests.forEachValue(pending -> oldest[0] = Math.max(oldest[0], now - pending.registeredNanos));
+        return TimeUnit.NANOSECONDS.toMillis(oldest[0]);
+    }
+
+    public void registerProgressListener(String progressToken, Consumer<JSONObject> listener) {
+        progressListeners.put(progressToken, listener);
+    }
+
+    public void removeProgressListener(String progressToken) {
+        progressListeners.remove(progressToken);
+    }
+
+    /**
+     * Relays a server notification to streaming requests. {@code notifications/progress}
+     * goes to the request that owns its progressToken. {@code notifications/message}
+     * (logging) is not tied to a request in MCP, so it is only relayed while a single
+     * stream is open on the session; with several, concurrent streams (e.g. Intruder)
+     * would receive each other's log lines.
+     *
+     * @return true if a stream received the notification
+     */
+    public boolean dispatchNotification(JSONObject notification) {
+        String method = notification.optString("method");
+        JSONObject params = notification.optJSONObject("params");
+        if ("notifications/progress".equals(method)) {
+            if (params == null || !params.has("progressToken")) return false;
+            Consumer<JSONObject> listener = progressListeners.get(params.get("progressToken").toString());
+            if (listener == null) return false;
+            listener.accept(notification);
+            return true;
+        }
+        if ("notifications/message".equals(method)) {
+            Consumer<JSONObject> only = null;
+            int open = 0;
+            for (Consumer<JSONObject> listener : progressListeners.values()) {
+                only = listener;
+                if (++open > 1) return false; // Ambiguous: not attributable to one request
+            }
+            if (only == null) return false;
+            only.accept(notification);
+            return true;
         }
+        return false;
     }
 }
@@ -0,0 +1,150 @@
+package com.mcp_asd.burp.engine;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Incremental parser for a {@code text/event-stream} body. Bytes are fed in as they
+ * arrive, in chunks of any size, and each event is handed over as soon as its blank
+ * line has been read, so a long-running stream never has to be buffered whole.
+ * Follows the WHATWG field rules ({@code data}, {@code event}, {@code id},
+ * {@code retry}, comments; CR, LF or CRLF line endings).
+ */
+final class SseEventParser {
+
+    interface Handler {
+        /**
+         * @param id   the last event id seen on the stream so far, or {@code null}
+         * @param type the event type ("message" if the event didn't name one)
+         */
+        void onEvent(String id, String type, String data);
+    }
+
+    private final Handler handler;
+    private byte[] line = new byte[256];
+    private int lineLength;
+    private boolean lastWasCr;
+    private final StringBuilder data = new StringBuilder();
+    private boolean hasData;
+    private String type;
+    private volatile String lastEventId;
+    private volatile long retryMillis = -1;
+
+    SseEventParser(Handler handler) {
+        this.handler = handler;
+    }
+
+    /**
+     * Continues with the last event id of an earlier stream (after reconnecting with
+     * {@code Last-Event-ID}).
+     */
+    SseEventParser(Handler handler, String lastEventId) {
+        this.handler = handler;
+        this.lastEventId = lastEventId;
+    }
+
+    /** The id to send as {@code Last-Event-ID} when resuming, or {@code null}. */
+    String getLastEventId() {
+        return lastEventId;
+    }
+
+    /** The reconnection delay the server asked for, or -1. */
+    long getRetryMillis() {
+        return retryMillis;
+    }
+
+    void feed(byte[] bytes, int offset, int length) {
+        int end = offset + length;
+        for (int i = offset; i < end; i++) {
+            byte b = bytes[i];
+            if (b == '\n') {
+                if (lastWasCr) {
+                    lastWasCr = false; // Second half of a CRLF
+                    continue;
+                }
+                endLine();
+            } else if (b == '\r') {
+                lastWasCr = true;
+                endLine();
+            } else {
+                lastWasCr = false;
+                if (lineLength == line.length) line = Arrays.copyOf(line, line.length * 2);
+                line[lineLength++] = b;
+            }
+        }
+    }
+
+    /**
+     * End of stream. An event still missing its blank line is dispatched anyway, as
+     * some servers close the stream right after the last data line.
+     */
+    void finish() {
+        if (lineLength > 0) endLine();
+        dispatch();
+    }
+
+    private void endLine() {
+        int length = lineLength;
+        lineLength = 0;
+        if (length == 0) {
+            dispatch();
+            return;
+        }
+        if (line[0] == ':') return; // Comment (keep-alive)
+
+        int colon = -1;
+        for (int i = 0; i < length; i++) {
+            if (line[i] == ':') {
+                colon = i;
+                break;
+            }
+        }
+        String field;
+        String value;
+        if (colon < 0) {
+            field = new String(line, 0, length, StandardCharsets.UTF_8);
+            value = "";
+        } else {
+            field = new String(line, 0, colon, StandardCharsets.UTF_8);
+            int start = colon + 1;
+            if (start < length && line[start] == ' ') start++;
+            value = new String(line, start, length - start, StandardCharsets.UTF_8);
+        }
+
+        switch (field) {
+            case "data":
+                if (hasData) data.append('\n');
+                data.append(value);
+                hasData = true;
+                break;
+            case "event":
+                type = value;
+                break;
+            case "id":
+                if (value.indexOf('\0') < 0) lastEventId = value.isEmpty() ? null : value;
+                break;
+            case "retry":
+                try {
+                    retryMillis = Long.parseLong(value);
+                } catch (NumberFormatException ignored) {
+                    // Ignored, as the spec requires
+                }
+                break;
+            default:
+                break;
+        }
+    }
+
+    private void dispatch() {
+        if (!hasData) {
+            type = null;
+            return;
+        }
+        String event = data.toString();
+        String eventType = type == null || type.isEmpty() ? "message" : type;
+        data.setLength(0);
+        hasData = false;
+        type = null;
+        handler.onEvent(lastEventId, eventType, event);
+    }
+}
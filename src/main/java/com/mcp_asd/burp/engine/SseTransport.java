@@ -2,9 +2,10 @@ package com.mcp_asd.burp.engine;
 
 import burp.api.montoya.MontoyaApi;
 import com.mcp_asd.burp.GlobalSettings;
+import com.mcp_asd.burp.HttpClients;
+import com.mcp_asd.burp.Log;
 import com.mcp_asd.burp.ui.ConnectionConfiguration;
 import okhttp3.OkHttpClient;
-import okhttp3.Protocol;
 import okhttp3.Request;
 import okhttp3.RequestBody;
 import okhttp3.sse.EventSource;
@@ -12,31 +13,27 @@ import okhttp3.sse.EventSourceListener;
 import okhttp3.sse.EventSources;
 import org.jetbrains.annotations.NotNull;
 
-import java.net.InetSocketAddress;
-import java.net.Proxy;
 import java.net.URL; // Add URL import
-import java.util.Arrays;
-import java.util.concurrent.CountDownLatch; // Add CountDownLatch import
+import java.nio.charset.StandardCharsets;
 import java.util.concurrent.TimeUnit;
 
 import okhttp3.MediaType;
-import javax.net.ssl.*;
-import java.io.FileInputStream;
-import java.security.KeyStore;
-import java.security.SecureRandom;
-import java.security.cert.CertificateException;
 
 public class SseTransport implements McpTransport {
     private final MontoyaApi api;
     private final GlobalSettings settings;
     private OkHttpClient client;
+    private OkHttpClient postClient;
     private EventSource eventSource;
     private ConnectionConfiguration config;
     private TransportListener listener;
     private volatile String postEndpointUrl;
     private boolean forceHttp1 = false;
     private final java.util.concurrent.atomic.AtomicBoolean onOpenCalled = new java.util.concurrent.atomic.AtomicBoolean(false);
-    private final CountDownLatch endpointLatch = new CountDownLatch(1); // Add Latch
+    private volatile SendPipeline pipeline;
+
+    // How long messages are held for the 'endpoint' event before the configured path is used
+    private static final long ENDPOINT_WAIT_MILLIS = 2000;
 
     public SseTransport(MontoyaApi api, GlobalSettings settings) {
         this.api = api;
@@ -52,57 +49,20 @@ public class SseTransport implements McpTransport {
         this.config = config;
         this.listener = listener;
         this.onOpenCalled.set(false);
-
-        OkHttpClient.Builder builder = new OkHttpClient.Builder()
-                .connectTimeout(10, TimeUnit.SECONDS)
-                .readTimeout(0, TimeUnit.SECONDS); // Infinite timeout for SSE
-
-        // --- SSL Configuration ---
-        try {
-            // Create a trust manager that does not validate certificate chains
-            final TrustManager[] trustAllCerts = new TrustManager[] {
-                new X509TrustManager() {
-                    @Override
-                    public void checkClientTrusted(java.security.cert.X509Certificate[] chain, String authType) throws CertificateException {}
-                    @Override
-                    public void checkServerTrusted(java.security.cert.X509Certificate[] chain, String authType) throws CertificateException {}
-                    @Override
-                    public java.security.cert.X509Certificate[] getAcceptedIssuers() { return new java.security.cert.X509Certificate[]{}; }
-                }
-            };
-
-            // Install the all-trusting trust manager
-            final SSLContext sslContext = SSLContext.getInstance("SSL");
-            sslContext.init(null, trustAllCerts, new java.security.SecureRandom());
-            final SSLSocketFactory sslSocketFactory = sslContext.getSocketFactory();
-
-            builder.sslSocketFactory(sslSocketFactory, (X509TrustManager)trustAllCerts[0]);
-            builder.hostnameVerifier((hostname, session) -> true);
-
-        } catch (Exception e) {
-            api.logging().logToError("SseTransport: Failed to create insecure SSL context: " + e.getMessage());
-        }
-        // -------------------------
+        // Messages are buffered until the 'endpoint' event says where to POST them
+        this.pipeline = new SendPipeline("SseTransport", this::postNow,
+                settings != null ? settings.getSendConcurrency() : 1);
 
         if (forceHttp1) {
-            builder.protocols(Arrays.asList(Protocol.HTTP_1_1));
-            api.logging().logToOutput("SseTransport: Forcing HTTP/1.1");
+            Log.info("SseTransport: Forcing HTTP/1.1");
         }
-
-        if (config.isUseMtls()) {
-            configureMtls(builder, config);
-        }
-        
-        if (settings != null && settings.isProxyTrafficEnabled()) {
-             String host = settings.getProxyHost();
-             int port = settings.getProxyPort();
-             if (host != null && !host.isEmpty() && port > 0) {
-                 api.logging().logToOutput("SseTransport: Using proxy " + host + ":" + port);
-                 builder.proxy(new Proxy(Proxy.Type.HTTP, new InetSocketAddress(host, port)));
-             }
-        }
-
-        client = builder.build();
+        client = HttpClients.forTarget(config, forceHttp1).newBuilder()
+                .readTimeout(0, TimeUnit.SECONDS) // Infinite timeout for SSE
+                .build();
+        // Use a client with a read timeout for POSTs to avoid hanging on stuck streams
+        postClient = client.newBuilder()
+                .readTimeout(30, TimeUnit.SECONDS)
+                .build();
 
         String url = "http://" + config.getHost() + ":" + config.getPort() + config.getPath();
         if (config.isUseTls() || config.isUseMtls()) {
@@ -124,10 +84,17 @@ public class SseTransport implements McpTransport {
             @Override
             public void onOpen(@NotNull EventSource eventSource, @NotNull okhttp3.Response response) {
                 try {
-                    api.logging().logToOutput("SseTransport: Connection opened. Headers: " + response.headers());
+                    Log.info("SseTransport: Connection opened. Headers: " + response.headers());
                 } catch (Exception ignored) {} // Catch NPE during unload
                 
                 if (onOpenCalled.compareAndSet(false, true)) {
+                    SendPipeline current = pipeline;
+                    TimerWheel.shared().schedule(ENDPOINT_WAIT_MILLIS, () -> {
+                        if (!current.isOpen()) {
+                            Log.error("SseTransport: Warning - No 'endpoint' event received. Sending to the default path.");
+                            current.open();
+                        }
+                    });
                     listener.onOpen();
                 }
             }
@@ -135,7 +102,7 @@ public class SseTransport implements McpTransport {
             @Override
             public void onEvent(@NotNull EventSource eventSource, String id, String type, @NotNull String data) {
                 try {
-                    api.logging().logToOutput("SseTransport: Received event type: " + type + ", data: " + data);
+                    Log.debug(() -> "SseTransport: Received event type: " + type + ", data: " + Log.payload(data));
                 } catch (Exception ignored) {}
 
                 if ("endpoint".equals(type)) {
@@ -158,24 +125,24 @@ public class SseTransport implements McpTransport {
                         if (!original.getHost().equalsIgnoreCase(candidate.getHost()) || 
                             original.getPort() != candidate.getPort()) {
                             try {
-                                api.logging().logToError("SECURITY WARNING: Server attempted to redirect POST endpoint to external/different host: " + candidateUrl + ". Ignoring.");
+                                Log.error("SECURITY WARNING: Server attempted to redirect POST endpoint to external/different host: " + candidateUrl + ". Ignoring.");
                             } catch (Exception ignored) {}
                             // Fallback to default
                             postEndpointUrl = baseUrl + config.getPath(); 
                         } else {
                             postEndpointUrl = candidateUrl;
                             try {
-                                api.logging().logToOutput("SseTransport: Resolved POST URL: " + postEndpointUrl);
+                                Log.info("SseTransport: Resolved POST URL: " + postEndpointUrl);
                             } catch (Exception ignored) {}
                         }
                     } catch (Exception e) {
                         try {
-                            api.logging().logToError("Failed to validate endpoint URL: " + e.getMessage());
+                            Log.error("Failed to validate endpoint URL: " + e.getMessage());
                         } catch (Exception ignored) {}
                         postEndpointUrl = baseUrl + config.getPath();
                     }
                     
-                    endpointLatch.countDown(); // Signal readiness
+                    pipeline.open(); // Signal readiness
                 } else {
                     listener.onMessage(data);
                 }
@@ -184,7 +151,7 @@ public class SseTransport implements McpTransport {
             @Override
             public void onClosed(@NotNull EventSource eventSource) {
                 try {
-                    api.logging().logToOutput("SseTransport: Connection closed by server.");
+                    Log.info("SseTransport: Connection closed by server.");
                 } catch (Exception ignored) {}
                 listener.onClose();
             }
@@ -199,12 +166,12 @@ public class SseTransport implements McpTransport {
                         body = " (failed to read body)";
                     }
                     try {
-                        api.logging().logToError("SseTransport: Failure. Code: " + response.code() + ", Body: " + body);
+                        Log.error("SseTransport: Failure. Code: " + response.code() + ", Body: " + body);
                     } catch (Exception ignored) {}
                     listener.onError(new RuntimeException("HTTP " + response.code() + ": " + response.message() + "\nBody: " + body));
                 } else {
                     try {
-                        api.logging().logToError("SseTransport: Failure. Exception: " + t.getMessage());
+                        Log.error("SseTransport: Failure. Exception: " + t.getMessage());
                     } catch (Exception ignored) {}
                     listener.onError(t);
                 }
@@ -215,147 +182,103 @@ public class SseTransport implements McpTransport {
         this.eventSource = factory.newEventSource(sseRequest, esListener);
     }
 
-    private void configureMtls(OkHttpClient.Builder builder, ConnectionConfiguration config) {
-        try {
-            KeyStore keyStore = KeyStore.getInstance("PKCS12");
-            try (FileInputStream fis = new FileInputStream(config.getClientCertPath())) {
-                keyStore.load(fis, config.getClientCertPassword().toCharArray());
-            }
-
-            KeyManagerFactory kmf = KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
-            kmf.init(keyStore, config.getClientCertPassword().toCharArray());
-
-            // Reuse trust-all manager so self-signed certs still work with mTLS
-            final TrustManager[] trustAllCerts = new TrustManager[]{
-                new X509TrustManager() {
-                    @Override public void checkClientTrusted(java.security.cert.X509Certificate[] chain, String authType) throws CertificateException {}
-                    @Override public void checkServerTrusted(java.security.cert.X509Certificate[] chain, String authType) throws CertificateException {}
-                    @Override public java.security.cert.X509Certificate[] getAcceptedIssuers() { return new java.security.cert.X509Certificate[]{}; }
-                }
-            };
-            SSLContext sslContext = SSLContext.getInstance("TLS");
-            sslContext.init(kmf.getKeyManagers(), trustAllCerts, new SecureRandom());
-            builder.sslSocketFactory(sslContext.getSocketFactory(), (X509TrustManager) trustAllCerts[0]);
-        } catch (Exception e) {
-            api.logging().logToError("Failed to configure mTLS: " + e.getMessage());
-        }
-    }
-
     @Override
     public void send(String message) {
-        if (client == null || config == null) return;
-        new Thread(() -> {
-            try {
-                String url;
-                if (postEndpointUrl != null) {
-                    url = postEndpointUrl;
-                } else {
-                    // Wait for endpoint event using Latch (max 2 seconds)
-                    try {
-                        endpointLatch.await(2000, TimeUnit.MILLISECONDS);
-                    } catch (InterruptedException ignored) {}
-
-                    if (postEndpointUrl != null) {
-                        url = postEndpointUrl;
-                    } else {
-                        api.logging().logToError("SseTransport: Warning - Sending message before 'endpoint' event received (or timed out). Using default path.");
-                        url = "http://" + config.getHost() + ":" + config.getPort() + config.getPath();
-                        if (config.isUseTls() || config.isUseMtls()) {
-                            url = url.replace("http://", "https://");
-                        }
-                    }
-                }
+        send(message.getBytes(StandardCharsets.UTF_8));
+    }
 
-                api.logging().logToOutput("SseTransport: Sending POST to " + url + ": " + message);
-                Request.Builder requestBuilder = new Request.Builder()
-                        .url(url)
-                        .post(RequestBody.create(message, MediaType.get("application/json")))
-                        .addHeader("User-Agent", "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/120.0.0.0 Safari/537.36")
-                        .addHeader("Accept", "application/json, text/event-stream");
+    @Override
+    public void send(byte[] message) {
+        SendPipeline current = pipeline;
+        if (current == null || config == null) return;
+        current.submit(message);
+    }
 
-                // Add custom headers
-                config.getHeaders().forEach(requestBuilder::addHeader);
+    /** Messages waiting in the outbound queue. */
+    @Override
+    public int getQueuedMessages() {
+        SendPipeline current = pipeline;
+        return current != null ? current.depth() : 0;
+    }
 
-                Request request = requestBuilder.build();
-                api.logging().logToOutput("SseTransport: Request Headers: " + request.headers());
+    // Runs on a pipeline worker; returns once the POST (and any response stream) is done
+    private void postNow(byte[] message) throws java.io.IOException {
+        String url = postEndpointUrl;
+        if (url == null) {
+            url = "http://" + config.getHost() + ":" + config.getPort() + config.getPath();
+            if (config.isUseTls() || config.isUseMtls()) {
+                url = url.replace("http://", "https://");
+            }
+        }
 
-                // Use a client with a read timeout for POSTs to avoid hanging on stuck streams
-                OkHttpClient postClient = client.newBuilder()
-                        .readTimeout(30, TimeUnit.SECONDS)
-                        .build();
+        if (Log.isEnabled(Log.Level.DEBUG)) Log.debug("SseTransport: Sending POST to " + url + ": " + Log.payload(new String(message, StandardCharsets.UTF_8)));
+        Request.Builder requestBuilder = new Request.Builder()
+                .url(url)
+                .post(RequestBody.create(message, MediaType.get("application/json")))
+                .addHeader("User-Agent", "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/120.0.0.0 Safari/537.36")
+                .addHeader("Accept", "application/json, text/event-stream");
 
-                try (okhttp3.Response response = postClient.newCall(request).execute()) {
-                    if (!response.isSuccessful()) {
-                        String body = "";
-                        try { body = response.body().string(); } catch (Exception ignored) {}
-                        api.logging().logToError("SseTransport: Error " + response.code() + ": " + body);
-                    } else {
-                        // Check if the server responded with data in the POST response (Non-standard MCP or specific to some implementations)
-                        MediaType contentType = response.body().contentType();
-                        if (contentType != null) {
-                            if (contentType.type().equals("text") && contentType.subtype().equals("event-stream")) {
-                                try {
-                                    api.logging().logToOutput("SseTransport: Received SSE stream in POST response.");
-                                } catch (Exception ignored) {}
-                                handleSseResponse(response.body().charStream());
-                            } else if (contentType.subtype().equals("json")) {
-                                String json = response.body().string();
-                                try {
-                                    api.logging().logToOutput("SseTransport: Received JSON in POST response: " + json);
-                                } catch (Exception ignored) {}
-                                listener.onMessage(json);
-                            }
-                        }
-                    }
-                }
-            } catch (Exception e) {
-                try {
-                    api.logging().logToError("SseTransport: Send failed: " + e.getMessage());
-                } catch (Exception ignored) {}
-            }
-        }).start();
-    }
+        // Add custom headers
+        config.getHeaders().forEach(requestBuilder::addHeader);
 
-    private void handleSseResponse(java.io.Reader reader) {
-        try (java.io.BufferedReader bufferedReader = new java.io.BufferedReader(reader)) {
-            String line;
-            StringBuilder dataBuffer = new StringBuilder();
-            while ((line = bufferedReader.readLine()) != null) {
-                if (line.startsWith("data:")) {
-                    dataBuffer.append(line.substring(5).trim());
-                } else if (line.isEmpty()) {
-                    if (dataBuffer.length() > 0) {
-                        String data = dataBuffer.toString();
+        Request request = requestBuilder.build();
+        Log.debug(() -> "SseTransport: Request Headers: " + request.headers());
+
+        try (okhttp3.Response response = postClient.newCall(request).execute()) {
+            if (!response.isSuccessful()) {
+                String body = "";
+                try { body = response.body().string(); } catch (Exception ignored) {}
+                Log.error("SseTransport: Error " + response.code() + ": " + Log.payload(body));
+            } else {
+                // Check if the server responded with data in the POST response (Non-standard MCP or specific to some implementations)
+                MediaType contentType = response.body().contentType();
+                if (contentType != null) {
+                    if (contentType.type().equals("text") && contentType.subtype().equals("event-stream")) {
+                        try {
+                            Log.debug("SseTransport: Received SSE stream in POST response.");
+                        } catch (Exception ignored) {}
+                        handleSseResponse(response.body().byteStream());
+                    } else if (contentType.subtype().equals("json")) {
+                        String json = response.body().string();
                         try {
-                            api.logging().logToOutput("SseTransport: Parsed event from POST response: " + data);
+                            Log.debug(() -> "SseTransport: Received JSON in POST response: " + Log.payload(json));
                         } catch (Exception ignored) {}
-                        listener.onMessage(data);
-                        dataBuffer.setLength(0);
+                        listener.onMessage(json);
                     }
                 }
             }
-            // If EOF with data pending
-            if (dataBuffer.length() > 0) {
-                 String data = dataBuffer.toString();
-                 try {
-                     api.logging().logToOutput("SseTransport: Parsed event from POST response (EOF): " + data);
-                 } catch (Exception ignored) {}
-                 listener.onMessage(data);
+        }
+    }
+
+    // Events are handed over as they arrive rather than once the stream has ended
+    private void handleSseResponse(java.io.InputStream in) {
+        SseEventParser parser = new SseEventParser((id, type, data) -> {
+            Log.debug(() -> "SseTransport: Parsed event from POST response: " + Log.payload(data));
+            listener.onMessage(data);
+        });
+        try (in) {
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                parser.feed(buffer, 0, read);
             }
+            parser.finish(); // Data pending at EOF
         } catch (Exception e) {
             try {
-                api.logging().logToError("SseTransport: Failed to parse SSE from POST response: " + e.getMessage());
+                Log.error("SseTransport: Failed to parse SSE from POST response: " + e.getMessage());
             } catch (Exception ignored) {}
         }
     }
 
     @Override
     public void close() {
+        // The client's pool and dispatcher are shared, so only this stream is stopped
         if (eventSource != null) {
             eventSource.cancel();
         }
-        if (client != null) {
-            client.dispatcher().executorService().shutdown();
+        SendPipeline current = pipeline;
+        if (current != null) {
+            current.close();
         }
     }
 }
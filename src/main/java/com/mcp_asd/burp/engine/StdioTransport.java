@@ -0,0 +1,247 @@
+package com.mcp_asd.burp.engine;
+
+import burp.api.montoya.MontoyaApi;
+import com.mcp_asd.burp.GlobalSettings;
+import com.mcp_asd.burp.Log;
+import com.mcp_asd.burp.ui.ConnectionConfiguration;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * MCP stdio transport: launches the server as a local process and exchanges
+ * newline-delimited JSON-RPC over its stdin and stdout. Sending only queues the
+ * message; a writer thread puts queued messages on the pipe and flushes once the
+ * queue is empty, and a reader thread hands each stdout line over as a message.
+ * Everything the server writes to stderr goes to the log.
+ *
+ * Closing follows the MCP shutdown sequence: stdin is closed first, then the process
+ * is asked to terminate, and killed if it is still running after that.
+ */
+public class StdioTransport implements McpTransport {
+    // Grace periods between closing stdin, SIGTERM and SIGKILL
+    private static final long EXIT_WAIT_MILLIS = 2000;
+    private static final byte[] STOP = new byte[0];
+    private static final AtomicInteger COUNT = new AtomicInteger();
+
+    private final MontoyaApi api;
+    private final GlobalSettings settings;
+    private final LinkedBlockingQueue<byte[]> outbound = new LinkedBlockingQueue<>();
+    private final AtomicBoolean closed = new AtomicBoolean(false);
+    private TransportListener listener;
+    private volatile Process process;
+    private String label;
+
+    public StdioTransport(MontoyaApi api, GlobalSettings settings) {
+        this.api = api;
+        this.settings = settings;
+    }
+
+    @Override
+    public void connect(ConnectionConfiguration config, TransportListener listener) {
+        this.listener = listener;
+
+        List<String> command = parseCommand(config.getCommand());
+        if (command.isEmpty()) {
+            listener.onError(new IllegalArgumentException("No command configured for the stdio transport"));
+            return;
+        }
+        ProcessBuilder builder = new ProcessBuilder(command);
+        String directory = config.getWorkingDirectory();
+        if (directory != null && !directory.trim().isEmpty()) {
+            builder.directory(new File(directory.trim()));
+        }
+        try {
+            process = builder.start();
+        } catch (IOException e) {
+            Log.error("StdioTransport: Failed to start " + command.get(0) + ": " + e.getMessage());
+            listener.onError(e);
+            return;
+        }
+
+        int id = COUNT.incrementAndGet();
+        label = new File(command.get(0)).getName() + " (pid " + process.pid() + ")";
+        Log.info("StdioTransport: Started " + String.join(" ", command) + " as pid " + process.pid());
+
+        Process started = process;
+        startThread("MCP-ASD-Stdio-Writer-" + id, () -> writeLoop(started.getOutputStream()));
+        startThread("MCP-ASD-Stdio-Reader-" + id, () -> readLoop(started));
+        startThread("MCP-ASD-Stdio-Stderr-" + id, () -> stderrLoop(started.getErrorStream()));
+        listener.onOpen();
+    }
+
+    @Override
+    public void send(String message) {
+        send(message.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public void send(byte[] message) {
+        if (closed.get() || process == null) return;
+        outbound.add(message);
+    }
+
+    @Override
+    public int getQueuedMessages() {
+        return outbound.size();
+    }
+
+    private static void startThread(String name, Runnable task) {
+        Thread thread = new Thread(task, name);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void writeLoop(OutputStream stdin) {
+        try (OutputStream out = stdin) {
+            while (true) {
+                byte[] message = outbound.take();
+                // Everything queued meanwhile goes out before a single flush
+                do {
+                    if (message == STOP) return;
+                    if (Log.isEnabled(Log.Level.DEBUG)) Log.debug("StdioTransport: Sending: " + Log.payload(new String(message, StandardCharsets.UTF_8)));
+                    out.write(singleLine(message));
+                    out.write('\n');
+                } while ((message = outbound.poll()) != null);
+                out.flush();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            if (!closed.get()) Log.error("StdioTransport: Write to " + label + " failed: " + e.getMessage());
+        }
+    }
+
+    private void readLoop(Process started) {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(started.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.trim().isEmpty()) continue;
+                String message = line;
+                Log.debug(() -> "StdioTransport: Received: " + Log.payload(message));
+                listener.onMessage(message);
+            }
+        } catch (IOException e) {
+            if (!closed.get()) Log.error("StdioTransport: Read from " + label + " failed: " + e.getMessage());
+        }
+        if (closed.get()) return;
+
+        // stdout closed without us asking: the server exited (or is about to)
+        String reason;
+        try {
+            reason = label + " exited with code " + started.waitFor();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            reason = label + " closed its stdout";
+        }
+        Log.error("StdioTransport: " + reason);
+        // Reported as the failure it is; onClose would overwrite the exit code in the UI
+        if (shutdown(false)) listener.onError(new IllegalStateException("Server process " + reason));
+    }
+
+    private void stderrLoop(InputStream stderr) {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(stderr, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                Log.info("StdioTransport: [" + label + " stderr] " + line);
+            }
+        } catch (IOException ignored) {
+            // Process gone
+        }
+    }
+
+    /**
+     * Newlines delimit messages on the pipe. Outside strings they are only whitespace in
+     * JSON (and inside strings they must be escaped), so a pretty-printed body from
+     * Repeater is flattened rather than split into several messages.
+     */
+    private static byte[] singleLine(byte[] message) {
+        byte[] copy = null;
+        for (int i = 0; i < message.length; i++) {
+            if (message[i] == '\n' || message[i] == '\r') {
+                if (copy == null) copy = message.clone();
+                copy[i] = ' ';
+            }
+        }
+        return copy != null ? copy : message;
+    }
+
+    /**
+     * Splits a command line on whitespace. Single or double quotes group an argument
+     * containing spaces. Backslashes are kept as they are, so Windows paths work unquoted.
+     */
+    static List<String> parseCommand(String commandLine) {
+        List<String> args = new ArrayList<>();
+        if (commandLine == null) return args;
+        StringBuilder current = new StringBuilder();
+        boolean inArg = false;
+        char quote = 0;
+        for (int i = 0; i < commandLine.length(); i++) {
+            char c = commandLine.charAt(i);
+            if (quote != 0) {
+                if (c == quote) {
+                    quote = 0;
+                } else {
+                    current.append(c);
+                }
+            } else if (c == '"' || c == '\'') {
+                quote = c;
+                inArg = true;
+            } else if (Character.isWhitespace(c)) {
+                if (inArg) {
+                    args.add(current.toString());
+                    current.setLength(0);
+                    inArg = false;
+                }
+            } else {
+                current.append(c);
+                inArg = true;
+            }
+        }
+        if (inArg) args.add(current.toString());
+        return args;
+    }
+
+    @Override
+    public void close() {
+        shutdown(true);
+    }
+
+    /**
+     * Stops the writer and the process. Exactly one of onClose and onError reaches the
+     * listener, so {@code notify} is false when the caller reports an error instead.
+     *
+     * @return false if the transport was already closed
+     */
+    private boolean shutdown(boolean notify) {
+        if (!closed.compareAndSet(false, true)) return false;
+        outbound.clear();
+        outbound.add(STOP); // The writer closes stdin once it gets here
+
+        Process current = process;
+        if (current != null && current.isAlive()) {
+            TimerWheel.shared().schedule(EXIT_WAIT_MILLIS, () -> {
+                if (!current.isAlive()) return;
+                Log.info("StdioTransport: " + label + " still running; terminating it.");
+                current.destroy();
+                TimerWheel.shared().schedule(EXIT_WAIT_MILLIS, () -> {
+                    if (current.isAlive()) current.destroyForcibly();
+                });
+            });
+        }
+        if (notify && listener != null) {
+            listener.onClose();
+        }
+        return true;
+    }
+}
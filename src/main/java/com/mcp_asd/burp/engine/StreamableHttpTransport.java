@@ -0,0 +1,459 @@
+package com.mcp_asd.burp.engine;
+
+import burp.api.montoya.MontoyaApi;
+import com.mcp_asd.burp.GlobalSettings;
+import com.mcp_asd.burp.HttpClients;
+import com.mcp_asd.burp.Log;
+import com.mcp_asd.burp.ui.ConnectionConfiguration;
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import org.json.JSONObject;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * MCP Streamable HTTP transport (protocol 2025-03-26 and later). Every message is
+ * POSTed to the single MCP endpoint; the server answers with JSON, with an SSE stream
+ * carrying the responses (plus any requests and notifications it sends meanwhile), or
+ * with 202 for notifications. Requests are sent concurrently, so over TLS they share
+ * one multiplexed HTTP/2 connection from the shared pool.
+ *
+ * The {@code Mcp-Session-Id} the server assigns is sent on every later request and
+ * the session is ended with a DELETE on close. A response stream that drops before all
+ * of its responses have arrived is resumed with a GET carrying {@code Last-Event-ID}.
+ * Once initialized, a standalone GET stream is opened for server-initiated messages
+ * (if the server offers one).
+ */
+public class StreamableHttpTransport implements McpTransport {
+    static final String SESSION_HEADER = "Mcp-Session-Id";
+    static final String PROTOCOL_HEADER = "MCP-Protocol-Version";
+    // The revision this transport implements; offered in initialize
+    static final String PROTOCOL_VERSION = "2025-03-26";
+
+    // Reconnects of one stream in a row without an event before giving up on it
+    private static final int MAX_RESUMES = 5;
+    private static final long DEFAULT_RETRY_MILLIS = 1000;
+    private static final int READ_BUFFER = 8192;
+
+    private final MontoyaApi api;
+    private final GlobalSettings settings;
+    private OkHttpClient client;
+    private OkHttpClient streamClient;
+    private ConnectionConfiguration config;
+    private TransportListener listener;
+    private String url;
+    private volatile SendPipeline pipeline;
+    private volatile String sessionId;
+    private volatile String protocolVersion;
+    private final AtomicBoolean closed = new AtomicBoolean(false);
+    private final AtomicBoolean standaloneOpened = new AtomicBoolean(false);
+    private final Set<Call> calls = ConcurrentHashMap.newKeySet();
+
+    public StreamableHttpTransport(MontoyaApi api, GlobalSettings settings) {
+        this.api = api;
+        this.settings = settings;
+    }
+
+    /** What one POST carried, and the responses still due for it. */
+    private static final class Outbound {
+        // Request id (as correlation keys it) -> id literal as sent, for synthesized errors
+        final Map<String, String> pending = new ConcurrentHashMap<>();
+        boolean initialize;
+        boolean initialized;
+
+        static Outbound of(byte[] message) {
+            Outbound outbound = new Outbound();
+            try {
+                int first = JsonRpcScanner.skipWhitespace(message, 0, message.length);
+                if (first < message.length && message[first] == '[') {
+                    for (int[] element : JsonRpcScanner.splitArray(message)) {
+                        outbound.add(message, element[0], element[1]);
+                    }
+                } else {
+                    outbound.add(message, 0, message.length);
+                }
+            } catch (IllegalArgumentException e) {
+                // Nothing to wait for
+            }
+            return outbound;
+        }
+
+        private void add(byte[] message, int from, int to) {
+            int[][] members = JsonRpcScanner.findMembers(message, from, to, "id", "method");
+            if (members[1] == null) return; // Reply to a server request
+            String method = JsonRpcScanner.stringMember(message, from, to, "method");
+            if ("initialize".equals(method)) initialize = true;
+            if ("notifications/initialized".equals(method)) initialized = true;
+            if (members[0] == null) return; // Notification
+            String id = JsonRpcScanner.idValue(message, members[0]);
+            if (id != null) {
+                pending.put(id, new String(message, members[0][0], members[0][1] - members[0][0], StandardCharsets.UTF_8));
+            }
+        }
+    }
+
+    /** One SSE stream: a POST response (and its resumptions) or the standalone GET stream. */
+    private final class Stream implements SseEventParser.Handler {
+        final Outbound outbound; // null for the standalone stream
+        final boolean expectsResponses;
+        volatile SseEventParser parser = new SseEventParser(this);
+        int resumes;
+
+        Stream(Outbound outbound) {
+            this.outbound = outbound;
+            this.expectsResponses = outbound != null && !outbound.pending.isEmpty();
+        }
+
+        boolean isStandalone() {
+            return outbound == null;
+        }
+
+        boolean isComplete() {
+            return expectsResponses && outbound.pending.isEmpty();
+        }
+
+        @Override
+        public void onEvent(String id, String type, String data) {
+            if (!"message".equals(type)) {
+                Log.debug(() -> "StreamableHttpTransport: Ignoring '" + type + "' event: " + Log.payload(data));
+                return;
+            }
+            resumes = 0; // Only reconnects that delivered nothing count
+            if (outbound != null) markAnswered(data);
+            deliver(data, outbound != null && outbound.initialize);
+        }
+
+        private void markAnswered(String data) {
+            byte[] bytes = data.getBytes(StandardCharsets.UTF_8);
+            try {
+                int first = JsonRpcScanner.skipWhitespace(bytes, 0, bytes.length);
+                if (first < bytes.length && bytes[first] == '[') {
+                    for (int[] element : JsonRpcScanner.splitArray(bytes)) {
+                        markAnswered(bytes, element[0], element[1]);
+                    }
+                } else {
+                    markAnswered(bytes, 0, bytes.length);
+                }
+            } catch (IllegalArgumentException e) {
+                // Not JSON-RPC; the connection reports it when it fails to parse
+            }
+        }
+
+        private void markAnswered(byte[] bytes, int from, int to) {
+            int[][] members = JsonRpcScanner.findMembers(bytes, from, to, "id", "method");
+            if (members[0] == null || members[1] != null) return; // Not a response
+            String id = JsonRpcScanner.idValue(bytes, members[0]);
+            if (id != null) outbound.pending.remove(id);
+        }
+    }
+
+    @Override
+    public void connect(ConnectionConfiguration config, TransportListener listener) {
+        this.config = config;
+        this.listener = listener;
+
+        url = "http://" + config.getHost() + ":" + config.getPort() + config.getPath();
+        if (config.isUseTls() || config.isUseMtls()) {
+            url = url.replace("http://", "https://");
+        }
+
+        // Responses may stream for as long as a tool runs, so the POST timeout is generous.
+        client = HttpClients.forTarget(config, false).newBuilder()
+                .readTimeout(5, TimeUnit.MINUTES)
+                .writeTimeout(30, TimeUnit.SECONDS)
+                .build();
+        streamClient = client.newBuilder()
+                .readTimeout(0, TimeUnit.SECONDS) // The standalone stream may idle indefinitely
+                .build();
+
+        // There is nothing to wait for before sending: the endpoint is the configured path
+        pipeline = new SendPipeline("StreamableHttpTransport", this::post,
+                settings != null ? settings.getSendConcurrency() : 1);
+        pipeline.open();
+        Log.info("StreamableHttpTransport: Ready to POST to " + url);
+        listener.onOpen();
+    }
+
+    @Override
+    public void send(String message) {
+        send(message.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public void send(byte[] message) {
+        SendPipeline current = pipeline;
+        if (current == null || closed.get()) return;
+        current.submit(message);
+    }
+
+    @Override
+    public int getQueuedMessages() {
+        SendPipeline current = pipeline;
+        return current != null ? current.depth() : 0;
+    }
+
+    /** The session id the server assigned, or {@code null} before initialization. */
+    public String getSessionId() {
+        return sessionId;
+    }
+
+    // Runs on a pipeline worker and returns once the call is enqueued; the response is
+    // read on the HTTP client's thread. Only the handshake waits for the response
+    // headers, so the session id from initialize is known before anything else is sent.
+    private void post(byte[] message) throws Exception {
+        if (closed.get()) return;
+        Outbound outbound = Outbound.of(message);
+        if (Log.isEnabled(Log.Level.DEBUG)) Log.debug("StreamableHttpTransport: POST to " + url + ": " + Log.payload(new String(message, StandardCharsets.UTF_8)));
+
+        Request request = newRequest(url)
+                .post(RequestBody.create(message, MediaType.get("application/json")))
+                .header("Accept", "application/json, text/event-stream")
+                .build();
+
+        CompletableFuture<Void> accepted = new CompletableFuture<>();
+        Call call = client.newCall(request);
+        calls.add(call);
+        call.enqueue(new Callback() {
+            @Override
+            public void onFailure(@NotNull Call call, @NotNull IOException e) {
+                calls.remove(call);
+                accepted.complete(null);
+                if (closed.get()) return;
+                Log.error("StreamableHttpTransport: POST failed: " + e.getMessage());
+                failPending(outbound, "Request failed: " + e.getMessage());
+            }
+
+            @Override
+            public void onResponse(@NotNull Call call, @NotNull Response response) {
+                try (response) {
+                    String assigned = response.header(SESSION_HEADER);
+                    if (assigned != null && !assigned.equals(sessionId)) {
+                        sessionId = assigned;
+                        Log.info("StreamableHttpTransport: Session id assigned: " + assigned);
+                    }
+                    accepted.complete(null);
+                    handleResponse(outbound, response);
+                } catch (Exception e) {
+                    if (!closed.get()) {
+                        Log.error("StreamableHttpTransport: Failed to read response: " + e.getMessage());
+                        failPending(outbound, "Failed to read response: " + e.getMessage());
+                    }
+                } finally {
+                    calls.remove(call);
+                    accepted.complete(null);
+                }
+            }
+        });
+        if (outbound.initialize || outbound.initialized) accepted.get();
+    }
+
+    private void handleResponse(Outbound outbound, Response response) throws IOException {
+        ResponseBody body = response.body();
+        if (!response.isSuccessful()) {
+            String text = "";
+            try { text = body != null ? body.string() : ""; } catch (Exception ignored) {}
+            Log.error("StreamableHttpTransport: HTTP " + response.code() + " " + response.message() + " body: " + Log.payload(text));
+            if (response.code() == 404 && sessionId != null && !outbound.initialize) {
+                // The server forgot the session; its requests will keep failing until the target reconnects
+                sessionId = null;
+                listener.onError(new IllegalStateException("MCP session expired (HTTP 404). Reconnect the target."));
+            }
+            failPending(outbound, "HTTP " + response.code() + " " + response.message() + (text.isEmpty() ? "" : " " + text));
+            return;
+        }
+
+        MediaType contentType = body != null ? body.contentType() : null;
+        if (contentType != null && "text".equals(contentType.type()) && "event-stream".equals(contentType.subtype())) {
+            Log.debug("StreamableHttpTransport: Response is an SSE stream.");
+            readStream(response, new Stream(outbound));
+        } else {
+            String text = body != null ? body.string() : "";
+            if (!text.trim().isEmpty()) {
+                deliver(text, outbound.initialize);
+            }
+        }
+        if (outbound.initialized) {
+            openStandaloneStream();
+        }
+    }
+
+    // Feeds the body to the stream's parser as it arrives; on a drop, resumes the stream
+    private void readStream(Response response, Stream stream) {
+        String dropped = null;
+        ResponseBody body = response.body();
+        if (body == null) return;
+        try (InputStream in = body.byteStream()) {
+            byte[] buffer = new byte[READ_BUFFER];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                stream.parser.feed(buffer, 0, read);
+                // Servers should close the stream after the last response; don't rely on it
+                if (stream.isComplete()) return;
+            }
+            stream.parser.finish();
+        } catch (IOException e) {
+            dropped = e.getMessage();
+        }
+        if (closed.get() || stream.isComplete()) return;
+        if (!stream.isStandalone() && !stream.expectsResponses) return; // Nothing was due
+        resume(stream, dropped != null ? "stream dropped: " + dropped : "stream ended early");
+    }
+
+    private void resume(Stream stream, String reason) {
+        String lastEventId = stream.parser.getLastEventId();
+        if (!stream.isStandalone() && lastEventId == null) {
+            Log.error("StreamableHttpTransport: Response " + reason + " and cannot be resumed (no event ids).");
+            failPending(stream.outbound, "Response " + reason);
+            return;
+        }
+        if (++stream.resumes > MAX_RESUMES) {
+            Log.error("StreamableHttpTransport: Giving up on " + (stream.isStandalone() ? "the standalone stream" : "a response stream") + " after " + MAX_RESUMES + " reconnects (" + reason + ").");
+            if (!stream.isStandalone()) failPending(stream.outbound, "Response " + reason);
+            return;
+        }
+        long retry = stream.parser.getRetryMillis();
+        long delay = retry >= 0 ? retry : DEFAULT_RETRY_MILLIS;
+        Log.info("StreamableHttpTransport: Resuming " + (stream.isStandalone() ? "the standalone stream" : "a response stream") + " (" + reason + ")" + (lastEventId != null ? " from event " + lastEventId : "") + " in " + delay + " ms.");
+        TimerWheel.shared().schedule(delay, () -> openGet(stream));
+    }
+
+    private void openStandaloneStream() {
+        if (!standaloneOpened.compareAndSet(false, true)) return;
+        openGet(new Stream(null));
+    }
+
+    private void openGet(Stream stream) {
+        if (closed.get()) return;
+        Request.Builder builder = newRequest(url)
+                .get()
+                .header("Accept", "text/event-stream");
+        String lastEventId = stream.parser.getLastEventId();
+        if (lastEventId != null) builder.header("Last-Event-ID", lastEventId);
+
+        Call call = streamClient.newCall(builder.build());
+        calls.add(call);
+        call.enqueue(new Callback() {
+            @Override
+            public void onFailure(@NotNull Call call, @NotNull IOException e) {
+                calls.remove(call);
+                if (!closed.get()) resume(stream, "reconnect failed: " + e.getMessage());
+            }
+
+            @Override
+            public void onResponse(@NotNull Call call, @NotNull Response response) {
+                try (response) {
+                    if (response.code() == 405) {
+                        if (stream.isStandalone()) {
+                            Log.info("StreamableHttpTransport: Server offers no standalone stream (HTTP 405).");
+                        } else {
+                            Log.error("StreamableHttpTransport: Server does not support resuming streams (HTTP 405).");
+                            failPending(stream.outbound, "Response stream dropped; the server does not support resuming it");
+                        }
+                        return;
+                    }
+                    if (!response.isSuccessful()) {
+                        resume(stream, "HTTP " + response.code() + " " + response.message());
+                        return;
+                    }
+                    if (stream.isStandalone()) Log.info("StreamableHttpTransport: Standalone stream opened.");
+                    // Partial lines from the dropped connection are discarded
+                    stream.parser = new SseEventParser(stream, lastEventId);
+                    readStream(response, stream);
+                } finally {
+                    calls.remove(call);
+                }
+            }
+        });
+    }
+
+    private Request.Builder newRequest(String target) {
+        Request.Builder builder = new Request.Builder()
+                .url(target)
+                .addHeader("User-Agent", "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/120.0.0.0 Safari/537.36");
+
+        // Add custom headers
+        config.getHeaders().forEach(builder::addHeader);
+
+        String session = sessionId;
+        if (session != null) builder.header(SESSION_HEADER, session);
+        String version = protocolVersion;
+        if (version != null) builder.header(PROTOCOL_HEADER, version);
+        return builder;
+    }
+
+    private void deliver(String data, boolean initialize) {
+        if (closed.get()) return;
+        if (initialize && protocolVersion == null) {
+            // Later requests carry the negotiated version in MCP-Protocol-Version
+            try {
+                JSONObject result = new JSONObject(data.trim()).optJSONObject("result");
+                String version = result != null ? result.optString("protocolVersion", null) : null;
+                if (version != null && !version.isEmpty()) protocolVersion = version;
+            } catch (Exception ignored) {
+                // Not a single response object; the version header is optional before 2025-06-18
+            }
+        }
+        Log.debug(() -> "StreamableHttpTransport: Received: " + Log.payload(data));
+        listener.onMessage(data);
+    }
+
+    // Answers the requests that will get no response, so their callers don't wait out a timeout
+    private void failPending(Outbound outbound, String reason) {
+        if (closed.get()) return;
+        for (String id : List.copyOf(outbound.pending.keySet())) {
+            String literal = outbound.pending.remove(id);
+            if (literal == null) continue;
+            listener.onMessage("{\"jsonrpc\":\"2.0\",\"id\":" + literal
+                    + ",\"error\":{\"code\":-32000,\"message\":" + JSONObject.quote(reason) + "}}");
+        }
+    }
+
+    @Override
+    public void close() {
+        if (!closed.compareAndSet(false, true)) return;
+        SendPipeline current = pipeline;
+        if (current != null) current.close();
+        for (Call call : calls) {
+            call.cancel();
+        }
+        calls.clear();
+
+        // End the session on the server; 405 means the server doesn't let clients do that
+        String session = sessionId;
+        if (session != null && client != null) {
+            Call delete = client.newCall(newRequest(url).delete().build());
+            delete.enqueue(new Callback() {
+                @Override
+                public void onFailure(@NotNull Call call, @NotNull IOException e) {
+                    Log.debug(() -> "StreamableHttpTransport: Session DELETE failed: " + e.getMessage());
+                }
+
+                @Override
+                public void onResponse(@NotNull Call call, @NotNull Response response) {
+                    try (response) {
+                        Log.info("StreamableHttpTransport: Session " + session + " ended (HTTP " + response.code() + ").");
+                    }
+                }
+            });
+        }
+        if (listener != null) {
+            listener.onClose();
+        }
+    }
+}
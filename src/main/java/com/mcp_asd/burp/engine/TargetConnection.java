@@ -0,0 +1,559 @@
+package com.mcp_asd.burp.engine;
+
+import burp.api.montoya.MontoyaApi;
+import com.mcp_asd.burp.GlobalSettings;
+import com.mcp_asd.burp.Log;
+import com.mcp_asd.burp.journal.TrafficJournal;
+import com.mcp_asd.burp.ui.ConnectionConfiguration;
+import com.mcp_asd.burp.ui.TargetView;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import javax.swing.SwingUtilities;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.BiConsumer;
+
+/**
+ * One MCP server being audited: its connection (primary session plus optional pool),
+ * handshake and enumeration state, and the dashboard view it reports to. Each target
+ * is independent, so several can be connected and enumerated at the same time.
+ */
+public class TargetConnection implements TransportListener {
+    private final MontoyaApi api;
+    private final GlobalSettings settings;
+    private final TrafficJournal journal;
+    private final String name;
+    private final ConnectionConfiguration config;
+    private final TargetView view;
+    private final SessionStore sessionStore = new SessionStore();
+    private volatile McpTransport transport;
+    private final McpSession primarySession;
+    private final List<PooledSession> sessionPool = new CopyOnWriteArrayList<>();
+    private volatile TransportRace race;
+    private volatile boolean cancelled = false;
+    
+    // Request IDs for tracking enumeration responses
+    private final ListEnumeration tools = new ListEnumeration("tools/list", "tools", "Tools");
+    private final ListEnumeration resources = new ListEnumeration("resources/list", "resources", "Resources");
+    private final ListEnumeration prompts = new ListEnumeration("prompts/list", "prompts", "Prompts");
+    private volatile boolean handshakeDone = false;
+    private volatile boolean enumerationStopped = false;
+
+    // Stops a server that keeps handing out cursors from paging forever
+    private static final int MAX_PAGES = 10_000;
+    
+    // Offered in initialize (the Streamable HTTP revision); the server answers with it or
+    // with the revision it supports instead
+    private static final String PROTOCOL_VERSION = StreamableHttpTransport.PROTOCOL_VERSION;
+
+    // MCP revisions that allow JSON-RPC batches (support was dropped again in 2025-06-18)
+    private static final Set<String> BATCH_PROTOCOL_VERSIONS = Set.of("2025-03-26");
+
+    // Pulls the id out of a frame that isn't valid JSON
+    private static final java.util.regex.Pattern ID_FALLBACK = java.util.regex.Pattern.compile("\"id\"\\s*:\\s*(?:\"([^\"]+)\"|(\\d+))");
+
+    /**
+     * One primitive list, fetched page by page until the server stops returning a
+     * {@code nextCursor} or the user stops the enumeration.
+     */
+    private static final class ListEnumeration {
+        private final String method;
+        private final String resultKey;
+        private final String label;
+        private final Set<String> seenCursors = new HashSet<>();
+        private volatile String requestId;
+        private volatile int pages;
+        private volatile int items;
+        // Set from the dispatch threads when the list responses arrive as one batch
+        private volatile boolean done;
+
+        ListEnumeration(String method, String resultKey, String label) {
+            this.method = method;
+            this.resultKey = resultKey;
+            this.label = label;
+        }
+
+        synchronized void reset() {
+            requestId = null;
+            seenCursors.clear();
+            pages = 0;
+            items = 0;
+            done = false;
+        }
+
+        /** Builds the request for the page at {@code cursor} (the first page if null). */
+        synchronized String nextRequest(String cursor) {
+            requestId = java.util.UUID.randomUUID().toString();
+            JSONObject request = new JSONObject();
+            request.put("jsonrpc", "2.0");
+            request.put("method", method);
+            request.put("id", requestId);
+            if (cursor != null) {
+                request.put("params", new JSONObject().put("cursor", cursor));
+            }
+            return request.toString();
+        }
+    }
+
+    TargetConnection(MontoyaApi api, GlobalSettings settings, TrafficJournal journal, String name,
+                     ConnectionConfiguration config, TargetView view) {
+        this.api = api;
+        this.settings = settings;
+        this.journal = journal;
+        this.name = name;
+        this.config = config;
+        this.view = view;
+        this.primarySession = new McpSession("primary", sessionStore);
+    }
+
+    /** Short, DNS-label-safe name used for bridge routing ({@code /invoke/{name}}). */
+    public String getName() {
+        return name;
+    }
+
+    public ConnectionConfiguration getConfig() {
+        return config;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * Closes the connection; also used when the target is removed or replaced.
+     */
+    public void cancel() {
+        this.cancelled = true;
+        Log.info("[" + name + "] Cancellation requested.");
+        closeSessionPool();
+        TransportRace pending = race;
+        if (pending != null) {
+            pending.cancel();
+        }
+        if (transport != null) {
+            transport.close();
+        }
+        if (view != null) {
+            view.setStatus("⚪ Cancelled", java.awt.Color.GRAY);
+            view.setCancelEnabled(false);
+        }
+    }
+
+    /**
+     * The dashboard's Cancel button. Before the handshake it abandons the connection
+     * attempt. Afterwards the connection stays up and only the enumeration stops following
+     * cursors, so the pages already listed are kept.
+     */
+    void cancelFromDashboard() {
+        if (!handshakeDone) {
+            cancel();
+            return;
+        }
+        enumerationStopped = true;
+        Log.info("[" + name + "] Enumeration stopped by user; keeping the pages already fetched.");
+        if (view != null) {
+            view.setCancelEnabled(false);
+            if (!isEnumerationComplete()) {
+                view.setStatus("🟠 Stopping enumeration...", java.awt.Color.ORANGE.darker());
+            }
+        }
+    }
+
+    /**
+     * Connects and enumerates; runs on one of the engine's connection workers and
+     * returns once the handshake has succeeded or failed (enumeration then continues
+     * on the transport's threads). The transport is negotiated by racing the ways of
+     * reaching the server, so a server that doesn't speak the configured transport (or
+     * HTTP/2) costs one handshake round trip instead of a timeout.
+     */
+    void connect() {
+        if (cancelled) return;
+        List<TransportRace.Option> options = TransportRace.optionsFor(config);
+        if (view != null) {
+            view.setStatus("🟠 Connecting via " + config.getTransport() + "...", java.awt.Color.ORANGE.darker());
+            view.setCancelEnabled(true);
+        }
+
+        TransportRace.Option negotiated = null;
+        TransportRace attempt = new TransportRace(name, config, options,
+                option -> createTransport(option, primarySession.getName()),
+                buildInitializeParams(), this, this::adopt);
+        race = attempt;
+        try {
+            Log.info("[" + name + "] Negotiating transport: " + options);
+            negotiated = attempt.start().get(30, TimeUnit.SECONDS);
+        } catch (TimeoutException e) {
+            attempt.cancel();
+            Log.error("[" + name + "] Connection attempt timed out waiting for handshake.");
+            if (view != null) view.setStatus("🔴 Failed: No transport completed the handshake", java.awt.Color.RED);
+        } catch (ExecutionException e) {
+            String errorMsg = e.getCause() != null ? e.getCause().getMessage() : e.getMessage();
+            if (!cancelled && !(e.getCause() instanceof CancellationException)) {
+                Log.error("[" + name + "] Every transport failed; last error: " + errorMsg);
+                if (view != null) view.setStatus("🔴 Failed: " + errorMsg, java.awt.Color.RED);
+            }
+        } catch (InterruptedException e) {
+            attempt.cancel(); // Worker pool shut down (extension unload)
+            Thread.currentThread().interrupt();
+        } finally {
+            race = null;
+        }
+        if (cancelled) {
+            Log.info("[" + name + "] Connection attempt aborted (cancelled).");
+            return;
+        }
+
+        if (negotiated != null) {
+            Log.info("[" + name + "] Handshake successful over " + negotiated + ". Connection secured.");
+            openSessionPool(negotiated);
+        }
+
+        if (view != null) {
+            // Still cancellable while a large catalog is being paged through
+            view.setCancelEnabled(negotiated != null && !enumerationStopped && !isEnumerationComplete());
+        }
+    }
+
+    private McpTransport createTransport(TransportRace.Option option, String sessionName) {
+        McpTransport created;
+        if ("WebSocket".equals(option.transport)) {
+            created = new WebSocketTransport(api, settings);
+        } else if ("stdio".equals(option.transport)) {
+            created = new StdioTransport(api, settings);
+        } else if ("Streamable HTTP".equals(option.transport)) {
+            created = new StreamableHttpTransport(api, settings);
+        } else if ("HTTP (POST only)".equals(option.transport)) {
+            created = new PostOnlyTransport(api, settings);
+        } else {
+            SseTransport sse = new SseTransport(api, settings);
+            if (option.forceHttp1) sse.setForceHttp1(true);
+            created = sse;
+        }
+        // Always wrapped, so the journal can be switched on mid-session
+        return journal != null ? new JournalingTransport(created, journal, name + "/" + sessionName) : created;
+    }
+
+    /**
+     * Opens the configured number of extra sessions with the same configuration (and
+     * negotiated transport) as the primary connection. Each one handshakes on its own and joins the pool once ready.
+     */
+    private void openSessionPool(TransportRace.Option option) {
+        int size = settings.getSessionPoolSize();
+        if (size <= 0) return;
+
+        Log.info("[" + name + "] SessionPool: Opening " + size + " additional session(s)...");
+        for (int i = 1; i <= size; i++) {
+            String name = "pool-" + i;
+            PooledSession session = new PooledSession(api, name, createTransport(option, name), buildInitializeParams());
+            sessionPool.add(session);
+            session.open(config).orTimeout(30, TimeUnit.SECONDS).whenComplete((ignored, error) -> {
+                if (error != null) {
+                    Log.error("[" + name + "] SessionPool: " + session.getName() + " handshake failed: " + error.getMessage());
+                    sessionPool.remove(session);
+                    session.close();
+                } else {
+                    Log.info("[" + name + "] SessionPool: " + session.getName() + " ready.");
+                }
+            });
+        }
+    }
+
+    private void closeSessionPool() {
+        for (PooledSession session : sessionPool) {
+            session.close();
+        }
+        sessionPool.clear();
+    }
+
+    /**
+     * Picks the live session with the fewest outstanding bridge requests. Sessions whose
+     * transport has gone away are skipped, so this works without a pool and with one
+     * that has lost members.
+     *
+     * @return the session, or {@code null} if none can carry traffic
+     */
+    public McpSession selectSession() {
+        McpSession best = primarySession.isReady() ? primarySession : null;
+        for (PooledSession session : sessionPool) {
+            if (session.isReady() && (best == null || session.getOutstanding() < best.getOutstanding())) {
+                best = session;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Whether bridge traffic can be routed here: the handshake has completed and the
+     * connection hasn't been lost since.
+     */
+    public boolean isReady() {
+        return selectSession() != null;
+    }
+
+    /**
+     * The adopted transport is gone, so the target stops being routable: its pending
+     * requests fail now instead of at their deadlines, and the pooled sessions to the
+     * same server are closed with it.
+     *
+     * @return how many requests of the primary session were failed
+     */
+    private int connectionLost(String reason) {
+        closeSessionPool();
+        return primarySession.fail(reason);
+    }
+
+    /**
+     * The primary session followed by the pooled ones (including those still handshaking).
+     */
+    public List<McpSession> getSessions() {
+        List<McpSession> sessions = new ArrayList<>();
+        sessions.add(primarySession);
+        sessions.addAll(sessionPool);
+        return sessions;
+    }
+
+    private void sendRequest(String requestBody) {
+        if (transport != null) {
+            transport.send(requestBody);
+        }
+    }
+
+    private void sendRequest(byte[] requestBody) {
+        if (transport != null) {
+            transport.send(requestBody);
+        }
+    }
+
+    // --- TransportListener Implementation ---
+
+    @Override
+    public void onOpen() {
+        // The race sends initialize on every attempt; only the winner is adopted
+        Log.info("[" + name + "] Transport connected.");
+    }
+
+    private JSONObject buildInitializeParams() {
+        JSONObject initParams = new JSONObject();
+        initParams.put("protocolVersion", PROTOCOL_VERSION);
+        initParams.put("capabilities", new JSONObject());
+        initParams.put("clientInfo", new JSONObject().put("name", "MCP-ASD").put("version", "1.0.1"));
+        
+        if (config.getInitializationOptions() != null && !config.getInitializationOptions().trim().isEmpty()) {
+            try {
+                JSONObject userParams = new JSONObject(config.getInitializationOptions());
+                for (String key : userParams.keySet()) {
+                    initParams.put(key, userParams.get(key));
+                }
+            } catch (Exception e) {
+                Log.error("[" + name + "] Invalid JSON in Initialization Options: " + e.getMessage());
+            }
+        }
+        return initParams;
+    }
+
+    @Override
+    public void onMessage(String data) {
+        if (data == null || data.trim().isEmpty()) return;
+        
+        Log.debug(() -> "[" + name + "] Received event data: " + Log.payload(data));
+        try {
+            // Bridge responses go straight to their pending request; only the rest is parsed
+            InboundRouter.route(data, sessionStore, this::handleMessage);
+        } catch (Exception e) {
+            Log.error("[" + name + "] Failed to parse event JSON: " + e.getMessage());
+            Log.error("[" + name + "] Raw Data was: [" + Log.payload(data) + "]");
+            
+            // Attempt recovery: Sometimes data comes as "data: {json}" but we stripped "data: ".
+            // If it's just a raw string like "Connection established", ignore.
+            // But if it looks like JSON, maybe we can clean it?
+            
+            // Critical: If we can't parse it, we must check if it's a response to a pending request.
+            // Since we can't parse the ID, we can't correlate it easily.
+            // However, we can try to extract ID via regex as a fallback.
+            try {
+                java.util.regex.Matcher m = ID_FALLBACK.matcher(data);
+                if (m.find()) {
+                    JSONObject errorResponse = new JSONObject();
+                    errorResponse.put("jsonrpc", "2.0");
+                    errorResponse.put("error", new JSONObject().put("code", -32700).put("message", "Parse Error: Server returned invalid JSON").put("data", data));
+                    if (m.group(1) != null) {
+                        String id = m.group(1);
+                        errorResponse.put("id", id);
+                        sessionStore.completeRequest(id, JsonRpcMessage.of(errorResponse));
+                    } else {
+                        long id = Long.parseLong(m.group(2));
+                        errorResponse.put("id", id);
+                        sessionStore.completeRequest(id, JsonRpcMessage.of(errorResponse));
+                    }
+                }
+            } catch (Exception ignored) {}
+        }
+    }
+    
+    /**
+     * Takes over the transport that won the race: it becomes the primary session's
+     * transport, the server info is shown and enumeration starts. Runs on the winning
+     * transport's thread before it delivers anything else.
+     */
+    private void adopt(TransportRace.Option option, McpTransport winner, JSONObject json) {
+        transport = winner;
+        primarySession.setTransport(winner);
+        if (cancelled) {
+            winner.close(); // Won just as the target was cancelled
+            return;
+        }
+        
+        Log.info("[" + name + "] Handshake successful. Sending 'notifications/initialized' and starting enumeration.");
+        handshakeDone = true;
+        if (view != null) {
+            view.setStatus("🔵 Enumerating...", java.awt.Color.BLUE.darker());
+            if (json.has("result")) {
+                view.updateServerInfo(json.getJSONObject("result"));
+            }
+        }
+
+        // Send 'notifications/initialized' notification (No ID)
+        JSONObject initializedNotify = new JSONObject();
+        initializedNotify.put("jsonrpc", "2.0");
+        initializedNotify.put("method", "notifications/initialized");
+        sendRequest(initializedNotify.toString());
+
+        // NOW trigger enumeration (first page of each list; later pages follow the cursors)
+        String toolsList = tools.nextRequest(null);
+        String resourcesList = resources.nextRequest(null);
+        String promptsList = prompts.nextRequest(null);
+        JSONObject initResult = json.optJSONObject("result");
+        String protocolVersion = initResult != null ? initResult.optString("protocolVersion") : "";
+        if (!protocolVersion.isEmpty() && !protocolVersion.equals(PROTOCOL_VERSION)) {
+            // The server's revision is the one in use from here on
+            Log.info("[" + name + "] Server answered with protocol " + protocolVersion + " instead of " + PROTOCOL_VERSION + "; using it.");
+        }
+        if (BATCH_PROTOCOL_VERSIONS.contains(protocolVersion)) {
+            // One round trip instead of three
+            Log.info("[" + name + "] Server negotiated " + protocolVersion + "; sending enumeration as one batch.");
+            sendRequest("[" + toolsList + "," + resourcesList + "," + promptsList + "]");
+        } else {
+            sendRequest(toolsList);
+            sendRequest(resourcesList);
+            sendRequest(promptsList);
+        }
+    }
+
+    /**
+     * Handles a parsed message that no bridge request was waiting for: enumeration
+     * responses (requests from the server are ignored).
+     */
+    private void handleMessage(JSONObject json) {
+        if (json != null && json.has("id") && !json.isNull("id")) {
+            String id = json.get("id").toString();
+            
+            if (id.equals(tools.requestId)) {
+                onPage(tools, json, TargetView::appendTools);
+            } 
+            else if (id.equals(resources.requestId)) {
+                onPage(resources, json, TargetView::appendResources);
+            } 
+            else if (id.equals(prompts.requestId)) {
+                onPage(prompts, json, TargetView::appendPrompts);
+            }
+        }
+    }
+
+    /**
+     * Shows one page of a list. If the server returned a {@code nextCursor}, the next page
+     * is requested before this one is rendered, so it is already in flight.
+     */
+    private void onPage(ListEnumeration list, JSONObject json, BiConsumer<TargetView, JSONObject> show) {
+        JSONObject result = json.optJSONObject("result");
+        synchronized (list) {
+            if (list.done) return; // Late response after the list was finished
+            if (result == null) {
+                if (json.has("error")) {
+                    Log.error(list.label + " Enumeration Failed: " + json.getJSONObject("error").toString());
+                }
+                list.done = true;
+            } else {
+                String cursor = result.optString("nextCursor", "");
+                if (cursor.isEmpty() || enumerationStopped) {
+                    list.done = true;
+                } else if (!list.seenCursors.add(cursor) || list.pages + 1 >= MAX_PAGES) {
+                    Log.warn(list.label + " Enumeration: Server repeated a cursor or exceeded " + MAX_PAGES + " pages; stopping.");
+                    list.done = true;
+                } else {
+                    sendRequest(list.nextRequest(cursor));
+                }
+                list.pages++;
+                list.items += pageSize(result, list.resultKey);
+            }
+            if (list.done && list.pages > 1) {
+                Log.info(list.label + " Enumeration: " + list.items + " items in " + list.pages + " pages.");
+            }
+        }
+
+        if (result != null && view != null) {
+            SwingUtilities.invokeLater(() -> show.accept(view, result));
+        }
+        checkEnumerationComplete();
+    }
+
+    private static int pageSize(JSONObject result, String key) {
+        JSONArray items = result.optJSONArray(key);
+        if (items != null) return items.length();
+        int count = 0; // Map-based servers: one member per item
+        for (String name : result.keySet()) {
+            if (result.opt(name) instanceof JSONObject) count++;
+        }
+        return count;
+    }
+
+    private void checkEnumerationComplete() {
+        if (view == null) return;
+        String counts = tools.items + " tools, " + resources.items + " resources, " + prompts.items + " prompts";
+        if (!(tools.done && resources.done && prompts.done)) {
+            if (!enumerationStopped) {
+                view.setStatus("🔵 Enumerating... " + counts, java.awt.Color.BLUE.darker());
+            }
+            return;
+        }
+        if (enumerationStopped) {
+            view.setStatus("🟡 Enumeration stopped: " + counts, java.awt.Color.ORANGE.darker());
+        } else {
+            view.setStatus("🟢 Connected & Ready", java.awt.Color.GREEN.darker());
+        }
+        view.setCancelEnabled(false);
+    }
+
+    private boolean isEnumerationComplete() {
+        return tools.done && resources.done && prompts.done;
+    }
+
+    @Override
+    public void onClose() {
+        int failed = connectionLost("transport closed");
+        Log.info("[" + name + "] Transport closed" + (failed > 0 ? "; failed " + failed + " pending request(s)." : "."));
+        if (view != null && !cancelled) {
+            view.setStatus("🔴 Disconnected", java.awt.Color.RED);
+        }
+    }
+
+    @Override
+    public void onError(Throwable t) {
+        // Only the adopted transport reports here; failed race attempts are the race's concern
+        String errorMsg = (t != null ? t.getMessage() : "Unknown error");
+        Log.error("[" + name + "] Transport failure: " + errorMsg);
+        int failed = connectionLost(errorMsg);
+        if (failed > 0) Log.info("[" + name + "] Failed " + failed + " pending request(s).");
+
+        if (view != null) {
+            view.setStatus("🔴 Failed: " + errorMsg, java.awt.Color.RED);
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package com.mcp_asd.burp.engine;
+
+import com.mcp_asd.burp.Log;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Hashed timer wheel for request deadlines. Scheduling and cancelling only enqueue
+ * (O(1), no locks); a single ticker thread moves new timeouts into their bucket,
+ * unlinks cancelled ones and fires the bucket for the current tick. Deadlines further
+ * away than one rotation wait out the extra rounds in their bucket.
+ *
+ * Deadlines fire up to one tick late, which is fine for request timeouts.
+ */
+public final class TimerWheel {
+    private static final long TICK_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+    private static final int WHEEL_SIZE = 512; // ~25 s per rotation
+
+    private static final TimerWheel SHARED = new TimerWheel("MCP-ASD-Timeouts");
+
+    /** One scheduled task; a node in its bucket's doubly linked list. */
+    public static final class Timeout {
+        private final TimerWheel wheel;
+        private final long deadlineNanos;
+        private final Runnable task;
+        private final AtomicBoolean done = new AtomicBoolean();
+        // Owned by the ticker thread
+        private long rounds;
+        private Bucket bucket;
+        private Timeout previous;
+        private Timeout next;
+
+        private Timeout(TimerWheel wheel, long deadlineNanos, Runnable task) {
+            this.wheel = wheel;
+            this.deadlineNanos = deadlineNanos;
+            this.task = task;
+        }
+
+        /**
+         * @return {@code false} if the task already ran (or was cancelled before)
+         */
+        public boolean cancel() {
+            if (!done.compareAndSet(false, true)) return false;
+            wheel.cancelled.add(this);
+            return true;
+        }
+    }
+
+    private static final class Bucket {
+        private Timeout head;
+        private Timeout tail;
+
+        void add(Timeout timeout) {
+            timeout.bucket = this;
+            if (tail == null) {
+                head = tail = timeout;
+            } else {
+                tail.next = timeout;
+                timeout.previous = tail;
+                tail = timeout;
+            }
+        }
+
+        void remove(Timeout timeout) {
+            if (timeout.previous != null) timeout.previous.next = timeout.next;
+            else head = timeout.next;
+            if (timeout.next != null) timeout.next.previous = timeout.previous;
+            else tail = timeout.previous;
+            timeout.previous = timeout.next = null;
+            timeout.bucket = null;
+        }
+    }
+
+    private final String threadName;
+    private final Bucket[] wheel = new Bucket[WHEEL_SIZE];
+    private final Queue<Timeout> added = new ConcurrentLinkedQueue<>();
+    private final Queue<Timeout> cancelled = new ConcurrentLinkedQueue<>();
+    private final long startNanos = System.nanoTime();
+    private long tick; // Only touched by the ticker thread
+    private volatile Thread ticker;
+
+    TimerWheel(String threadName) {
+        this.threadName = threadName;
+        for (int i = 0; i < WHEEL_SIZE; i++) wheel[i] = new Bucket();
+    }
+
+    /** The wheel shared by all session stores. */
+    public static TimerWheel shared() {
+        return SHARED;
+    }
+
+    /**
+     * Runs {@code task} on the ticker thread once {@code delayMillis} have passed. The task
+     * must be quick and must not block.
+     */
+    public Timeout schedule(long delayMillis, Runnable task) {
+        Timeout timeout = new Timeout(this, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(Math.max(0, delayMillis)), task);
+        added.add(timeout);
+        if (ticker == null) startTicker();
+        return timeout;
+    }
+
+    private synchronized void startTicker() {
+        if (ticker != null) return;
+        Thread thread = new Thread(this::run, threadName);
+        thread.setDaemon(true);
+        ticker = thread;
+        thread.start();
+    }
+
+    /**
+     * Stops the ticker (on extension unload). Scheduling again restarts it.
+     */
+    public synchronized void shutdown() {
+        Thread current = ticker;
+        ticker = null;
+        if (current != null) current.interrupt();
+    }
+
+    private void run() {
+        while (ticker == Thread.currentThread()) {
+            long wakeNanos = startNanos + (tick + 1) * TICK_NANOS;
+            long sleepNanos;
+            while ((sleepNanos = wakeNanos - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(this, sleepNanos);
+                if (Thread.interrupted()) return;
+            }
+
+            unlinkCancelled();
+            transferAdded();
+            expire(wheel[(int) (tick & (WHEEL_SIZE - 1))]);
+            tick++;
+        }
+    }
+
+    private void unlinkCancelled() {
+        Timeout timeout;
+        while ((timeout = cancelled.poll()) != null) {
+            if (timeout.bucket != null) timeout.bucket.remove(timeout);
+        }
+    }
+
+    private void transferAdded() {
+        Timeout timeout;
+        while ((timeout = added.poll()) != null) {
+            if (timeout.done.get()) continue; // Cancelled before it reached the wheel
+            long deadlineTick = Math.max((timeout.deadlineNanos - startNanos) / TICK_NANOS, tick);
+            timeout.rounds = (deadlineTick - tick) / WHEEL_SIZE;
+            wheel[(int) (deadlineTick & (WHEEL_SIZE - 1))].add(timeout);
+        }
+    }
+
+    private void expire(Bucket bucket) {
+        Timeout timeout = bucket.head;
+        while (timeout != null) {
+            Timeout next = timeout.next;
+            if (timeout.rounds > 0) {
+                timeout.rounds--;
+            } else {
+                bucket.remove(timeout);
+                if (timeout.done.compareAndSet(false, true)) {
+                    try {
+                        timeout.task.run();
+                    } catch (RuntimeException e) {
+                        Log.error("TimerWheel: Task failed: " + e.getMessage());
+                    }
+                }
+            }
+            timeout = next;
+        }
+    }
+}
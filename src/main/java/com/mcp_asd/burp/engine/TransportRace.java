@@ -0,0 +1,260 @@
+package com.mcp_asd.burp.engine;
+
+import com.mcp_asd.burp.Log;
+import com.mcp_asd.burp.ui.ConnectionConfiguration;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+
+/**
+ * Negotiates the transport for a target by racing the ways of reaching it. The
+ * configured transport starts first and each alternative follows a short stagger
+ * later (or immediately when an earlier one fails). Every attempt performs its own
+ * {@code initialize}; the first one the server accepts is adopted and the others are
+ * closed.
+ */
+final class TransportRace {
+    private static final long STAGGER_MILLIS = 250;
+
+    // Paths like /ws, /websocket or /mcp/socket are worth a WebSocket attempt
+    private static final Pattern WEBSOCKET_PATH = Pattern.compile("(^|/)(ws|wss|websocket|socket)(/|$|\\?)");
+
+    /** One way of reaching the server: a transport name as used by ConnectionDialog. */
+    static final class Option {
+        final String transport;
+        final boolean forceHttp1;
+
+        Option(String transport, boolean forceHttp1) {
+            this.transport = transport;
+            this.forceHttp1 = forceHttp1;
+        }
+
+        boolean sameAs(Option other) {
+            return transport.equals(other.transport) && forceHttp1 == other.forceHttp1;
+        }
+
+        @Override
+        public String toString() {
+            return forceHttp1 ? transport + " (HTTP/1.1)" : transport;
+        }
+    }
+
+    interface TransportFactory {
+        McpTransport create(Option option);
+    }
+
+    /**
+     * Takes over the winning transport. Called on the transport's thread before any
+     * later message is delivered, so the handshake can continue without a gap.
+     */
+    interface Adopter {
+        void adopt(Option option, McpTransport transport, JSONObject initializeResponse);
+    }
+
+    private final String target;
+    private final ConnectionConfiguration config;
+    private final List<Option> options;
+    private final TransportFactory factory;
+    private final JSONObject initializeParams;
+    private final TransportListener delegate;
+    private final Adopter adopter;
+    private final CompletableFuture<Option> result = new CompletableFuture<>();
+    private final List<Attempt> attempts = new CopyOnWriteArrayList<>();
+    private final AtomicInteger launched = new AtomicInteger();
+    private final AtomicInteger failed = new AtomicInteger();
+
+    /**
+     * @param delegate receives the winning transport's events once it has been adopted
+     */
+    TransportRace(String target, ConnectionConfiguration config, List<Option> options, TransportFactory factory,
+                  JSONObject initializeParams, TransportListener delegate, Adopter adopter) {
+        this.target = target;
+        this.config = config;
+        this.options = options;
+        this.factory = factory;
+        this.initializeParams = initializeParams;
+        this.delegate = delegate;
+        this.adopter = adopter;
+    }
+
+    /**
+     * The configured transport first, then Streamable HTTP, SSE over HTTP/2 and HTTP/1.1,
+     * POST-only and WebSocket (only when the path suggests one). Forcing HTTP/1.1 only
+     * matters over TLS, where HTTP/2 is negotiated. A locally launched (stdio) server
+     * has no alternatives.
+     */
+    static List<Option> optionsFor(ConnectionConfiguration config) {
+        if (config.isStdio()) return List.of(new Option("stdio", false));
+        boolean tls = config.isUseTls() || config.isUseMtls();
+        String path = config.getPath() == null ? "" : config.getPath().toLowerCase(Locale.ROOT);
+        List<Option> candidates = new ArrayList<>();
+        candidates.add(new Option(config.getTransport(), false));
+        candidates.add(new Option("Streamable HTTP", false));
+        candidates.add(new Option("SSE", false));
+        if (tls) candidates.add(new Option("SSE", true));
+        candidates.add(new Option("HTTP (POST only)", false));
+        if (WEBSOCKET_PATH.matcher(path).find()) candidates.add(new Option("WebSocket", false));
+
+        List<Option> options = new ArrayList<>();
+        for (Option candidate : candidates) {
+            if (options.stream().noneMatch(candidate::sameAs)) options.add(candidate);
+        }
+        return options;
+    }
+
+    /**
+     * Starts the race.
+     *
+     * @return completes with the adopted option, or exceptionally with the last failure
+     *         once every option has failed
+     */
+    CompletableFuture<Option> start() {
+        launchNext();
+        for (int i = 1; i < options.size(); i++) {
+            CompletableFuture.delayedExecutor(i * STAGGER_MILLIS, TimeUnit.MILLISECONDS).execute(this::launchNext);
+        }
+        return result;
+    }
+
+    /**
+     * Gives up on the race (target cancelled or handshake timed out). A transport that
+     * was already adopted is left to its owner.
+     */
+    void cancel() {
+        result.completeExceptionally(new CancellationException("Transport negotiation cancelled"));
+        closeLosers(null);
+    }
+
+    private void launchNext() {
+        if (result.isDone()) return;
+        int index = launched.getAndIncrement();
+        if (index >= options.size()) return;
+
+        Option option = options.get(index);
+        Attempt attempt = new Attempt(option);
+        attempts.add(attempt);
+        Log.info("[" + target + "] Trying " + option + "...");
+        try {
+            attempt.transport = factory.create(option);
+            attempt.transport.connect(config, attempt);
+        } catch (Exception e) {
+            attempt.fail(e);
+        }
+        // Cancelled or decided while this attempt was connecting
+        if (result.isDone() && !attempt.adopted) attempt.close();
+    }
+
+    private void closeLosers(Attempt winner) {
+        for (Attempt attempt : attempts) {
+            if (attempt != winner && !attempt.adopted) attempt.close();
+        }
+    }
+
+    /** Listens to one attempt until it wins (then forwards to the delegate) or loses. */
+    private final class Attempt implements TransportListener {
+        private final Option option;
+        private volatile McpTransport transport;
+        private volatile String initializeRequestId;
+        private volatile boolean adopted;
+        private volatile boolean closed;
+
+        Attempt(Option option) {
+            this.option = option;
+        }
+
+        @Override
+        public void onOpen() {
+            if (adopted || result.isDone()) return;
+            initializeRequestId = java.util.UUID.randomUUID().toString();
+            JSONObject initRequest = new JSONObject();
+            initRequest.put("jsonrpc", "2.0");
+            initRequest.put("method", "initialize");
+            initRequest.put("params", initializeParams);
+            initRequest.put("id", initializeRequestId);
+            transport.send(initRequest.toString());
+        }
+
+        @Override
+        public void onMessage(String message) {
+            if (adopted) {
+                delegate.onMessage(message);
+                return;
+            }
+            if (result.isDone() || message == null || initializeRequestId == null) return;
+
+            JSONObject json;
+            try {
+                json = new JSONObject(message.trim());
+            } catch (Exception e) {
+                return; // Not the handshake response (e.g. a keep-alive or a batch)
+            }
+            Object id = json.opt("id");
+            if (json.has("method") || id == null || !initializeRequestId.equals(id.toString())) {
+                return;
+            }
+            if (json.has("error")) {
+                fail(new IllegalStateException("initialize failed: " + json.get("error")));
+                return;
+            }
+            win(json);
+        }
+
+        private void win(JSONObject initializeResponse) {
+            synchronized (TransportRace.this) {
+                if (result.isDone()) {
+                    close();
+                    return;
+                }
+                adopted = true;
+                Log.info("[" + target + "] " + option + " answered first; using it.");
+                adopter.adopt(option, transport, initializeResponse);
+                result.complete(option);
+            }
+            closeLosers(this);
+        }
+
+        void fail(Throwable error) {
+            if (closed) return; // Already counted (or closed by the race)
+            if (result.isDone()) {
+                close();
+                return;
+            }
+            Log.info("[" + target + "] " + option + " failed: " + (error != null ? error.getMessage() : "Unknown error"));
+            close();
+            if (failed.incrementAndGet() >= options.size()) {
+                result.completeExceptionally(error != null ? error : new IllegalStateException("Transport failure"));
+            } else {
+                launchNext(); // Don't wait out the stagger behind a failed attempt
+            }
+        }
+
+        void close() {
+            if (closed) return;
+            closed = true;
+            McpTransport current = transport;
+            if (current != null) current.close();
+        }
+
+        @Override
+        public void onClose() {
+            if (adopted) delegate.onClose();
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            if (adopted) {
+                delegate.onError(t);
+            } else {
+                fail(t);
+            }
+        }
+    }
+}
@@ -9,18 +9,12 @@ import okhttp3.WebSocketListener;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
-import java.net.InetSocketAddress;
-import java.net.Proxy;
 import java.util.concurrent.TimeUnit;
 
 import com.mcp_asd.burp.ui.ConnectionConfiguration;
 import com.mcp_asd.burp.GlobalSettings;
-import javax.net.ssl.*;
-import java.io.FileInputStream;
-import java.security.KeyStore;
-import java.security.SecureRandom;
-import java.security.cert.CertificateException;
-import java.util.concurrent.TimeUnit;
+import com.mcp_asd.burp.HttpClients;
+import com.mcp_asd.burp.Log;
 
 public class WebSocketTransport implements McpTransport {
     private final MontoyaApi api;
@@ -38,50 +32,9 @@ public class WebSocketTransport implements McpTransport {
     public void connect(ConnectionConfiguration config, TransportListener listener) {
         this.config = config;
 
-        OkHttpClient.Builder builder = new OkHttpClient.Builder()
-                .readTimeout(0, TimeUnit.SECONDS);
-        
-        // --- SSL Configuration ---
-        try {
-            // Create a trust manager that does not validate certificate chains
-            final TrustManager[] trustAllCerts = new TrustManager[] {
-                new X509TrustManager() {
-                    @Override
-                    public void checkClientTrusted(java.security.cert.X509Certificate[] chain, String authType) throws CertificateException {}
-                    @Override
-                    public void checkServerTrusted(java.security.cert.X509Certificate[] chain, String authType) throws CertificateException {}
-                    @Override
-                    public java.security.cert.X509Certificate[] getAcceptedIssuers() { return new java.security.cert.X509Certificate[]{}; }
-                }
-            };
-
-            // Install the all-trusting trust manager
-            final SSLContext sslContext = SSLContext.getInstance("SSL");
-            sslContext.init(null, trustAllCerts, new java.security.SecureRandom());
-            final SSLSocketFactory sslSocketFactory = sslContext.getSocketFactory();
-
-            builder.sslSocketFactory(sslSocketFactory, (X509TrustManager)trustAllCerts[0]);
-            builder.hostnameVerifier((hostname, session) -> true);
-
-        } catch (Exception e) {
-            api.logging().logToError("WebSocketTransport: Failed to create insecure SSL context: " + e.getMessage());
-        }
-        // -------------------------
-        
-        if (settings != null && settings.isProxyTrafficEnabled()) {
-             String host = settings.getProxyHost();
-             int port = settings.getProxyPort();
-             if (host != null && !host.isEmpty() && port > 0) {
-                 api.logging().logToOutput("WebSocketTransport: Using proxy " + host + ":" + port);
-                 builder.proxy(new Proxy(Proxy.Type.HTTP, new InetSocketAddress(host, port)));
-             }
-        }
-
-        if (config.isUseMtls()) {
-            configureMtls(builder, config);
-        }
-
-        client = builder.build();
+        client = HttpClients.forTarget(config, false).newBuilder()
+                .readTimeout(0, TimeUnit.SECONDS)
+                .build();
 
         String url = "http://" + config.getHost() + ":" + config.getPort() + config.getPath();
         if (config.isUseTls() || config.isUseMtls()) {
@@ -132,49 +85,21 @@ public class WebSocketTransport implements McpTransport {
         });
     }
 
-    private void configureMtls(OkHttpClient.Builder builder, ConnectionConfiguration config) {
-        try {
-            KeyStore keyStore = KeyStore.getInstance("PKCS12");
-            try (FileInputStream fis = new FileInputStream(config.getClientCertPath())) {
-                keyStore.load(fis, config.getClientCertPassword().toCharArray());
-            }
-
-            KeyManagerFactory kmf = KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
-            kmf.init(keyStore, config.getClientCertPassword().toCharArray());
-
-            // Reuse trust-all manager so self-signed certs still work with mTLS
-            final TrustManager[] trustAllCerts = new TrustManager[]{
-                new X509TrustManager() {
-                    @Override public void checkClientTrusted(java.security.cert.X509Certificate[] chain, String authType) throws CertificateException {}
-                    @Override public void checkServerTrusted(java.security.cert.X509Certificate[] chain, String authType) throws CertificateException {}
-                    @Override public java.security.cert.X509Certificate[] getAcceptedIssuers() { return new java.security.cert.X509Certificate[]{}; }
-                }
-            };
-            SSLContext sslContext = SSLContext.getInstance("TLS");
-            sslContext.init(kmf.getKeyManagers(), trustAllCerts, new SecureRandom());
-            builder.sslSocketFactory(sslContext.getSocketFactory(), (X509TrustManager) trustAllCerts[0]);
-        } catch (Exception e) {
-            api.logging().logToError("Failed to configure mTLS for WebSocket: " + e.getMessage());
-        }
-    }
-
     @Override
     public void send(String message) {
         if (webSocket != null) {
-            api.logging().logToOutput("WebSocketTransport: Sending: " + message);
+            Log.debug(() -> "WebSocketTransport: Sending: " + Log.payload(message));
             webSocket.send(message);
         } else {
-            api.logging().logToError("WebSocketTransport: Cannot send, socket is null.");
+            Log.error("WebSocketTransport: Cannot send, socket is null.");
         }
     }
 
     @Override
     public void close() {
+        // The client's pool and dispatcher are shared, so only this socket is closed
         if (webSocket != null) {
             webSocket.close(1000, "Closing");
         }
-        if (client != null) {
-            client.dispatcher().executorService().shutdown();
-        }
     }
 }
@@ -0,0 +1,36 @@
+package com.mcp_asd.burp.journal;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * One journaled JSON-RPC frame, as read back from a segment.
+ */
+public final class JournalEntry {
+    private final long timestampMillis;
+    private final TrafficJournal.Direction direction;
+    private final String session;
+    private final List<String> ids;
+    private final byte[] payload;
+
+    JournalEntry(long timestampMillis, TrafficJournal.Direction direction, String session, List<String> ids, byte[] payload) {
+        this.timestampMillis = timestampMillis;
+        this.direction = direction;
+        this.session = session;
+        this.ids = ids;
+        this.payload = payload;
+    }
+
+    public long getTimestampMillis() { return timestampMillis; }
+    public TrafficJournal.Direction getDirection() { return direction; }
+    public String getSession() { return session; }
+
+    /** Correlation ids in the frame (one per element for batches); empty for id-less notifications. */
+    public List<String> getIds() { return ids; }
+
+    public byte[] getPayload() { return payload; }
+
+    public String getPayloadString() {
+        return new String(payload, StandardCharsets.UTF_8);
+    }
+}
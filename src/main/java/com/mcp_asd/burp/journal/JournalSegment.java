@@ -0,0 +1,330 @@
+package com.mcp_asd.burp.journal;
+
+import com.mcp_asd.burp.Log;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * One journal segment: a memory-mapped data file of length-prefixed records plus a
+ * memory-mapped index file. The index holds a time index (timestamp and record offset
+ * per entry, in append order, so it can be binary searched) followed by an
+ * open-addressing hash table from (session, correlation id) to record offset, so ids
+ * that restart at 1 on every session don't pile up in one probe run.
+ *
+ * The entry count in the data header is written last on every append, so a reader
+ * mapping the active segment only sees complete records.
+ *
+ * The mappings are released by {@link #close()} rather than left to the garbage
+ * collector: a file that is still mapped can't be deleted on Windows. Lookups
+ * {@link #retain()} the segment first, so it is only unmapped once they are done.
+ */
+final class JournalSegment {
+    static final String DATA_SUFFIX = ".journal";
+    static final String INDEX_SUFFIX = ".index";
+    static final int HEADER_BYTES = 64;
+
+    private static final int MAGIC = 0x4D434A31; // "MCJ1"
+
+    // Data header layout
+    private static final int H_MAGIC = 0;
+    private static final int H_MAX_ENTRIES = 4;
+    private static final int H_HASH_SLOTS = 8;
+    private static final int H_ENTRIES = 12;
+    private static final int H_IDS = 16;
+    private static final int H_WRITE_POSITION = 20;
+    private static final int H_FIRST_TIMESTAMP = 24;
+    private static final int H_LAST_TIMESTAMP = 32;
+
+    private static final int TIME_SLOT = 12; // long timestamp, int record offset
+    private static final int HASH_SLOT = 8;  // int (session, id) hash (0 = empty), int record offset
+
+    // Record layout: int length (of the rest), long timestamp, byte direction,
+    // byte session length, session, short id count, {short length, id}*, payload
+    private static final int FIXED_RECORD_BYTES = 4 + 8 + 1 + 1 + 2;
+
+    // sun.misc.Unsafe.invokeCleaner, or null if this JVM doesn't offer it
+    private static final Object UNSAFE;
+    private static final Method INVOKE_CLEANER;
+
+    static {
+        Object unsafe = null;
+        Method invokeCleaner = null;
+        try {
+            Class<?> type = Class.forName("sun.misc.Unsafe");
+            Field field = type.getDeclaredField("theUnsafe");
+            field.setAccessible(true);
+            unsafe = field.get(null);
+            invokeCleaner = type.getMethod("invokeCleaner", ByteBuffer.class);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            Log.warn("Journal: Cannot unmap segments explicitly; old segments may not be deletable until GC runs: " + e.getMessage());
+        }
+        UNSAFE = unsafe;
+        INVOKE_CLEANER = invokeCleaner;
+    }
+
+    private final Path dataFile;
+    private final MappedByteBuffer data;
+    private final MappedByteBuffer index;
+    private final int maxEntries;
+    private final int hashSlots;
+    // The owner's reference plus one per lookup in progress; unmapped when it drops to 0
+    private final AtomicInteger references = new AtomicInteger(1);
+    private final AtomicBoolean closed = new AtomicBoolean(false);
+
+    private JournalSegment(Path dataFile, MappedByteBuffer data, MappedByteBuffer index) {
+        this.dataFile = dataFile;
+        this.data = data;
+        this.index = index;
+        this.maxEntries = data.getInt(H_MAX_ENTRIES);
+        this.hashSlots = data.getInt(H_HASH_SLOTS);
+    }
+
+    /**
+     * Creates and maps a new, empty segment. The hash table gets at least twice as many
+     * slots as there are time index slots, so it stays at most half full.
+     */
+    static JournalSegment create(Path dataFile, int dataBytes, int maxEntries) throws IOException {
+        int hashSlots = Integer.highestOneBit(2 * maxEntries - 1) << 1;
+        try (FileChannel dataChannel = FileChannel.open(dataFile, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+             FileChannel indexChannel = FileChannel.open(indexFile(dataFile), StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer data = dataChannel.map(FileChannel.MapMode.READ_WRITE, 0, dataBytes);
+            MappedByteBuffer index = indexChannel.map(FileChannel.MapMode.READ_WRITE, 0, (long) maxEntries * TIME_SLOT + (long) hashSlots * HASH_SLOT);
+            data.putInt(H_MAX_ENTRIES, maxEntries);
+            data.putInt(H_HASH_SLOTS, hashSlots);
+            data.putInt(H_WRITE_POSITION, HEADER_BYTES);
+            data.putInt(H_MAGIC, MAGIC);
+            return new JournalSegment(dataFile, data, index);
+        }
+    }
+
+    /**
+     * Maps an existing segment read-only (it may still be written by the journal).
+     *
+     * @return {@code null} if the journal is still creating the segment (its magic
+     *         number, written last, isn't there yet)
+     */
+    static JournalSegment open(Path dataFile) throws IOException {
+        try (FileChannel dataChannel = FileChannel.open(dataFile, StandardOpenOption.READ);
+             FileChannel indexChannel = FileChannel.open(indexFile(dataFile), StandardOpenOption.READ)) {
+            MappedByteBuffer data = dataChannel.map(FileChannel.MapMode.READ_ONLY, 0, dataChannel.size());
+            int magic = data.capacity() < HEADER_BYTES ? 0 : data.getInt(H_MAGIC);
+            if (magic != MAGIC) {
+                unmap(data);
+                if (magic == 0) return null;
+                throw new IOException("Not a journal segment: " + dataFile);
+            }
+            MappedByteBuffer index = indexChannel.map(FileChannel.MapMode.READ_ONLY, 0, indexChannel.size());
+            return new JournalSegment(dataFile, data, index);
+        }
+    }
+
+    static Path indexFile(Path dataFile) {
+        String name = dataFile.getFileName().toString();
+        return dataFile.resolveSibling(name.substring(0, name.length() - DATA_SUFFIX.length()) + INDEX_SUFFIX);
+    }
+
+    static int recordBytes(byte[] session, byte[][] ids, byte[] payload) {
+        int bytes = FIXED_RECORD_BYTES + session.length + payload.length;
+        for (byte[] id : ids) bytes += 2 + id.length;
+        return bytes;
+    }
+
+    Path getDataFile() { return dataFile; }
+    int getEntryCount() { return data.getInt(H_ENTRIES); }
+    long getFirstTimestamp() { return data.getLong(H_FIRST_TIMESTAMP); }
+    long getLastTimestamp() { return data.getLong(H_LAST_TIMESTAMP); }
+
+    /**
+     * Appends one record. Callers serialize appends.
+     *
+     * @return {@code false} if the segment is full; the caller rolls to a new one
+     */
+    boolean append(long timestamp, TrafficJournal.Direction direction, byte[] session, byte[][] ids, byte[] payload) {
+        int entries = data.getInt(H_ENTRIES);
+        int indexedIds = data.getInt(H_IDS);
+        int position = data.getInt(H_WRITE_POSITION);
+        int recordBytes = recordBytes(session, ids, payload);
+        if (entries >= maxEntries || indexedIds + ids.length > hashSlots / 2 || (long) position + recordBytes > data.capacity()) {
+            return false;
+        }
+
+        int p = position;
+        data.putInt(p, recordBytes - 4);
+        data.putLong(p + 4, timestamp);
+        data.put(p + 12, (byte) direction.ordinal());
+        data.put(p + 13, (byte) session.length);
+        data.put(p + 14, session);
+        p += 14 + session.length;
+        data.putShort(p, (short) ids.length);
+        p += 2;
+        for (byte[] id : ids) {
+            data.putShort(p, (short) id.length);
+            data.put(p + 2, id);
+            p += 2 + id.length;
+        }
+        data.put(p, payload);
+
+        index.putLong(entries * TIME_SLOT, timestamp);
+        index.putInt(entries * TIME_SLOT + 8, position);
+        for (byte[] id : ids) {
+            insertId(hash(session, id), position);
+        }
+
+        if (entries == 0) data.putLong(H_FIRST_TIMESTAMP, timestamp);
+        data.putLong(H_LAST_TIMESTAMP, timestamp);
+        data.putInt(H_WRITE_POSITION, position + recordBytes);
+        data.putInt(H_IDS, indexedIds + ids.length);
+        data.putInt(H_ENTRIES, entries + 1);
+        return true;
+    }
+
+    private void insertId(int hash, int offset) {
+        int base = maxEntries * TIME_SLOT;
+        int mask = hashSlots - 1;
+        for (int slot = hash & mask; ; slot = (slot + 1) & mask) {
+            int at = base + slot * HASH_SLOT;
+            if (index.getInt(at) == 0) {
+                index.putInt(at + 4, offset);
+                index.putInt(at, hash);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Adds every record of {@code session} carrying {@code id} to {@code found}, in
+     * append order.
+     *
+     * @param session the session name as stored (UTF-8, truncated like on append)
+     */
+    void findById(byte[] session, String id, List<JournalEntry> found) {
+        int entries = data.getInt(H_ENTRIES);
+        if (entries == 0) return;
+        int hash = hash(session, id.getBytes(StandardCharsets.UTF_8));
+        int base = maxEntries * TIME_SLOT;
+        int mask = hashSlots - 1;
+        TreeSet<Integer> offsets = new TreeSet<>();
+        for (int slot = hash & mask; ; slot = (slot + 1) & mask) {
+            int at = base + slot * HASH_SLOT;
+            int stored = index.getInt(at);
+            if (stored == 0) break;
+            if (stored == hash) offsets.add(index.getInt(at + 4));
+        }
+        String sessionName = new String(session, StandardCharsets.UTF_8);
+        for (int offset : offsets) {
+            JournalEntry entry = read(offset);
+            // Hash collisions
+            if (entry.getSession().equals(sessionName) && entry.getIds().contains(id)) found.add(entry);
+        }
+    }
+
+    /**
+     * Streams the records with {@code from <= timestamp <= to} to {@code consumer}.
+     */
+    void forEachInRange(long from, long to, Consumer<JournalEntry> consumer) {
+        int entries = data.getInt(H_ENTRIES);
+        if (entries == 0 || getLastTimestamp() < from || getFirstTimestamp() > to) return;
+
+        int low = 0;
+        int high = entries;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (index.getLong(mid * TIME_SLOT) < from) low = mid + 1;
+            else high = mid;
+        }
+        for (int i = low; i < entries; i++) {
+            if (index.getLong(i * TIME_SLOT) > to) break;
+            consumer.accept(read(index.getInt(i * TIME_SLOT + 8)));
+        }
+    }
+
+    private JournalEntry read(int offset) {
+        int end = offset + 4 + data.getInt(offset);
+        long timestamp = data.getLong(offset + 4);
+        TrafficJournal.Direction direction = TrafficJournal.Direction.values()[data.get(offset + 12)];
+        int sessionLength = data.get(offset + 13) & 0xFF;
+        String session = string(offset + 14, sessionLength);
+        int p = offset + 14 + sessionLength;
+        int idCount = data.getShort(p) & 0xFFFF;
+        p += 2;
+        List<String> ids = new ArrayList<>(idCount);
+        for (int i = 0; i < idCount; i++) {
+            int length = data.getShort(p) & 0xFFFF;
+            ids.add(string(p + 2, length));
+            p += 2 + length;
+        }
+        byte[] payload = new byte[end - p];
+        data.get(p, payload);
+        return new JournalEntry(timestamp, direction, session, ids, payload);
+    }
+
+    private String string(int at, int length) {
+        byte[] bytes = new byte[length];
+        data.get(at, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    void force() {
+        data.force();
+        index.force();
+    }
+
+    /**
+     * Keeps the segment mapped until the matching {@link #release()}.
+     *
+     * @return {@code false} if the segment has already been unmapped
+     */
+    boolean retain() {
+        for (int current = references.get(); current > 0; current = references.get()) {
+            if (references.compareAndSet(current, current + 1)) return true;
+        }
+        return false;
+    }
+
+    void release() {
+        if (references.decrementAndGet() == 0) {
+            unmap(data);
+            unmap(index);
+        }
+    }
+
+    /**
+     * Drops the owner's reference: the segment is unmapped now, or once the lookups
+     * still reading it release it.
+     */
+    void close() {
+        if (closed.compareAndSet(false, true)) release();
+    }
+
+    private static void unmap(MappedByteBuffer buffer) {
+        if (INVOKE_CLEANER == null) return;
+        try {
+            INVOKE_CLEANER.invoke(UNSAFE, buffer);
+        } catch (ReflectiveOperationException e) {
+            Log.warn("Journal: Failed to unmap a segment: " + e.getMessage());
+        }
+    }
+
+    private static int hash(byte[] session, byte[] id) {
+        int h = 31 * Arrays.hashCode(session) + Arrays.hashCode(id);
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        return h == 0 ? 1 : h; // 0 marks an empty slot
+    }
+}
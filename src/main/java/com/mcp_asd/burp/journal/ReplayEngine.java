@@ -0,0 +1,389 @@
+package com.mcp_asd.burp.journal;
+
+import com.mcp_asd.burp.GlobalSettings;
+import com.mcp_asd.burp.Log;
+import com.mcp_asd.burp.bridge.LatencyHistogram;
+import com.mcp_asd.burp.engine.CanonicalJson;
+import com.mcp_asd.burp.engine.EnumerationEngine;
+import com.mcp_asd.burp.engine.JsonRpcMessage;
+import com.mcp_asd.burp.engine.JsonRpcScanner;
+import com.mcp_asd.burp.engine.McpSession;
+import com.mcp_asd.burp.engine.TargetConnection;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Replays the client-to-server frames recorded in the {@link TrafficJournal} against
+ * the live connection, at the original timing, at a fixed rate or as fast as
+ * possible. Every request gets a fresh id registered in the session's
+ * {@code SessionStore}; its response is compared with the recorded one (result, or
+ * error code) and both latencies are reported.
+ *
+ * Frames are streamed from the journal while replaying, so long recordings are not
+ * loaded into memory. The recorded response is looked up on the replay thread while
+ * the frame waits for its send time. Replayed responses are compared on a results
+ * thread of their own, never on the transport or timer thread that completed them.
+ */
+public class ReplayEngine {
+
+    public enum Pacing { ORIGINAL_TIMING, FIXED_RATE, MAX_SPEED }
+
+    public enum Outcome { MATCH, DRIFT, NOT_RECORDED, TIMEOUT, FAILED }
+
+    // Part of the handshake the live connection already did, or tied to recorded ids
+    private static final Set<String> SKIPPED_METHODS = Set.of("initialize", "notifications/initialized", "notifications/cancelled");
+
+    public interface Listener {
+        void onResult(Result result);
+        void onFinished(Summary summary);
+    }
+
+    public static final class Result {
+        private final String method;
+        private final String recordedId;
+        private final long recordedMillis;
+        private final long replayedMillis;
+        private final Outcome outcome;
+
+        Result(String method, String recordedId, long recordedMillis, long replayedMillis, Outcome outcome) {
+            this.method = method;
+            this.recordedId = recordedId;
+            this.recordedMillis = recordedMillis;
+            this.replayedMillis = replayedMillis;
+            this.outcome = outcome;
+        }
+
+        public String getMethod() { return method; }
+        public String getRecordedId() { return recordedId; }
+        /** Recorded round trip (millisecond resolution), or -1 if no response was recorded. */
+        public long getRecordedMillis() { return recordedMillis; }
+        /** Replayed round trip, or -1 if it timed out or failed. */
+        public long getReplayedMillis() { return replayedMillis; }
+        public Outcome getOutcome() { return outcome; }
+    }
+
+    public static final class Summary {
+        private final LatencyHistogram recorded = new LatencyHistogram();
+        private final LatencyHistogram replayed = new LatencyHistogram();
+        private final AtomicLong[] outcomes = new AtomicLong[Outcome.values().length];
+        private final AtomicLong frames = new AtomicLong();
+        private volatile boolean cancelled;
+
+        Summary() {
+            for (int i = 0; i < outcomes.length; i++) outcomes[i] = new AtomicLong();
+        }
+
+        public LatencyHistogram getRecorded() { return recorded; }
+        public LatencyHistogram getReplayed() { return replayed; }
+        public long getCount(Outcome outcome) { return outcomes[outcome.ordinal()].get(); }
+        /** Frames sent, including notifications. */
+        public long getFrames() { return frames.get(); }
+        public boolean isCancelled() { return cancelled; }
+    }
+
+    private final TrafficJournal journal;
+    private final EnumerationEngine engine;
+    private final GlobalSettings settings;
+    private volatile Thread worker;
+
+    public ReplayEngine(TrafficJournal journal, EnumerationEngine engine, GlobalSettings settings) {
+        this.journal = journal;
+        this.engine = engine;
+        this.settings = settings;
+    }
+
+    public boolean isRunning() {
+        return worker != null;
+    }
+
+    /**
+     * Starts replaying the frames journaled between {@code fromMillis} and
+     * {@code toMillis} on a background thread, against the current default target.
+     *
+     * @param session only replay frames recorded on this session, or {@code null} for all
+     * @param rate    frames per second for {@link Pacing#FIXED_RATE}
+     * @return {@code false} if a replay is already running
+     * @throws IllegalStateException if there is no live connection to replay against
+     */
+    public synchronized boolean start(long fromMillis, long toMillis, String session, Pacing pacing, double rate, Listener listener) {
+        if (worker != null) return false;
+        TargetConnection target = engine.resolveTarget(null);
+        if (target == null || target.selectSession() == null) {
+            throw new IllegalStateException("Not connected to an MCP server");
+        }
+        // Frames journaled by the replay itself must not be picked up again
+        long to = Math.min(toMillis, System.currentTimeMillis());
+        Thread thread = new Thread(() -> run(target, fromMillis, to, session, pacing, rate, listener), "MCP-ASD-Replay");
+        thread.setDaemon(true);
+        worker = thread;
+        thread.start();
+        return true;
+    }
+
+    public void cancel() {
+        Thread current = worker;
+        if (current != null) current.interrupt();
+    }
+
+    private void run(TargetConnection connection, long fromMillis, long toMillis, String session, Pacing pacing, double rate, Listener listener) {
+        Summary summary = new Summary();
+        ThreadPoolExecutor results = new ThreadPoolExecutor(1, 1, 0, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), task -> {
+            Thread thread = new Thread(task, "MCP-ASD-Replay-Results");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // One extra count for the sender, so the summary fires after the last response
+        AtomicInteger pending = new AtomicInteger(1);
+        Runnable done = () -> {
+            if (pending.decrementAndGet() == 0) {
+                listener.onFinished(summary);
+                results.shutdown();
+            }
+        };
+        long timeoutMillis = TimeUnit.SECONDS.toMillis(settings.getBridgeTimeoutSeconds());
+        long intervalNanos = pacing == Pacing.FIXED_RATE && rate > 0 ? (long) (1e9 / rate) : 0;
+        long[] firstRecorded = {-1};
+        long startNanos = System.nanoTime();
+
+        Log.info("Replay: Started (" + pacing + ") against " + connection.getName());
+        try {
+            journal.forEachInRange(fromMillis, toMillis, entry -> {
+                if (Thread.currentThread().isInterrupted()) throw new CancellationSignal();
+                if (entry.getDirection() != TrafficJournal.Direction.OUTBOUND) return;
+                if (session != null && !session.equals(entry.getSession())) return;
+
+                byte[] frame = entry.getPayload();
+                McpSession target = connection.selectSession();
+                if (target == null) {
+                    Log.warn("Replay: No live session left on " + connection.getName() + "; stopping.");
+                    throw new CancellationSignal();
+                }
+                List<Pending> requests = new ArrayList<>();
+                byte[] replayFrame = rewrite(frame, target, requests);
+                if (replayFrame == null) return;
+                for (Pending request : requests) {
+                    request.recorded = findRecordedResponse(request.recordedId, entry);
+                }
+
+                // Pace by the frame's position in the recording or its sequence number
+                long sequence = summary.frames.get();
+                if (firstRecorded[0] < 0) firstRecorded[0] = entry.getTimestampMillis();
+                long dueNanos;
+                if (pacing == Pacing.ORIGINAL_TIMING) {
+                    dueNanos = startNanos + TimeUnit.MILLISECONDS.toNanos(entry.getTimestampMillis() - firstRecorded[0]);
+                } else {
+                    dueNanos = startNanos + sequence * intervalNanos;
+                }
+                long waitNanos = dueNanos - System.nanoTime();
+                if (waitNanos > 0) {
+                    try {
+                        TimeUnit.NANOSECONDS.sleep(waitNanos);
+                    } catch (InterruptedException e) {
+                        throw new CancellationSignal();
+                    }
+                }
+
+                long sentNanos = System.nanoTime();
+                for (Pending request : requests) {
+                    pending.incrementAndGet();
+                    CompletableFuture<JsonRpcMessage> future = target.track(new CompletableFuture<>());
+                    target.getSessionStore().registerRequest(request.replayId, future, timeoutMillis);
+                    future.whenComplete((response, error) -> {
+                        long replayedNanos = System.nanoTime() - sentNanos;
+                        results.execute(() -> {
+                            try {
+                                listener.onResult(complete(request, entry, response, error, replayedNanos, target, summary));
+                            } finally {
+                                done.run();
+                            }
+                        });
+                    });
+                }
+                summary.frames.incrementAndGet();
+                if (!target.send(replayFrame)) {
+                    // Closed after selection: fail what was registered now, not at the timeout
+                    for (Pending request : requests) {
+                        target.getSessionStore().failRequest(request.replayId, new McpSession.ClosedException("Session closed before the frame was sent"));
+                    }
+                }
+            });
+        } catch (CancellationSignal e) {
+            summary.cancelled = true;
+            Log.info("Replay: Cancelled.");
+        } catch (IOException | RuntimeException e) {
+            summary.cancelled = true;
+            Log.error("Replay: Failed to read the journal: " + e.getMessage());
+        } finally {
+            synchronized (this) {
+                worker = null;
+            }
+            Log.info("Replay: Sent " + summary.getFrames() + " frame(s).");
+            results.execute(done);
+        }
+    }
+
+    // Runs on the results thread
+    private Result complete(Pending request, JournalEntry sent, JsonRpcMessage response, Throwable error,
+                            long replayedNanos, McpSession target, Summary summary) {
+        JournalEntry recordedResponse = request.recorded;
+        long recordedMillis = recordedResponse == null ? -1 : recordedResponse.getTimestampMillis() - sent.getTimestampMillis();
+        if (recordedMillis >= 0) {
+            summary.recorded.recordNanos(TimeUnit.MILLISECONDS.toNanos(recordedMillis));
+        }
+
+        Outcome outcome;
+        long replayedMillis = -1;
+        if (error != null) {
+            if (isTimeout(error)) {
+                target.cancelRequest(request.replayId, "Replay timeout");
+            }
+            outcome = isTimeout(error) ? Outcome.TIMEOUT : Outcome.FAILED;
+        } else {
+            summary.replayed.recordNanos(replayedNanos);
+            replayedMillis = TimeUnit.NANOSECONDS.toMillis(replayedNanos);
+            if (recordedResponse == null) {
+                outcome = Outcome.NOT_RECORDED;
+            } else {
+                outcome = fingerprint(response).equals(fingerprint(recordedResponse, request.recordedId)) ? Outcome.MATCH : Outcome.DRIFT;
+            }
+        }
+        summary.outcomes[outcome.ordinal()].incrementAndGet();
+        return new Result(request.method, request.recordedId, recordedMillis, replayedMillis, outcome);
+    }
+
+    /**
+     * The first response journaled on the same session after the request.
+     */
+    private JournalEntry findRecordedResponse(String recordedId, JournalEntry sent) {
+        try {
+            for (JournalEntry candidate : journal.findById(sent.getSession(), recordedId)) {
+                if (candidate.getDirection() == TrafficJournal.Direction.INBOUND
+                        && candidate.getTimestampMillis() >= sent.getTimestampMillis()) {
+                    return candidate;
+                }
+            }
+        } catch (IOException e) {
+            Log.warn("Replay: Journal lookup failed for " + recordedId + ": " + e.getMessage());
+        }
+        return null;
+    }
+
+    /**
+     * What two responses are compared on: the canonical result, or just the error code
+     * (messages often embed ids or timestamps).
+     */
+    private static String fingerprint(JSONObject response) {
+        if (response.has("error")) {
+            JSONObject error = response.optJSONObject("error");
+            return "error " + (error != null ? error.opt("code") : null);
+        }
+        return "result " + CanonicalJson.write(response.opt("result"));
+    }
+
+    private static String fingerprint(JsonRpcMessage response) {
+        try {
+            return fingerprint(response.toJson());
+        } catch (RuntimeException e) {
+            return "unparseable";
+        }
+    }
+
+    private static String fingerprint(JournalEntry recorded, String recordedId) {
+        String payload = recorded.getPayloadString();
+        try {
+            if (payload.trim().startsWith("[")) {
+                // A batch response: compare against the matching element
+                JSONArray batch = new JSONArray(payload);
+                for (int i = 0; i < batch.length(); i++) {
+                    JSONObject element = batch.optJSONObject(i);
+                    if (element != null && recordedId.equals(String.valueOf(element.opt("id")))) {
+                        return fingerprint(element);
+                    }
+                }
+                return "missing";
+            }
+            return fingerprint(new JSONObject(payload));
+        } catch (RuntimeException e) {
+            return "unparseable";
+        }
+    }
+
+    /**
+     * Gives every request in the frame (every element of a batch) a fresh id from
+     * {@code target} and collects them in {@code requests}. Returns {@code null} if nothing in the frame should be
+     * replayed.
+     */
+    private static byte[] rewrite(byte[] frame, McpSession target, List<Pending> requests) {
+        try {
+            int first = JsonRpcScanner.skipWhitespace(frame, 0, frame.length);
+            boolean batch = first < frame.length && frame[first] == '[';
+            List<int[]> elements = batch ? JsonRpcScanner.splitArray(frame) : List.of(new int[]{0, frame.length});
+
+            ByteArrayOutputStream out = new ByteArrayOutputStream(frame.length + elements.size() * 48);
+            int kept = 0;
+            for (int[] span : elements) {
+                String method = JsonRpcScanner.stringMember(frame, span[0], span[1], "method");
+                if (method == null || SKIPPED_METHODS.contains(method)) continue; // Responses to server requests, handshake
+                int[] id = JsonRpcScanner.findMember(frame, span[0], span[1], "id");
+                String recordedId = id == null ? null : JsonRpcScanner.idValue(frame, id);
+                byte[] element;
+                if (recordedId == null) {
+                    element = Arrays.copyOfRange(frame, span[0], span[1]);
+                } else {
+                    Pending request = new Pending(method, recordedId, target.nextRequestId());
+                    element = JsonRpcScanner.spliceId(frame, span[0], span[1], Long.toString(request.replayId));
+                    requests.add(request);
+                }
+                if (kept > 0) out.write(',');
+                else if (batch) out.write('[');
+                out.write(element, 0, element.length);
+                kept++;
+            }
+            if (kept == 0) return null;
+            if (batch) out.write(']');
+            return out.toByteArray();
+        } catch (IllegalArgumentException e) {
+            return null; // Malformed frames were journaled as-is; not worth replaying
+        }
+    }
+
+    private static boolean isTimeout(Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        return cause instanceof TimeoutException;
+    }
+
+    private static final class Pending {
+        private final String method;
+        private final String recordedId;
+        private final long replayId;
+        private JournalEntry recorded; // Looked up before sending; null if none was journaled
+
+        Pending(String method, String recordedId, long replayId) {
+            this.method = method;
+            this.recordedId = recordedId;
+            this.replayId = replayId;
+        }
+    }
+
+    /** Unwinds the journal scan when the replay is cancelled. */
+    private static final class CancellationSignal extends RuntimeException {
+        CancellationSignal() {
+            super(null, null, false, false);
+        }
+    }
+}
@@ -0,0 +1,307 @@
+package com.mcp_asd.burp.journal;
+
+import com.mcp_asd.burp.GlobalSettings;
+import com.mcp_asd.burp.Log;
+import com.mcp_asd.burp.engine.JsonRpcScanner;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Opt-in, append-only journal of every JSON-RPC frame sent to or received from the
+ * MCP server. Frames are written to memory-mapped segment files (see
+ * {@link JournalSegment}) tagged with a timestamp, direction, session name and the
+ * correlation ids they carry, so a long fuzzing run can be audited afterwards by id
+ * or time range without keeping anything on the heap. Segments are mapped for reading
+ * once and the mappings reused by later lookups until retention deletes the segment.
+ *
+ * The oldest segments are deleted once more than the configured number exist. A
+ * segment that can't be deleted yet (on Windows, while a lookup still has it mapped)
+ * is no longer read and is retried on every roll.
+ */
+public class TrafficJournal {
+
+    public enum Direction { OUTBOUND, INBOUND }
+
+    private static final int MAX_SEGMENT_MB = 1024;
+    private static final int MIN_RECORD_BYTES = 64; // Sizes the segment index for small frames
+    private static final int MAX_SESSION_BYTES = 255;
+    private static final int MAX_IDS = 0xFFFF;
+    private static final int MAX_ID_BYTES = 0xFFFF;
+    private static final byte[][] NO_IDS = new byte[0][];
+
+    private volatile boolean enabled;
+    private volatile Path directory;
+    private int segmentBytes;
+    private int maxSegments;
+    private JournalSegment active;
+    private long nextSequence = -1;
+    private long lastTimestamp;
+    // Read-only mappings by data file; the active segment's mapping sees appends as they land
+    private final Map<Path, JournalSegment> readers = new ConcurrentHashMap<>();
+    // Files retention failed to delete
+    private final Set<Path> undeleted = ConcurrentHashMap.newKeySet();
+
+    public TrafficJournal(GlobalSettings settings) {
+        configure(settings);
+        settings.addChangeListener(() -> configure(settings));
+    }
+
+    private synchronized void configure(GlobalSettings settings) {
+        Path newDirectory = Paths.get(settings.getJournalDirectory());
+        int newSegmentBytes = Math.min(Math.max(1, settings.getJournalSegmentMb()), MAX_SEGMENT_MB) * 1024 * 1024;
+        if (!newDirectory.equals(directory) || newSegmentBytes != segmentBytes || !settings.isJournalEnabled()) {
+            closeActive();
+            nextSequence = -1;
+        }
+        if (!newDirectory.equals(directory)) closeReaders();
+        directory = newDirectory;
+        segmentBytes = newSegmentBytes;
+        maxSegments = Math.max(0, settings.getJournalMaxSegments());
+        enabled = settings.isJournalEnabled();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Appends one frame. A write failure disables the journal (it is re-enabled by saving
+     * the settings) rather than failing the transport.
+     */
+    public void append(Direction direction, String session, byte[] payload) {
+        if (!enabled) return;
+        byte[][] ids = correlationIds(payload);
+        byte[] sessionBytes = sessionBytes(session);
+
+        synchronized (this) {
+            if (!enabled) return;
+            // Never step back in time, so each segment's time index stays sorted
+            long timestamp = Math.max(System.currentTimeMillis(), lastTimestamp);
+            try {
+                if (active == null || !active.append(timestamp, direction, sessionBytes, ids, payload)) {
+                    roll(JournalSegment.recordBytes(sessionBytes, ids, payload));
+                    if (!active.append(timestamp, direction, sessionBytes, ids, payload)) {
+                        throw new IOException("frame does not fit in an empty segment");
+                    }
+                }
+                lastTimestamp = timestamp;
+            } catch (IOException | RuntimeException e) {
+                Log.error("Journal: Write failed, journaling disabled: " + e.getMessage());
+                enabled = false;
+                closeActive();
+            }
+        }
+    }
+
+    /**
+     * Returns every frame journaled on {@code session} carrying {@code id} (typically the
+     * bridge request and its response), oldest first. Ids are only unique per session.
+     */
+    public List<JournalEntry> findById(String session, String id) throws IOException {
+        byte[] sessionBytes = sessionBytes(session);
+        List<JournalEntry> found = new ArrayList<>();
+        List<JournalSegment> segments = segments();
+        try {
+            for (JournalSegment segment : segments) {
+                segment.findById(sessionBytes, id, found);
+            }
+        } finally {
+            segments.forEach(JournalSegment::release);
+        }
+        return found;
+    }
+
+    /**
+     * Streams the frames journaled between {@code fromMillis} and {@code toMillis}
+     * (inclusive, epoch milliseconds) to {@code consumer}, oldest first.
+     */
+    public void forEachInRange(long fromMillis, long toMillis, Consumer<JournalEntry> consumer) throws IOException {
+        List<JournalSegment> segments = segments();
+        try {
+            for (JournalSegment segment : segments) {
+                segment.forEachInRange(fromMillis, toMillis, consumer);
+            }
+        } finally {
+            segments.forEach(JournalSegment::release);
+        }
+    }
+
+    public synchronized void close() {
+        closeActive();
+        closeReaders();
+    }
+
+    private void roll(int recordBytes) throws IOException {
+        closeActive();
+        for (Path file : List.copyOf(undeleted)) {
+            deleteFile(file);
+        }
+        Files.createDirectories(directory);
+        List<Path> existing = listSegments(directory);
+        if (nextSequence < 0) {
+            nextSequence = existing.isEmpty() ? 0 : sequenceOf(existing.get(existing.size() - 1)) + 1;
+        }
+        Path file = directory.resolve(String.format("%012d", nextSequence++) + JournalSegment.DATA_SUFFIX);
+        int dataBytes = Math.max(segmentBytes, JournalSegment.HEADER_BYTES + recordBytes);
+        active = JournalSegment.create(file, dataBytes, Math.max(1024, segmentBytes / MIN_RECORD_BYTES));
+        Log.info("Journal: Writing " + file);
+
+        existing.add(file);
+        for (int i = 0; maxSegments > 0 && i < existing.size() - maxSegments; i++) {
+            delete(existing.get(i));
+        }
+    }
+
+    private void closeActive() {
+        if (active != null) {
+            try {
+                active.force();
+            } catch (RuntimeException e) {
+                Log.warn("Journal: Failed to flush " + active.getDataFile() + ": " + e.getMessage());
+            }
+            active.close();
+            active = null;
+        }
+    }
+
+    private void closeReaders() {
+        for (Path file : List.copyOf(readers.keySet())) {
+            JournalSegment reader = readers.remove(file);
+            if (reader != null) reader.close();
+        }
+    }
+
+    private void delete(Path dataFile) {
+        JournalSegment reader = readers.remove(dataFile);
+        if (reader != null) reader.close();
+        deleteFile(dataFile);
+        deleteFile(JournalSegment.indexFile(dataFile));
+    }
+
+    private void deleteFile(Path file) {
+        try {
+            Files.deleteIfExists(file);
+            undeleted.remove(file);
+        } catch (IOException e) {
+            if (undeleted.add(file)) Log.warn("Journal: Failed to delete old segment file " + file + ", retrying on the next roll: " + e.getMessage());
+        }
+    }
+
+    private static List<Path> listSegments(Path directory) throws IOException {
+        if (directory == null || !Files.isDirectory(directory)) return new ArrayList<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.getFileName().toString().endsWith(JournalSegment.DATA_SUFFIX))
+                    .sorted()
+                    .collect(Collectors.toCollection(ArrayList::new));
+        }
+    }
+
+    /**
+     * The segments currently on disk, oldest first, mapped on first use. Each one is
+     * retained; the caller releases them when done.
+     */
+    private List<JournalSegment> segments() throws IOException {
+        List<Path> files = listSegments(directory);
+        files.removeAll(undeleted); // Past retention
+        for (Path file : List.copyOf(readers.keySet())) {
+            if (files.contains(file)) continue;
+            JournalSegment gone = readers.remove(file); // Deleted by retention or by hand
+            if (gone != null) gone.close();
+        }
+        List<JournalSegment> segments = new ArrayList<>(files.size());
+        try {
+            for (Path file : files) {
+                JournalSegment segment = readers.get(file);
+                if (segment == null) {
+                    try {
+                        segment = JournalSegment.open(file);
+                    } catch (NoSuchFileException e) {
+                        continue; // Removed by retention since it was listed
+                    }
+                    if (segment == null) continue; // Being created; nothing to read yet
+                    JournalSegment raced = readers.putIfAbsent(file, segment);
+                    if (raced != null) {
+                        segment.close();
+                        segment = raced;
+                    }
+                }
+                // Fails if retention closed it meanwhile; it is being deleted
+                if (segment.retain()) segments.add(segment);
+            }
+        } catch (IOException | RuntimeException e) {
+            segments.forEach(JournalSegment::release);
+            throw e;
+        }
+        return segments;
+    }
+
+    private static byte[] sessionBytes(String session) {
+        byte[] bytes = session.getBytes(StandardCharsets.UTF_8);
+        return bytes.length > MAX_SESSION_BYTES ? Arrays.copyOf(bytes, MAX_SESSION_BYTES) : bytes;
+    }
+
+    private static long sequenceOf(Path dataFile) {
+        String name = dataFile.getFileName().toString();
+        try {
+            return Long.parseLong(name.substring(0, name.length() - JournalSegment.DATA_SUFFIX.length()));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * Collects the ids a frame can be looked up by: the id of a request/response (of every
+     * element for batches), or the request a cancellation or progress notification
+     * refers to. Malformed frames are journaled without ids.
+     */
+    private static byte[][] correlationIds(byte[] payload) {
+        try {
+            int first = JsonRpcScanner.skipWhitespace(payload, 0, payload.length);
+            if (first < payload.length && payload[first] == '[') {
+                List<byte[]> ids = new ArrayList<>();
+                for (int[] span : JsonRpcScanner.splitArray(payload)) {
+                    byte[] id = correlationId(payload, span[0], span[1]);
+                    if (id != null && ids.size() < MAX_IDS) ids.add(id);
+                }
+                return ids.toArray(NO_IDS);
+            }
+            byte[] id = correlationId(payload, 0, payload.length);
+            return id == null ? NO_IDS : new byte[][]{id};
+        } catch (IllegalArgumentException e) {
+            return NO_IDS;
+        }
+    }
+
+    private static byte[] correlationId(byte[] json, int from, int to) {
+        int[] span = JsonRpcScanner.findMember(json, from, to, "id");
+        if (span == null) {
+            int[] params = JsonRpcScanner.findMember(json, from, to, "params");
+            if (params == null || json[params[0]] != '{') return null;
+            span = JsonRpcScanner.findMember(json, params[0], params[1], "requestId");
+            if (span == null) span = JsonRpcScanner.findMember(json, params[0], params[1], "progressToken");
+            if (span == null) return null;
+        }
+        String id = JsonRpcScanner.idValue(json, span);
+        if (id == null) return null;
+        byte[] bytes = id.getBytes(StandardCharsets.UTF_8);
+        return bytes.length > MAX_ID_BYTES ? null : bytes;
+    }
+}
@@ -1,7 +1,7 @@
 package com.mcp_asd.burp.ui;
 
+import com.mcp_asd.burp.HttpClients;
 import okhttp3.OkHttpClient;
-import okhttp3.Protocol;
 import okhttp3.Request;
 import okhttp3.Response;
 
@@ -56,8 +56,7 @@ public class AutoDetector {
     public static CompletableFuture<List<DetectionResult>> detect(String host, int port, boolean useTls) {
         return CompletableFuture.supplyAsync(() -> {
             List<DetectionResult> results = new ArrayList<>();
-            OkHttpClient client = new OkHttpClient.Builder()
-                    .protocols(Arrays.asList(Protocol.HTTP_1_1))
+            OkHttpClient client = HttpClients.direct(true).newBuilder()
                     .readTimeout(5, TimeUnit.SECONDS)
                     .connectTimeout(5, TimeUnit.SECONDS)
                     .followRedirects(false)
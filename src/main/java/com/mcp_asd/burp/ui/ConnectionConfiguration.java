@@ -18,6 +18,10 @@ public class ConnectionConfiguration {
     
     private String initializationOptions;
 
+    // stdio transport: the server is launched locally instead of connected to
+    private String command;
+    private String workingDirectory;
+
     public ConnectionConfiguration(String host, int port, String transport, String path) {
         this.host = host;
         this.port = port;
@@ -30,6 +34,8 @@ public class ConnectionConfiguration {
     public String getTransport() { return transport; }
     public String getPath() { return path; }
 
+    public boolean isStdio() { return "stdio".equals(transport); }
+
     public Map<String, String> getHeaders() { return headers; }
     public void setHeaders(Map<String, String> headers) { this.headers = headers; }
     public void addHeader(String key, String value) { this.headers.put(key, value); }
@@ -48,4 +54,10 @@ public class ConnectionConfiguration {
 
     public String getInitializationOptions() { return initializationOptions; }
     public void setInitializationOptions(String initializationOptions) { this.initializationOptions = initializationOptions; }
+
+    public String getCommand() { return command; }
+    public void setCommand(String command) { this.command = command; }
+
+    public String getWorkingDirectory() { return workingDirectory; }
+    public void setWorkingDirectory(String workingDirectory) { this.workingDirectory = workingDirectory; }
 }
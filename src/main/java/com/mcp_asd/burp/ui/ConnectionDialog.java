@@ -12,6 +12,8 @@ public class ConnectionDialog extends JDialog {
     private JCheckBox tlsCheckBox;
     private JComboBox<String> transportCombo;
     private JTextField pathField;
+    private JTextField commandField;
+    private JTextField workingDirField;
     
     // Auth Components
     private DefaultTableModel headersModel;
@@ -29,8 +31,9 @@ public class ConnectionDialog extends JDialog {
         setLayout(new BorderLayout());
         
         // Use existing config if available, otherwise empty (no defaults)
-        String initialHost = (existingConfig != null) ? existingConfig.getHost() : "";
-        String initialPort = (existingConfig != null) ? String.valueOf(existingConfig.getPort()) : "";
+        boolean network = existingConfig != null && !existingConfig.isStdio();
+        String initialHost = network ? existingConfig.getHost() : "";
+        String initialPort = network ? String.valueOf(existingConfig.getPort()) : "";
         
         JTabbedPane tabbedPane = new JTabbedPane();
         
@@ -46,6 +49,8 @@ public class ConnectionDialog extends JDialog {
         if (existingConfig != null) {
             transportCombo.setSelectedItem(existingConfig.getTransport());
             pathField.setText(existingConfig.getPath());
+            commandField.setText(existingConfig.getCommand());
+            workingDirField.setText(existingConfig.getWorkingDirectory());
             
             // Fill Headers
             for (Map.Entry<String, String> entry : existingConfig.getHeaders().entrySet()) {
@@ -166,13 +171,14 @@ public class ConnectionDialog extends JDialog {
         gbc.gridx = 0; gbc.gridy = 4; gbc.gridwidth = 1; gbc.weightx = 0.0;
         formPanel.add(new JLabel("Transport:"), gbc);
         gbc.gridx = 1; gbc.gridy = 4; gbc.weightx = 1.0;
-        transportCombo = new JComboBox<>(new String[]{"SSE", "WebSocket", "HTTP (POST only)"});
+        transportCombo = new JComboBox<>(new String[]{"Streamable HTTP", "SSE", "WebSocket", "HTTP (POST only)", "stdio"});
         transportCombo.addActionListener(e -> {
             if ("WebSocket".equals(transportCombo.getSelectedItem())) {
                 if (pathField.getText().equals("/mcp")) pathField.setText("/ws");
             } else if (!"HTTP (POST only)".equals(transportCombo.getSelectedItem())) {
                 if (pathField.getText().equals("/ws")) pathField.setText("/mcp");
             }
+            updateTransportFields();
         });
         formPanel.add(transportCombo, gbc);
 
@@ -183,6 +189,23 @@ public class ConnectionDialog extends JDialog {
         pathField = new JTextField("/mcp");
         formPanel.add(pathField, gbc);
 
+        // Row 6: Command (stdio)
+        gbc.gridx = 0; gbc.gridy = 6; gbc.weightx = 0.0;
+        formPanel.add(new JLabel("Command:"), gbc);
+        gbc.gridx = 1; gbc.gridy = 6; gbc.weightx = 1.0;
+        commandField = new JTextField();
+        commandField.setToolTipText("Command line that starts the server, e.g. npx -y @modelcontextprotocol/server-everything");
+        formPanel.add(commandField, gbc);
+
+        // Row 7: Working Directory (stdio)
+        gbc.gridx = 0; gbc.gridy = 7; gbc.weightx = 0.0;
+        formPanel.add(new JLabel("Working Dir:"), gbc);
+        gbc.gridx = 1; gbc.gridy = 7; gbc.weightx = 1.0;
+        workingDirField = new JTextField();
+        workingDirField.setToolTipText("Optional; defaults to Burp's working directory");
+        formPanel.add(workingDirField, gbc);
+
+        updateTransportFields();
         return formPanel;
     }
 
@@ -309,6 +332,17 @@ public class ConnectionDialog extends JDialog {
     // Add field for init params
     private JTextArea initParamsArea;
     
+    // A stdio server is launched locally, so only the command fields apply to it
+    private void updateTransportFields() {
+        boolean stdio = "stdio".equals(transportCombo.getSelectedItem());
+        hostField.setEnabled(!stdio);
+        portField.setEnabled(!stdio);
+        tlsCheckBox.setEnabled(!stdio);
+        pathField.setEnabled(!stdio);
+        commandField.setEnabled(stdio);
+        workingDirField.setEnabled(stdio);
+    }
+
     private void toggleMtlsFields(boolean enabled) {
         certPathField.setEnabled(enabled);
         certPasswordField.setEnabled(enabled);
@@ -316,6 +350,21 @@ public class ConnectionDialog extends JDialog {
     }
 
     private void onConnect() {
+        if ("stdio".equals(transportCombo.getSelectedItem())) {
+            String command = commandField.getText().trim();
+            if (command.isEmpty()) {
+                JOptionPane.showMessageDialog(this, "Command cannot be empty.", "Validation Error", JOptionPane.ERROR_MESSAGE);
+                return;
+            }
+            configuration = new ConnectionConfiguration("localhost", 0, "stdio", "");
+            configuration.setCommand(command);
+            configuration.setWorkingDirectory(workingDirField.getText().trim());
+            configuration.setInitializationOptions(initParamsArea.getText());
+            confirmed = true;
+            dispose();
+            return;
+        }
+
         String host = hostField.getText().trim();
         String portStr = portField.getText().trim();
         
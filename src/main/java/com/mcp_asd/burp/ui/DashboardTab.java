@@ -6,6 +6,11 @@ import burp.api.montoya.http.HttpService;
 import burp.api.montoya.http.message.requests.HttpRequest;
 import com.mcp_asd.burp.McpProxy; 
 import com.mcp_asd.burp.GlobalSettings; 
+import com.mcp_asd.burp.bridge.AdmissionController;
+import com.mcp_asd.burp.bridge.ResponseCache;
+import com.mcp_asd.burp.engine.McpSession;
+import com.mcp_asd.burp.engine.SessionStore;
+import com.mcp_asd.burp.journal.ReplayEngine;
 import org.json.JSONArray;
 import org.json.JSONObject;
 
@@ -30,14 +35,18 @@ public class DashboardTab extends JComponent {
         this.connectionListener = listener;
     }
     
-    // Lists for the 3 primitives
-    private DefaultListModel<AttackSurfaceNode> toolsModel;
-    private DefaultListModel<AttackSurfaceNode> resourcesModel;
-    private DefaultListModel<AttackSurfaceNode> promptsModel;
+    // Connected targets; the 3 primitive lists show the selected one's models
+    private final DefaultListModel<TargetView> targetsModel = new DefaultListModel<>();
+    private JList<TargetView> targetList;
+    private TargetView selectedView; // EDT only
+    private final DefaultListModel<AttackSurfaceNode> emptyModel = new DefaultListModel<>();
     
     private JList<AttackSurfaceNode> toolsList;
     private JList<AttackSurfaceNode> resourcesList;
     private JList<AttackSurfaceNode> promptsList;
+    private TitledBorder toolsBorder;
+    private TitledBorder resourcesBorder;
+    private TitledBorder promptsBorder;
 
     private JLabel headerLabel;
     private JLabel statusLabel; // New status label
@@ -46,23 +55,34 @@ public class DashboardTab extends JComponent {
     private JButton sendToIntruderButton;
     private JButton serverInfoButton; // Promoted
     private JButton cancelButton; // New Cancel Button
+    private JLabel bridgeStatusLabel;
+    private Timer bridgeStatusTimer; // Polls bridge counters instead of repainting per request
+    private MetricsPanel metricsPanel;
+    private JTabbedPane tabs;
     
-    private String targetHost;
-    private int targetPort;
     private ConnectionConfiguration lastConfig; // Persist last config
-    private JSONObject serverInfo; // Field for server info
 
     private final GlobalSettings settings; // Add field
     private CancellationListener cancellationListener;
 
+    private RemovalListener removalListener;
+
     public interface CancellationListener {
-        void onCancel();
+        void onCancel(String target);
+    }
+
+    public interface RemovalListener {
+        void onRemove(String target);
     }
 
     public void setCancellationListener(CancellationListener listener) {
         this.cancellationListener = listener;
     }
 
+    public void setRemovalListener(RemovalListener listener) {
+        this.removalListener = listener;
+    }
+
     public DashboardTab(MontoyaApi api, McpProxy mcpProxy, GlobalSettings settings) { // Update Constructor
         this.api = api;
         this.mcpProxy = mcpProxy;
@@ -70,12 +90,6 @@ public class DashboardTab extends JComponent {
         initComponents();
     }
 
-    public void setCancelEnabled(boolean enabled) {
-        SwingUtilities.invokeLater(() -> {
-            if (cancelButton != null) cancelButton.setEnabled(enabled);
-        });
-    }
-
     private void initComponents() {
         setLayout(new BorderLayout());
 
@@ -114,9 +128,9 @@ public class DashboardTab extends JComponent {
         cancelButton = new JButton("Cancel");
         cancelButton.setEnabled(false);
         cancelButton.addActionListener(e -> {
-            int confirm = JOptionPane.showConfirmDialog(this, "Are you sure you want to cancel the connection attempt?", "Confirm Cancellation", JOptionPane.YES_NO_OPTION);
+            int confirm = JOptionPane.showConfirmDialog(this, "Are you sure you want to cancel the connection attempt or enumeration?\nItems already listed are kept.", "Confirm Cancellation", JOptionPane.YES_NO_OPTION);
             if (confirm == JOptionPane.YES_OPTION) {
-                if (cancellationListener != null) cancellationListener.onCancel();
+                if (cancellationListener != null && selectedView != null) cancellationListener.onCancel(selectedView.getName());
             }
         });
 
@@ -128,7 +142,6 @@ public class DashboardTab extends JComponent {
                 ConnectionDialog dialog = new ConnectionDialog(parentFrame, "", 8000, lastConfig);
                 dialog.setVisible(true);
                 if (dialog.isConfirmed()) {
-                    clearData(); // Clear UI immediately
                     lastConfig = dialog.getConfiguration(); // Save it
                     if (connectionListener != null) {
                         connectionListener.onConnect(lastConfig);
@@ -155,29 +168,59 @@ public class DashboardTab extends JComponent {
         primitivesPanel.setBorder(BorderFactory.createEmptyBorder(0, 10, 10, 10)); // Margin
 
         // Tools Pane
-        toolsModel = new DefaultListModel<>();
-        toolsList = createPrimitiveList(toolsModel, "Tools");
+        toolsList = createPrimitiveList(emptyModel, "Tools");
         JScrollPane toolsScroll = new JScrollPane(toolsList);
-        toolsScroll.setBorder(BorderFactory.createTitledBorder(null, "🛠️ Tools", TitledBorder.DEFAULT_JUSTIFICATION, TitledBorder.DEFAULT_POSITION, new Font("SansSerif", Font.BOLD, 12)));
+        toolsBorder = BorderFactory.createTitledBorder(null, "🛠️ Tools", TitledBorder.DEFAULT_JUSTIFICATION, TitledBorder.DEFAULT_POSITION, new Font("SansSerif", Font.BOLD, 12));
+        toolsScroll.setBorder(toolsBorder);
         primitivesPanel.add(toolsScroll);
 
         // Resources Pane
-        resourcesModel = new DefaultListModel<>();
-        resourcesList = createPrimitiveList(resourcesModel, "Resources");
+        resourcesList = createPrimitiveList(emptyModel, "Resources");
         JScrollPane resourcesScroll = new JScrollPane(resourcesList);
-        resourcesScroll.setBorder(BorderFactory.createTitledBorder(null, "📄 Resources", TitledBorder.DEFAULT_JUSTIFICATION, TitledBorder.DEFAULT_POSITION, new Font("SansSerif", Font.BOLD, 12)));
+        resourcesBorder = BorderFactory.createTitledBorder(null, "📄 Resources", TitledBorder.DEFAULT_JUSTIFICATION, TitledBorder.DEFAULT_POSITION, new Font("SansSerif", Font.BOLD, 12));
+        resourcesScroll.setBorder(resourcesBorder);
         primitivesPanel.add(resourcesScroll);
 
         // Prompts Pane
-        promptsModel = new DefaultListModel<>();
-        promptsList = createPrimitiveList(promptsModel, "Prompts");
+        promptsList = createPrimitiveList(emptyModel, "Prompts");
         JScrollPane promptsScroll = new JScrollPane(promptsList);
-        promptsScroll.setBorder(BorderFactory.createTitledBorder(null, "💬 Prompts", TitledBorder.DEFAULT_JUSTIFICATION, TitledBorder.DEFAULT_POSITION, new Font("SansSerif", Font.BOLD, 12)));
+        promptsBorder = BorderFactory.createTitledBorder(null, "💬 Prompts", TitledBorder.DEFAULT_JUSTIFICATION, TitledBorder.DEFAULT_POSITION, new Font("SansSerif", Font.BOLD, 12));
+        promptsScroll.setBorder(promptsBorder);
         primitivesPanel.add(promptsScroll);
 
         addContextMenu(toolsList, "Tools");
         addContextMenu(resourcesList, "Resources");
 
+        // Targets Pane: every connected server; selecting one shows its primitives
+        targetList = new JList<>(targetsModel);
+        targetList.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        targetList.setVisibleRowCount(4);
+        targetList.addListSelectionListener(e -> {
+            if (!e.getValueIsAdjusting()) showTarget(targetList.getSelectedValue());
+        });
+        JButton removeTargetButton = new JButton("Remove");
+        removeTargetButton.setToolTipText("Disconnect the selected target and remove it from the list");
+        removeTargetButton.addActionListener(e -> {
+            TargetView view = targetList.getSelectedValue();
+            if (view != null && removalListener != null) {
+                removalListener.onRemove(view.getName());
+                targetsModel.removeElement(view);
+                if (!targetsModel.isEmpty()) targetList.setSelectedIndex(targetsModel.size() - 1);
+            }
+        });
+        JPanel targetsPanel = new JPanel(new BorderLayout());
+        targetsPanel.setBorder(BorderFactory.createEmptyBorder(0, 10, 10, 10));
+        JScrollPane targetsScroll = new JScrollPane(targetList);
+        targetsScroll.setBorder(BorderFactory.createTitledBorder(null, "🎯 Targets", TitledBorder.DEFAULT_JUSTIFICATION, TitledBorder.DEFAULT_POSITION, new Font("SansSerif", Font.BOLD, 12)));
+        targetsPanel.add(targetsScroll, BorderLayout.CENTER);
+        JPanel targetButtons = new JPanel(new FlowLayout(FlowLayout.RIGHT, 0, 2));
+        targetButtons.add(removeTargetButton);
+        targetsPanel.add(targetButtons, BorderLayout.SOUTH);
+
+        JPanel leftPanel = new JPanel(new BorderLayout());
+        leftPanel.add(targetsPanel, BorderLayout.NORTH);
+        leftPanel.add(primitivesPanel, BorderLayout.CENTER);
+
         // --- RIGHT PANEL: Details & Actions ---
         JPanel rightPanel = new JPanel(new BorderLayout());
         rightPanel.setBorder(BorderFactory.createTitledBorder("Request Prototype / Details"));
@@ -199,10 +242,58 @@ public class DashboardTab extends JComponent {
         rightPanel.add(buttonPanel, BorderLayout.SOUTH);
 
         // --- SPLIT PANE ---
-        JSplitPane splitPane = new JSplitPane(JSplitPane.HORIZONTAL_SPLIT, primitivesPanel, rightPanel);
+        JSplitPane splitPane = new JSplitPane(JSplitPane.HORIZONTAL_SPLIT, leftPanel, rightPanel);
         splitPane.setResizeWeight(0.4); // Left side takes 40%
 
-        add(splitPane, BorderLayout.CENTER);
+        // --- TABS: attack surface and live bridge metrics ---
+        tabs = new JTabbedPane();
+        tabs.addTab("Attack Surface", splitPane);
+        if (mcpProxy != null) {
+            metricsPanel = new MetricsPanel(mcpProxy.getMetrics());
+            tabs.addTab("Metrics", metricsPanel);
+        }
+
+        add(tabs, BorderLayout.CENTER);
+
+        // --- BOTTOM: Live bridge status ---
+        bridgeStatusLabel = new JLabel(" ");
+        bridgeStatusLabel.setFont(bridgeStatusLabel.getFont().deriveFont(Font.PLAIN, 11f));
+        bridgeStatusLabel.setBorder(BorderFactory.createEmptyBorder(2, 10, 4, 10));
+        add(bridgeStatusLabel, BorderLayout.SOUTH);
+
+        bridgeStatusTimer = new Timer(1000, e -> refreshBridgeStatus());
+        bridgeStatusTimer.start();
+    }
+
+    private void refreshBridgeStatus() {
+        if (mcpProxy == null) return;
+        AdmissionController admission = mcpProxy.getAdmission();
+        ResponseCache cache = mcpProxy.getResponseCache();
+        int pending = 0;
+        long expired = 0;
+        long oldestMillis = 0;
+        int unsent = 0;
+        for (McpSession session : mcpProxy.getEngine().getSessions()) {
+            unsent += session.getQueuedMessages();
+            SessionStore store = session.getSessionStore();
+            pending += store.size();
+            expired += store.getExpiredCount();
+            oldestMillis = Math.max(oldestMillis, store.getOldestAgeMillis());
+        }
+        bridgeStatusLabel.setText(String.format("Bridge: %d in flight  |  %d queued  |  %d rejected  |  %d coalesced  |  Cache: %d hits / %d misses (%d entries)  |  Pending: %d (oldest %.1fs, %d expired)  |  Send queue: %d",
+                admission.getInFlight(), admission.getQueued(), admission.getRejected(), mcpProxy.getSingleFlight().getCoalesced(),
+                cache.getHits(), cache.getMisses(), cache.size(), pending, oldestMillis / 1000.0, expired, unsent));
+        if (metricsPanel != null && metricsPanel.isShowing()) {
+            metricsPanel.refresh();
+        }
+    }
+
+    public void setReplayEngine(ReplayEngine replayEngine) {
+        tabs.addTab("Replay", new ReplayPanel(replayEngine));
+    }
+
+    public void shutdown() {
+        if (bridgeStatusTimer != null) bridgeStatusTimer.stop();
     }
 
     private JList<AttackSurfaceNode> createPrimitiveList(DefaultListModel<AttackSurfaceNode> model, String type) {
@@ -232,42 +323,64 @@ public class DashboardTab extends JComponent {
         sendToIntruderButton.setEnabled(true);
     }
 
-    public void setStatus(String status, Color color) {
+    /**
+     * Adds a target to the list (replacing one with the same name) and selects it.
+     */
+    public TargetView addTarget(String name, String host, int port) {
+        TargetView view = new TargetView(this, name, host, port);
         SwingUtilities.invokeLater(() -> {
-            statusLabel.setText(status);
-            statusLabel.setForeground(color);
+            for (int i = 0; i < targetsModel.size(); i++) {
+                if (targetsModel.get(i).getName().equals(name)) {
+                    targetsModel.remove(i);
+                    break;
+                }
+            }
+            targetsModel.addElement(view);
+            targetList.setSelectedValue(view, true);
         });
+        return view;
     }
 
-    public void setTarget(String host, int port) {
-        this.targetHost = host;
-        this.targetPort = port;
-        SwingUtilities.invokeLater(() -> headerLabel.setText("Connected to: " + host + ":" + port));
-    }
-
-    public void updateServerInfo(JSONObject info) {
-        this.serverInfo = info;
+    // A view's state changed (from any thread); refresh it if it is on screen
+    void targetChanged(TargetView view) {
         SwingUtilities.invokeLater(() -> {
-            if (serverInfoButton != null) serverInfoButton.setEnabled(true);
+            int index = targetsModel.indexOf(view);
+            if (index >= 0) targetList.repaint(targetList.getCellBounds(index, index));
+            if (view == selectedView) refreshSelected();
         });
     }
 
-    public void clearData() {
-        SwingUtilities.invokeLater(() -> {
-            toolsModel.clear();
-            resourcesModel.clear();
-            promptsModel.clear();
-            metadataInspector.setText("Select an item on the left to generate a request...");
-            sendToRepeaterButton.setEnabled(false);
-            sendToIntruderButton.setEnabled(false);
-            if (serverInfoButton != null) serverInfoButton.setEnabled(false);
-            serverInfo = null;
-            headerLabel.setText("Target: Connecting...");
-            statusLabel.setText("⚪ Status: Resetting...");
-        });
+    private void showTarget(TargetView view) {
+        selectedView = view;
+        toolsList.setModel(view != null ? view.toolsModel : emptyModel);
+        resourcesList.setModel(view != null ? view.resourcesModel : emptyModel);
+        promptsList.setModel(view != null ? view.promptsModel : emptyModel);
+        metadataInspector.setText("Select an item on the left to generate a request...");
+        sendToRepeaterButton.setEnabled(false);
+        sendToIntruderButton.setEnabled(false);
+        refreshSelected();
+    }
+
+    private void refreshSelected() {
+        TargetView view = selectedView;
+        if (view == null) {
+            headerLabel.setText("Target: Not Connected");
+            statusLabel.setText("⚪ Status: Idle");
+            statusLabel.setForeground(Color.GRAY);
+        } else {
+            headerLabel.setText("Connected to: " + view.getLocation() + "  [" + view.getName() + "]");
+            statusLabel.setText(view.getStatus());
+            statusLabel.setForeground(view.getStatusColor());
+        }
+        serverInfoButton.setEnabled(view != null && view.getServerInfo() != null);
+        cancelButton.setEnabled(view != null && view.isCancelEnabled());
+        updateCount(toolsBorder, toolsList.getModel());
+        updateCount(resourcesBorder, resourcesList.getModel());
+        updateCount(promptsBorder, promptsList.getModel());
     }
 
     private void showServerInfo() {
+        JSONObject serverInfo = selectedView != null ? selectedView.getServerInfo() : null;
         if (serverInfo == null) return;
         
         JSONObject sInfo = serverInfo.optJSONObject("serverInfo");
@@ -318,60 +431,13 @@ public class DashboardTab extends JComponent {
         JOptionPane.showMessageDialog(this, scrollPane, "Server Information", JOptionPane.INFORMATION_MESSAGE);
     }
 
-    // New update methods for separate categories
-    public void updateTools(JSONObject result) {
-        updateModel(toolsModel, result);
-    }
-    
-    public void updateResources(JSONObject result) {
-        updateModel(resourcesModel, result);
-    }
-    
-    public void updatePrompts(JSONObject result) {
-        updateModel(promptsModel, result);
-    }
-
-    private void updateModel(DefaultListModel<AttackSurfaceNode> model, JSONObject result) {
-        // We assume result is the "result" object from MCP (which might contain "tools": [...])
-        // Or if using the map-based heuristic:
-        // We need to parse whatever updateTreeWithBranch was parsing.
-        
-        model.clear();
-        // Check for Standard Spec first: { "tools": [ ... ] } or { "resources": [...] }
-        // The key name isn't passed here, so we iterate keys
-        
-        // Actually, EnumerationEngine passes the inner result.
-        // Let's try to handle both Array and Map formats genericly
-        
-        if (result.keySet().isEmpty()) return;
-
-        // Try to find the main array key (tools/resources/prompts)
-        String mainKey = null;
-        if (result.has("tools")) mainKey = "tools";
-        else if (result.has("resources")) mainKey = "resources";
-        else if (result.has("prompts")) mainKey = "prompts";
-
-        if (mainKey != null) {
-            // Standard Spec
-            JSONArray items = result.getJSONArray(mainKey);
-            for (int i = 0; i < items.length(); i++) {
-                JSONObject item = items.getJSONObject(i);
-                String displayName = item.optString("name", item.optString("uri", "Unknown"));
-                model.addElement(new AttackSurfaceNode(displayName, item));
-            }
-        } else {
-            // Map-based fallback (for our simple python server if it sends that way)
-            // Iterate all keys
-             for (String itemName : result.keySet()) {
-                Object val = result.get(itemName);
-                if (val instanceof JSONObject) {
-                    JSONObject item = (JSONObject) val;
-                    if (!item.has("name")) item.put("name", itemName);
-                    String displayName = item.optString("name", itemName);
-                    model.addElement(new AttackSurfaceNode(displayName, item));
-                }
-            }
-        }
+    // Running count in the pane title, e.g. "🛠️ Tools (1200)"
+    private void updateCount(TitledBorder border, ListModel<AttackSurfaceNode> model) {
+        String title = border.getTitle();
+        int paren = title.indexOf(" (");
+        String base = paren < 0 ? title : title.substring(0, paren);
+        border.setTitle(model.getSize() == 0 ? base : base + " (" + model.getSize() + ")");
+        repaint();
     }
 
     private void sendTo(boolean isIntruder) {
@@ -400,8 +466,10 @@ public class DashboardTab extends JComponent {
         // Fix: Use UTF-8 bytes for Content-Length
         byte[] bodyBytes = requestBody.getBytes(StandardCharsets.UTF_8);
         
+        // Addressed to the selected target, so it stays there when others are connected
+        String path = selectedView != null ? "/invoke/" + selectedView.getName() : "/invoke";
         String rawRequestString = 
-            "POST /invoke HTTP/1.1\r\n" +
+            "POST " + path + " HTTP/1.1\r\n" +
             "Host: mcp-asd.local\r\n" +
             "Content-Type: application/json\r\n" +
             "Content-Length: " + bodyBytes.length + "\r\n" +
@@ -0,0 +1,119 @@
+package com.mcp_asd.burp.ui;
+
+import com.mcp_asd.burp.bridge.BridgeMetrics;
+import com.mcp_asd.burp.bridge.LatencyHistogram;
+
+import javax.swing.*;
+import javax.swing.table.AbstractTableModel;
+import java.awt.*;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Live per-method/per-tool bridge latency table. Refreshed by the dashboard's status
+ * timer; throughput is the request count delta since the previous refresh.
+ */
+public class MetricsPanel extends JPanel {
+    private static final String[] COLUMNS = {
+            "Method / Tool", "Count", "Req/s", "In Flight", "Errors", "Timeouts",
+            "E2E p50", "E2E p95", "E2E p99", "E2E max",
+            "Upstream p50", "Upstream p95", "Upstream p99", "Upstream max"
+    };
+
+    private final BridgeMetrics metrics;
+    private final MetricsTableModel model = new MetricsTableModel();
+    private final Map<String, Long> previousCounts = new HashMap<>();
+    private long previousRefreshNanos = System.nanoTime();
+
+    public MetricsPanel(BridgeMetrics metrics) {
+        super(new BorderLayout());
+        this.metrics = metrics;
+
+        JTable table = new JTable(model);
+        table.setAutoCreateRowSorter(true);
+        table.setFillsViewportHeight(true);
+        table.getColumnModel().getColumn(0).setPreferredWidth(220);
+        add(new JScrollPane(table), BorderLayout.CENTER);
+
+        JLabel hint = new JLabel("Latencies in ms. E2E includes admission queueing; Upstream is the MCP server round trip.");
+        hint.setFont(hint.getFont().deriveFont(Font.ITALIC, 11f));
+        JButton resetButton = new JButton("Reset");
+        resetButton.addActionListener(e -> {
+            metrics.reset();
+            previousCounts.clear();
+            refresh();
+        });
+        JPanel footer = new JPanel(new BorderLayout());
+        footer.setBorder(BorderFactory.createEmptyBorder(4, 10, 4, 10));
+        footer.add(hint, BorderLayout.WEST);
+        footer.add(resetButton, BorderLayout.EAST);
+        add(footer, BorderLayout.SOUTH);
+    }
+
+    /** Must be called on the EDT. */
+    public void refresh() {
+        long now = System.nanoTime();
+        double elapsedSeconds = Math.max((now - previousRefreshNanos) / 1e9, 0.001);
+        previousRefreshNanos = now;
+
+        List<Object[]> rows = new ArrayList<>();
+        for (Map.Entry<String, BridgeMetrics.Series> entry : metrics.snapshot().entrySet()) {
+            BridgeMetrics.Series series = entry.getValue();
+            LatencyHistogram endToEnd = series.getEndToEnd();
+            LatencyHistogram upstream = series.getUpstream();
+            long count = endToEnd.getCount();
+            Long previous = previousCounts.put(entry.getKey(), count);
+            double rate = previous == null ? 0 : Math.max(count - previous, 0) / elapsedSeconds;
+            rows.add(new Object[] {
+                    entry.getKey(), count, round(rate), series.getInFlight(),
+                    series.getErrors(), series.getTimeouts(),
+                    millis(endToEnd.getPercentileMicros(0.50)), millis(endToEnd.getPercentileMicros(0.95)),
+                    millis(endToEnd.getPercentileMicros(0.99)), millis(endToEnd.getMaxMicros()),
+                    millis(upstream.getPercentileMicros(0.50)), millis(upstream.getPercentileMicros(0.95)),
+                    millis(upstream.getPercentileMicros(0.99)), millis(upstream.getMaxMicros())
+            });
+        }
+        model.setRows(rows);
+    }
+
+    private static double millis(long micros) {
+        return round(micros / 1000.0);
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 10) / 10.0;
+    }
+
+    private static class MetricsTableModel extends AbstractTableModel {
+        private List<Object[]> rows = new ArrayList<>();
+
+        void setRows(List<Object[]> rows) {
+            this.rows = rows;
+            fireTableDataChanged();
+        }
+
+        @Override
+        public int getRowCount() { return rows.size(); }
+
+        @Override
+        public int getColumnCount() { return COLUMNS.length; }
+
+        @Override
+        public String getColumnName(int column) { return COLUMNS[column]; }
+
+        @Override
+        public Class<?> getColumnClass(int column) {
+            switch (column) {
+                case 0: return String.class;
+                case 1: case 4: case 5: return Long.class;
+                case 3: return Integer.class;
+                default: return Double.class;
+            }
+        }
+
+        @Override
+        public Object getValueAt(int row, int column) { return rows.get(row)[column]; }
+    }
+}
@@ -0,0 +1,150 @@
+package com.mcp_asd.burp.ui;
+
+import com.mcp_asd.burp.bridge.LatencyHistogram;
+import com.mcp_asd.burp.journal.ReplayEngine;
+
+import javax.swing.*;
+import javax.swing.table.DefaultTableModel;
+import java.awt.*;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+
+/**
+ * Controls for replaying journaled traffic against the live connection, with a
+ * per-request drift table and a latency summary.
+ */
+public class ReplayPanel extends JPanel {
+    private static final String TIME_FORMAT = "yyyy-MM-dd HH:mm:ss";
+    private static final int MAX_ROWS = 5000; // Older rows are dropped; the summary covers everything
+    private static final String[] PACING_LABELS = {"Original timing", "Fixed rate", "As fast as possible"};
+
+    private final ReplayEngine replayEngine;
+    private final JTextField fromField = new JTextField(14);
+    private final JTextField toField = new JTextField(14);
+    private final JTextField sessionField = new JTextField(14);
+    private final JComboBox<String> pacingCombo = new JComboBox<>(PACING_LABELS);
+    private final JTextField rateField = new JTextField("10", 4);
+    private final JButton startButton = new JButton("Start Replay");
+    private final JButton cancelButton = new JButton("Cancel");
+    private final JLabel summaryLabel = new JLabel(" ");
+    private final DefaultTableModel model = new DefaultTableModel(
+            new String[]{"Method", "Recorded ID", "Recorded (ms)", "Replayed (ms)", "Drift (ms)", "Outcome"}, 0) {
+        @Override
+        public boolean isCellEditable(int row, int column) {
+            return false;
+        }
+    };
+
+    public ReplayPanel(ReplayEngine replayEngine) {
+        super(new BorderLayout(5, 5));
+        this.replayEngine = replayEngine;
+
+        SimpleDateFormat format = new SimpleDateFormat(TIME_FORMAT);
+        long now = System.currentTimeMillis();
+        fromField.setText(format.format(new Date(now - 60 * 60 * 1000L)));
+        toField.setText(format.format(new Date(now)));
+        sessionField.setToolTipText("Only replay frames recorded on this session (e.g. localhost-8000/primary); blank for all");
+        rateField.setEnabled(false);
+        pacingCombo.addActionListener(e -> rateField.setEnabled(pacingCombo.getSelectedIndex() == 1));
+        cancelButton.setEnabled(false);
+        startButton.addActionListener(e -> start());
+        cancelButton.addActionListener(e -> replayEngine.cancel());
+
+        JPanel controls = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        controls.add(new JLabel("From:"));
+        controls.add(fromField);
+        controls.add(new JLabel("To:"));
+        controls.add(toField);
+        controls.add(new JLabel("Session:"));
+        controls.add(sessionField);
+        controls.add(pacingCombo);
+        controls.add(new JLabel("Req/s:"));
+        controls.add(rateField);
+        controls.add(startButton);
+        controls.add(cancelButton);
+        add(controls, BorderLayout.NORTH);
+
+        JTable table = new JTable(model);
+        table.setFillsViewportHeight(true);
+        add(new JScrollPane(table), BorderLayout.CENTER);
+
+        summaryLabel.setBorder(BorderFactory.createEmptyBorder(2, 10, 4, 10));
+        add(summaryLabel, BorderLayout.SOUTH);
+    }
+
+    private void start() {
+        SimpleDateFormat format = new SimpleDateFormat(TIME_FORMAT);
+        long from;
+        long to;
+        double rate = 0;
+        try {
+            from = format.parse(fromField.getText().trim()).getTime();
+            to = format.parse(toField.getText().trim()).getTime();
+            if (pacingCombo.getSelectedIndex() == 1) {
+                rate = Double.parseDouble(rateField.getText().trim());
+                if (!(rate > 0)) throw new NumberFormatException();
+            }
+        } catch (ParseException | NumberFormatException e) {
+            summaryLabel.setText("Times must be " + TIME_FORMAT + " and the rate a positive number.");
+            return;
+        }
+        String session = sessionField.getText().trim();
+        ReplayEngine.Pacing pacing = ReplayEngine.Pacing.values()[pacingCombo.getSelectedIndex()];
+
+        model.setRowCount(0);
+        try {
+            if (!replayEngine.start(from, to, session.isEmpty() ? null : session, pacing, rate, new ReplayEngine.Listener() {
+                @Override
+                public void onResult(ReplayEngine.Result result) {
+                    SwingUtilities.invokeLater(() -> addRow(result));
+                }
+
+                @Override
+                public void onFinished(ReplayEngine.Summary summary) {
+                    SwingUtilities.invokeLater(() -> finished(summary));
+                }
+            })) {
+                summaryLabel.setText("A replay is already running.");
+                return;
+            }
+        } catch (IllegalStateException e) {
+            summaryLabel.setText(e.getMessage());
+            return;
+        }
+        startButton.setEnabled(false);
+        cancelButton.setEnabled(true);
+        summaryLabel.setText("Replaying...");
+    }
+
+    private void addRow(ReplayEngine.Result result) {
+        if (model.getRowCount() >= MAX_ROWS) model.removeRow(0);
+        long recorded = result.getRecordedMillis();
+        long replayed = result.getReplayedMillis();
+        model.addRow(new Object[]{
+                result.getMethod(), result.getRecordedId(),
+                recorded >= 0 ? String.valueOf(recorded) : "-",
+                replayed >= 0 ? String.valueOf(replayed) : "-",
+                recorded >= 0 && replayed >= 0 ? String.format("%+d", replayed - recorded) : "-",
+                result.getOutcome()
+        });
+    }
+
+    private void finished(ReplayEngine.Summary summary) {
+        startButton.setEnabled(true);
+        cancelButton.setEnabled(false);
+        summaryLabel.setText(String.format("%s: %d frames  |  %d match, %d drift, %d not recorded, %d timeout, %d failed  |  p50/p95/p99 ms: recorded %s, replayed %s",
+                summary.isCancelled() ? "Cancelled" : "Done", summary.getFrames(),
+                summary.getCount(ReplayEngine.Outcome.MATCH), summary.getCount(ReplayEngine.Outcome.DRIFT),
+                summary.getCount(ReplayEngine.Outcome.NOT_RECORDED), summary.getCount(ReplayEngine.Outcome.TIMEOUT),
+                summary.getCount(ReplayEngine.Outcome.FAILED),
+                percentiles(summary.getRecorded()), percentiles(summary.getReplayed())));
+    }
+
+    private static String percentiles(LatencyHistogram histogram) {
+        return String.format("%.1f/%.1f/%.1f",
+                histogram.getPercentileMicros(0.50) / 1000.0,
+                histogram.getPercentileMicros(0.95) / 1000.0,
+                histogram.getPercentileMicros(0.99) / 1000.0);
+    }
+}
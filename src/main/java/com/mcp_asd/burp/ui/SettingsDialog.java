@@ -16,6 +16,23 @@ public class SettingsDialog extends JDialog {
     private JCheckBox passiveChecksCheckbox;
     private JCheckBox activeDetectionCheckbox;
     private JCheckBox scopeOnlyCheckbox;
+    private JTextField maxInFlightField;
+    private JTextField maxPerToolField;
+    private JTextField maxQueuedField;
+    private JTextField timeoutField;
+    private JTextField sessionPoolField;
+    private JTextField sendConcurrencyField;
+    private JCheckBox cacheEnabledCheckbox;
+    private JTextField cacheTtlField;
+    private JTextField cacheMaxEntriesField;
+    private JTextField idempotentMethodsField;
+    private JCheckBox coalesceCheckbox;
+    private JComboBox<String> logLevelCombo;
+    private JTextField logMaxPayloadField;
+    private JCheckBox journalEnabledCheckbox;
+    private JTextField journalDirectoryField;
+    private JTextField journalSegmentField;
+    private JTextField journalMaxSegmentsField;
 
     public SettingsDialog(Window owner, GlobalSettings settings) {
         super(owner, "MCP-ASD Settings", ModalityType.APPLICATION_MODAL);
@@ -24,7 +41,7 @@ public class SettingsDialog extends JDialog {
         loadSettings();
         
         // Ensure a reasonable default size
-        setPreferredSize(new Dimension(500, 550));
+        setPreferredSize(new Dimension(500, 700));
         pack();
         setLocationRelativeTo(owner);
     }
@@ -129,11 +146,137 @@ public class SettingsDialog extends JDialog {
         
         detectionPanel.add(detectionInner, BorderLayout.CENTER);
 
+        // Group 3: Bridge Throughput
+        JPanel bridgePanel = new JPanel(new BorderLayout(5, 5));
+        bridgePanel.setBorder(BorderFactory.createTitledBorder("Bridge Throughput (Repeater/Intruder)"));
+
+        JTextArea bridgeDesc = new JTextArea("Limit how many bridge requests are in flight to the MCP server. Requests beyond the limits wait in a bounded queue; when the queue is full they are answered immediately with 429 (per-tool limit) or 503 (global limit). Use 0 for no in-flight limit. The timeout applies to requests without an X-MCP-Timeout header; expired calls are cancelled on the MCP server. Extra sessions opens that many additional MCP sessions on connect and spreads bridge traffic across them (least outstanding requests first). Sends per session caps how many messages an SSE session POSTs at once (applies to new connections).");
+        bridgeDesc.setWrapStyleWord(true);
+        bridgeDesc.setLineWrap(true);
+        bridgeDesc.setEditable(false);
+        bridgeDesc.setOpaque(false);
+        bridgeDesc.setFont(bridgeDesc.getFont().deriveFont(11f));
+        bridgeDesc.setBorder(BorderFactory.createEmptyBorder(0, 5, 5, 5));
+        bridgePanel.add(bridgeDesc, BorderLayout.NORTH);
+
+        JPanel bridgeConfig = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        bridgeConfig.add(new JLabel("Max In-Flight:"));
+        maxInFlightField = new JTextField(4);
+        bridgeConfig.add(maxInFlightField);
+        bridgeConfig.add(new JLabel("Per Tool:"));
+        maxPerToolField = new JTextField(4);
+        bridgeConfig.add(maxPerToolField);
+        bridgeConfig.add(new JLabel("Queue:"));
+        maxQueuedField = new JTextField(4);
+        bridgeConfig.add(maxQueuedField);
+        bridgeConfig.add(new JLabel("Timeout (s):"));
+        timeoutField = new JTextField(4);
+        bridgeConfig.add(timeoutField);
+        bridgeConfig.add(new JLabel("Extra Sessions:"));
+        sessionPoolField = new JTextField(3);
+        bridgeConfig.add(sessionPoolField);
+        bridgeConfig.add(new JLabel("Sends per Session:"));
+        sendConcurrencyField = new JTextField(3);
+        bridgeConfig.add(sendConcurrencyField);
+        bridgePanel.add(bridgeConfig, BorderLayout.CENTER);
+
+        // Group 4: Idempotent Methods (response cache / request coalescing)
+        JPanel idempotentPanel = new JPanel();
+        idempotentPanel.setLayout(new BoxLayout(idempotentPanel, BoxLayout.Y_AXIS));
+        idempotentPanel.setBorder(BorderFactory.createTitledBorder("Idempotent Methods (Cache / Coalescing)"));
+
+        JPanel methodsRow = new JPanel(new BorderLayout(5, 0));
+        methodsRow.setBorder(BorderFactory.createEmptyBorder(5, 5, 5, 5));
+        methodsRow.add(new JLabel("Methods:"), BorderLayout.WEST);
+        idempotentMethodsField = new JTextField();
+        methodsRow.add(idempotentMethodsField, BorderLayout.CENTER);
+        methodsRow.setAlignmentX(Component.LEFT_ALIGNMENT);
+        idempotentPanel.add(methodsRow);
+
+        cacheEnabledCheckbox = new JCheckBox("Cache responses");
+        cacheEnabledCheckbox.setAlignmentX(Component.LEFT_ALIGNMENT);
+        idempotentPanel.add(cacheEnabledCheckbox);
+        idempotentPanel.add(createDescription("Identical requests (same method and params) for the listed methods are answered from memory until the TTL expires. Cached responses carry an X-MCP-Cache: HIT header. The cache is cleared on every new connection."));
+
+        JPanel cacheConfig = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        cacheConfig.add(new JLabel("TTL (s):"));
+        cacheTtlField = new JTextField(4);
+        cacheConfig.add(cacheTtlField);
+        cacheConfig.add(new JLabel("Max Entries:"));
+        cacheMaxEntriesField = new JTextField(5);
+        cacheConfig.add(cacheMaxEntriesField);
+        cacheConfig.setAlignmentX(Component.LEFT_ALIGNMENT);
+        idempotentPanel.add(cacheConfig);
+
+        cacheEnabledCheckbox.addActionListener(e -> {
+            boolean enabled = cacheEnabledCheckbox.isSelected();
+            cacheTtlField.setEnabled(enabled);
+            cacheMaxEntriesField.setEnabled(enabled);
+        });
+
+        coalesceCheckbox = new JCheckBox("Coalesce identical in-flight requests");
+        coalesceCheckbox.setAlignmentX(Component.LEFT_ALIGNMENT);
+        idempotentPanel.add(coalesceCheckbox);
+        idempotentPanel.add(createDescription("While a request for a listed method is waiting on the server, identical requests share its upstream call and response instead of being sent again. Leave off for race-condition testing."));
+
+        // Group 5: Logging
+        JPanel loggingPanel = new JPanel(new BorderLayout(5, 5));
+        loggingPanel.setBorder(BorderFactory.createTitledBorder("Logging"));
+        loggingPanel.add(createDescription("Messages are written to the Extender output in the background and dropped (with a count) if Burp can't keep up. DEBUG logs every JSON-RPC message; payloads are cut to the given length (0 = no limit)."), BorderLayout.NORTH);
+
+        JPanel loggingConfig = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        loggingConfig.add(new JLabel("Level:"));
+        logLevelCombo = new JComboBox<>(new String[]{"DEBUG", "INFO", "WARN", "ERROR", "OFF"});
+        loggingConfig.add(logLevelCombo);
+        loggingConfig.add(new JLabel("Max Payload Chars:"));
+        logMaxPayloadField = new JTextField(6);
+        loggingConfig.add(logMaxPayloadField);
+        loggingPanel.add(loggingConfig, BorderLayout.CENTER);
+
+        // Group 6: Traffic Journal
+        JPanel journalPanel = new JPanel();
+        journalPanel.setLayout(new BoxLayout(journalPanel, BoxLayout.Y_AXIS));
+        journalPanel.setBorder(BorderFactory.createTitledBorder("Traffic Journal"));
+
+        journalEnabledCheckbox = new JCheckBox("Journal all JSON-RPC traffic to disk");
+        journalEnabledCheckbox.setAlignmentX(Component.LEFT_ALIGNMENT);
+        journalPanel.add(journalEnabledCheckbox);
+        journalPanel.add(createDescription("Every frame sent to or received from the MCP server is appended to memory-mapped segment files with its timestamp, direction, session and correlation id, indexed for lookup by id or time range. The oldest segments are deleted beyond the maximum (0 = keep all)."));
+
+        JPanel journalDirectoryRow = new JPanel(new BorderLayout(5, 0));
+        journalDirectoryRow.setBorder(BorderFactory.createEmptyBorder(5, 5, 5, 5));
+        journalDirectoryRow.add(new JLabel("Directory:"), BorderLayout.WEST);
+        journalDirectoryField = new JTextField();
+        journalDirectoryRow.add(journalDirectoryField, BorderLayout.CENTER);
+        journalDirectoryRow.setAlignmentX(Component.LEFT_ALIGNMENT);
+        journalPanel.add(journalDirectoryRow);
+
+        JPanel journalConfig = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        journalConfig.add(new JLabel("Segment (MB):"));
+        journalSegmentField = new JTextField(4);
+        journalConfig.add(journalSegmentField);
+        journalConfig.add(new JLabel("Max Segments:"));
+        journalMaxSegmentsField = new JTextField(4);
+        journalConfig.add(journalMaxSegmentsField);
+        journalConfig.setAlignmentX(Component.LEFT_ALIGNMENT);
+        journalPanel.add(journalConfig);
+
         mainPanel.add(proxyPanel);
         mainPanel.add(Box.createVerticalStrut(10));
         mainPanel.add(detectionPanel);
-        
-        contentPane.add(mainPanel, BorderLayout.CENTER);
+        mainPanel.add(Box.createVerticalStrut(10));
+        mainPanel.add(bridgePanel);
+        mainPanel.add(Box.createVerticalStrut(10));
+        mainPanel.add(idempotentPanel);
+        mainPanel.add(Box.createVerticalStrut(10));
+        mainPanel.add(loggingPanel);
+        mainPanel.add(Box.createVerticalStrut(10));
+        mainPanel.add(journalPanel);
+
+        JScrollPane scrollPane = new JScrollPane(mainPanel);
+        scrollPane.setBorder(null);
+        scrollPane.getVerticalScrollBar().setUnitIncrement(16);
+        contentPane.add(scrollPane, BorderLayout.CENTER);
 
         // Buttons
         JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT));
@@ -155,6 +298,18 @@ public class SettingsDialog extends JDialog {
         setContentPane(contentPane);
     }
 
+    private JTextArea createDescription(String text) {
+        JTextArea desc = new JTextArea(text);
+        desc.setWrapStyleWord(true);
+        desc.setLineWrap(true);
+        desc.setEditable(false);
+        desc.setOpaque(false);
+        desc.setFont(desc.getFont().deriveFont(11f));
+        desc.setBorder(BorderFactory.createEmptyBorder(0, 25, 5, 5));
+        desc.setAlignmentX(Component.LEFT_ALIGNMENT);
+        return desc;
+    }
+
     private void loadSettings() {
         proxyTrafficCheckbox.setSelected(settings.isProxyTrafficEnabled());
         proxyHostField.setText(settings.getProxyHost());
@@ -166,6 +321,29 @@ public class SettingsDialog extends JDialog {
         activeDetectionCheckbox.setSelected(settings.isActiveDetectionEnabled());
         scopeOnlyCheckbox.setSelected(settings.isScopeOnlyEnabled());
         scopeOnlyCheckbox.setEnabled(settings.isActiveDetectionEnabled());
+
+        maxInFlightField.setText(String.valueOf(settings.getBridgeMaxInFlight()));
+        maxPerToolField.setText(String.valueOf(settings.getBridgeMaxPerTool()));
+        maxQueuedField.setText(String.valueOf(settings.getBridgeMaxQueued()));
+        timeoutField.setText(String.valueOf(settings.getBridgeTimeoutSeconds()));
+        sessionPoolField.setText(String.valueOf(settings.getSessionPoolSize()));
+        sendConcurrencyField.setText(String.valueOf(settings.getSendConcurrency()));
+
+        cacheEnabledCheckbox.setSelected(settings.isCacheEnabled());
+        cacheTtlField.setText(String.valueOf(settings.getCacheTtlSeconds()));
+        cacheMaxEntriesField.setText(String.valueOf(settings.getCacheMaxEntries()));
+        cacheTtlField.setEnabled(settings.isCacheEnabled());
+        cacheMaxEntriesField.setEnabled(settings.isCacheEnabled());
+        coalesceCheckbox.setSelected(settings.isCoalescingEnabled());
+        idempotentMethodsField.setText(settings.getIdempotentMethods());
+
+        logLevelCombo.setSelectedItem(settings.getLogLevel().toUpperCase(java.util.Locale.ROOT));
+        logMaxPayloadField.setText(String.valueOf(settings.getLogMaxPayloadChars()));
+
+        journalEnabledCheckbox.setSelected(settings.isJournalEnabled());
+        journalDirectoryField.setText(settings.getJournalDirectory());
+        journalSegmentField.setText(String.valueOf(settings.getJournalSegmentMb()));
+        journalMaxSegmentsField.setText(String.valueOf(settings.getJournalMaxSegments()));
     }
 
     private void saveSettings() {
@@ -180,6 +358,59 @@ public class SettingsDialog extends JDialog {
         settings.setPassiveChecksEnabled(passiveChecksCheckbox.isSelected());
         settings.setActiveDetectionEnabled(activeDetectionCheckbox.isSelected());
         settings.setScopeOnlyEnabled(scopeOnlyCheckbox.isSelected());
+
+        try {
+            settings.setBridgeMaxInFlight(Math.max(0, Integer.parseInt(maxInFlightField.getText().trim())));
+            settings.setBridgeMaxPerTool(Math.max(0, Integer.parseInt(maxPerToolField.getText().trim())));
+            settings.setBridgeMaxQueued(Math.max(0, Integer.parseInt(maxQueuedField.getText().trim())));
+        } catch (NumberFormatException e) {
+            // Keep previous limits
+        }
+        try {
+            settings.setBridgeTimeoutSeconds(Math.max(1, Integer.parseInt(timeoutField.getText().trim())));
+        } catch (NumberFormatException e) {
+            // Keep previous timeout
+        }
+        try {
+            settings.setSessionPoolSize(Math.max(0, Integer.parseInt(sessionPoolField.getText().trim())));
+        } catch (NumberFormatException e) {
+            // Keep previous pool size
+        }
+        try {
+            settings.setSendConcurrency(Math.max(1, Integer.parseInt(sendConcurrencyField.getText().trim())));
+        } catch (NumberFormatException e) {
+            // Keep previous concurrency
+        }
+
+        settings.setCacheEnabled(cacheEnabledCheckbox.isSelected());
+        settings.setCoalescingEnabled(coalesceCheckbox.isSelected());
+        settings.setIdempotentMethods(idempotentMethodsField.getText().trim());
+        try {
+            settings.setCacheTtlSeconds(Math.max(1, Integer.parseInt(cacheTtlField.getText().trim())));
+            settings.setCacheMaxEntries(Math.max(1, Integer.parseInt(cacheMaxEntriesField.getText().trim())));
+        } catch (NumberFormatException e) {
+            // Keep previous cache limits
+        }
+
+        settings.setLogLevel((String) logLevelCombo.getSelectedItem());
+        try {
+            settings.setLogMaxPayloadChars(Math.max(0, Integer.parseInt(logMaxPayloadField.getText().trim())));
+        } catch (NumberFormatException e) {
+            // Keep previous limit
+        }
+
+        settings.setJournalEnabled(journalEnabledCheckbox.isSelected());
+        if (!journalDirectoryField.getText().trim().isEmpty()) {
+            settings.setJournalDirectory(journalDirectoryField.getText().trim());
+        }
+        try {
+            settings.setJournalSegmentMb(Math.min(1024, Math.max(1, Integer.parseInt(journalSegmentField.getText().trim()))));
+            settings.setJournalMaxSegments(Math.max(0, Integer.parseInt(journalMaxSegmentsField.getText().trim())));
+        } catch (NumberFormatException e) {
+            // Keep previous journal limits
+        }
+
+        settings.fireSettingsChanged();
     }
     
     public boolean isSaved() {
@@ -0,0 +1,134 @@
+package com.mcp_asd.burp.ui;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import javax.swing.*;
+import java.awt.*;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * What the dashboard knows about one target: its primitive lists, status and server
+ * info. The engine updates every target's view as it connects and enumerates; the
+ * dashboard shows whichever one is selected in its target list.
+ */
+public class TargetView {
+    private final DashboardTab dashboard;
+    private final String name;
+    private final String host;
+    private final int port;
+
+    final DefaultListModel<AttackSurfaceNode> toolsModel = new DefaultListModel<>();
+    final DefaultListModel<AttackSurfaceNode> resourcesModel = new DefaultListModel<>();
+    final DefaultListModel<AttackSurfaceNode> promptsModel = new DefaultListModel<>();
+
+    private volatile String status = "⚪ Status: Idle";
+    private volatile Color statusColor = Color.GRAY;
+    private volatile JSONObject serverInfo;
+    private volatile boolean cancelEnabled;
+
+    TargetView(DashboardTab dashboard, String name, String host, int port) {
+        this.dashboard = dashboard;
+        this.name = name;
+        this.host = host;
+        this.port = port;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    // host:port, or just the command line of a locally launched server
+    String getLocation() {
+        return port > 0 ? host + ":" + port : host;
+    }
+
+    String getStatus() {
+        return status;
+    }
+
+    Color getStatusColor() {
+        return statusColor;
+    }
+
+    JSONObject getServerInfo() {
+        return serverInfo;
+    }
+
+    boolean isCancelEnabled() {
+        return cancelEnabled;
+    }
+
+    public void setStatus(String status, Color color) {
+        this.status = status;
+        this.statusColor = color;
+        dashboard.targetChanged(this);
+    }
+
+    public void updateServerInfo(JSONObject info) {
+        this.serverInfo = info;
+        dashboard.targetChanged(this);
+    }
+
+    public void setCancelEnabled(boolean enabled) {
+        this.cancelEnabled = enabled;
+        dashboard.targetChanged(this);
+    }
+
+    // Enumeration arrives one page at a time; each page is appended (call on the EDT)
+    public void appendTools(JSONObject page) {
+        appendPage(toolsModel, page);
+    }
+
+    public void appendResources(JSONObject page) {
+        appendPage(resourcesModel, page);
+    }
+
+    public void appendPrompts(JSONObject page) {
+        appendPage(promptsModel, page);
+    }
+
+    private void appendPage(DefaultListModel<AttackSurfaceNode> model, JSONObject result) {
+        // We assume result is the "result" object from MCP (which might contain "tools": [...])
+        // The key name isn't passed here, so we look for the known ones.
+        // Nodes are collected first so a large page fires a single model event.
+        List<AttackSurfaceNode> nodes = new ArrayList<>();
+
+        // Try to find the main array key (tools/resources/prompts)
+        String mainKey = null;
+        if (result.has("tools")) mainKey = "tools";
+        else if (result.has("resources")) mainKey = "resources";
+        else if (result.has("prompts")) mainKey = "prompts";
+
+        if (mainKey != null) {
+            // Standard Spec
+            JSONArray items = result.getJSONArray(mainKey);
+            for (int i = 0; i < items.length(); i++) {
+                JSONObject item = items.getJSONObject(i);
+                String displayName = item.optString("name", item.optString("uri", "Unknown"));
+                nodes.add(new AttackSurfaceNode(displayName, item));
+            }
+        } else {
+            // Map-based fallback (for our simple python server if it sends that way)
+            // Iterate all keys
+            for (String itemName : result.keySet()) {
+                Object val = result.get(itemName);
+                if (val instanceof JSONObject) {
+                    JSONObject item = (JSONObject) val;
+                    if (!item.has("name")) item.put("name", itemName);
+                    String displayName = item.optString("name", itemName);
+                    nodes.add(new AttackSurfaceNode(displayName, item));
+                }
+            }
+        }
+        model.addAll(nodes);
+        dashboard.targetChanged(this);
+    }
+
+    // Shown in the dashboard's target list
+    @Override
+    public String toString() {
+        return name + "  (" + getLocation() + ")  " + status;
+    }
+}
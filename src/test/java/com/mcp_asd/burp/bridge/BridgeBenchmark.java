@@ -0,0 +1,196 @@
+package com.mcp_asd.burp.bridge;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput comparison between the selector-based {@link BridgeServer} and the
+ * blocking model it replaced (one pooled thread per connection, parked in
+ * {@code future.get()} until the MCP server answers).
+ *
+ * Every request is answered after a fixed delay, standing in for a slow tool. The run
+ * reports requests per second and the JVM's peak thread count for each server.
+ *
+ * Run with {@code ./gradlew bridgeBenchmark}, optionally passing
+ * {@code --args="<clients> <requestsPerClient> <latencyMillis>"} (default 200 20 50).
+ */
+public final class BridgeBenchmark {
+    private static final byte[] RESPONSE = "{\"jsonrpc\":\"2.0\",\"id\":1,\"result\":{}}".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] BODY = "{\"jsonrpc\":\"2.0\",\"id\":1,\"method\":\"tools/list\"}".getBytes(StandardCharsets.UTF_8);
+
+    private BridgeBenchmark() {}
+
+    public static void main(String[] args) throws Exception {
+        int clients = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        int perClient = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+        long latency = args.length > 2 ? Long.parseLong(args[2]) : 50;
+
+        ScheduledExecutorService upstream = Executors.newScheduledThreadPool(2);
+        BridgeServer.RequestHandler handler = request -> {
+            CompletableFuture<BridgeResponse> future = new CompletableFuture<>();
+            upstream.schedule(() -> future.complete(new BridgeResponse(200, "application/json", RESPONSE)), latency, TimeUnit.MILLISECONDS);
+            return future;
+        };
+        System.out.printf("%d clients x %d requests, %d ms per call%n", clients, perClient, latency);
+
+        // Warm-up, so class loading and JIT don't count against whichever runs first
+        BlockingServer warmBlocking = new BlockingServer(handler);
+        run(warmBlocking.port, Math.min(clients, 20), 5, false);
+        warmBlocking.stop();
+        BridgeServer warmNio = new BridgeServer(null, handler);
+        run(warmNio.start(), Math.min(clients, 20), 5, true);
+        warmNio.stop();
+
+        BlockingServer blocking = new BlockingServer(handler);
+        report("Blocking, connection per request", blocking.port, clients, perClient, false);
+        blocking.stop();
+
+        BridgeServer nio = new BridgeServer(null, handler);
+        int port = nio.start();
+        report("NIO, connection per request", port, clients, perClient, false);
+        report("NIO, keep-alive", port, clients, perClient, true);
+        nio.stop();
+
+        upstream.shutdownNow();
+    }
+
+    private static void report(String label, int port, int clients, int perClient, boolean keepAlive) throws Exception {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        System.gc();
+        threads.resetPeakThreadCount();
+        long start = System.nanoTime();
+        int failed = run(port, clients, perClient, keepAlive);
+        double seconds = (System.nanoTime() - start) / 1e9;
+        int total = clients * perClient;
+        // The client threads are the same in every run; only the server side differs
+        System.out.printf("%-34s %8.0f req/s  %6.2f s  peak threads %4d  failed %d%n",
+                label, total / seconds, seconds, threads.getPeakThreadCount(), failed);
+    }
+
+    private static int run(int port, int clients, int perClient, boolean keepAlive) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(clients);
+        List<CompletableFuture<Integer>> results = new ArrayList<>();
+        for (int c = 0; c < clients; c++) {
+            results.add(CompletableFuture.supplyAsync(() -> client(port, perClient, keepAlive), pool));
+        }
+        int failed = 0;
+        for (CompletableFuture<Integer> result : results) failed += result.get();
+        pool.shutdown();
+        pool.awaitTermination(10, TimeUnit.SECONDS); // So the next run's peak starts clean
+        return failed;
+    }
+
+    // Sends requests one after another; returns how many failed
+    private static int client(int port, int requests, boolean keepAlive) {
+        int failed = 0;
+        Socket socket = null;
+        try {
+            for (int i = 0; i < requests; i++) {
+                if (socket == null) socket = new Socket(InetAddress.getLoopbackAddress(), port);
+                try {
+                    exchange(socket, keepAlive);
+                } catch (IOException e) {
+                    failed++;
+                    socket.close();
+                    socket = null;
+                    continue;
+                }
+                if (!keepAlive) {
+                    socket.close();
+                    socket = null;
+                }
+            }
+            if (socket != null) socket.close();
+        } catch (IOException e) {
+            return requests;
+        }
+        return failed;
+    }
+
+    private static void exchange(Socket socket, boolean keepAlive) throws IOException {
+        String head = "POST /invoke HTTP/1.1\r\nHost: mcp-asd.local\r\nContent-Type: application/json\r\n"
+                + "Connection: " + (keepAlive ? "keep-alive" : "close") + "\r\nContent-Length: " + BODY.length + "\r\n\r\n";
+        OutputStream out = socket.getOutputStream();
+        out.write(head.getBytes(StandardCharsets.ISO_8859_1));
+        out.write(BODY);
+        out.flush();
+        readResponse(socket.getInputStream());
+    }
+
+    private static void readResponse(InputStream in) throws IOException {
+        StringBuilder head = new StringBuilder();
+        int b;
+        while ((b = in.read()) != -1) {
+            head.append((char) b);
+            if (head.length() >= 4 && head.lastIndexOf("\r\n\r\n") == head.length() - 4) break;
+        }
+        if (b == -1) throw new IOException("Connection closed before the response");
+        int length = 0;
+        for (String line : head.toString().split("\r\n")) {
+            if (line.regionMatches(true, 0, "Content-Length:", 0, 15)) length = Integer.parseInt(line.substring(15).trim());
+        }
+        if (in.readNBytes(length).length != length) throw new IOException("Truncated response");
+    }
+
+    /** The pre-NIO bridge: a cached thread pool, one thread parked per connection. */
+    private static final class BlockingServer {
+        private final ServerSocket serverSocket;
+        private final ExecutorService workers = Executors.newCachedThreadPool();
+        private final int port;
+
+        BlockingServer(BridgeServer.RequestHandler handler) throws IOException {
+            serverSocket = new ServerSocket(0, 100, InetAddress.getLoopbackAddress());
+            port = serverSocket.getLocalPort();
+            Thread acceptor = new Thread(() -> {
+                while (!serverSocket.isClosed()) {
+                    try {
+                        Socket socket = serverSocket.accept();
+                        workers.submit(() -> serve(socket, handler));
+                    } catch (IOException e) {
+                        return;
+                    }
+                }
+            }, "Blocking-Acceptor");
+            acceptor.setDaemon(true);
+            acceptor.start();
+        }
+
+        private void serve(Socket socket, BridgeServer.RequestHandler handler) {
+            try (socket) {
+                ByteBuffer buffer = ByteBuffer.allocate(16 * 1024);
+                InputStream in = socket.getInputStream();
+                BridgeRequest request = null;
+                while (request == null) {
+                    int read = in.read(buffer.array(), buffer.position(), buffer.remaining());
+                    if (read == -1) return;
+                    buffer.position(buffer.position() + read);
+                    request = BridgeRequest.decode(buffer);
+                }
+                BridgeResponse response = handler.handle(request).get(60, TimeUnit.SECONDS);
+                socket.getOutputStream().write(response.encode(false));
+            } catch (Exception ignored) {
+                // Counted as a failure by the client
+            }
+        }
+
+        void stop() throws IOException {
+            serverSocket.close();
+            workers.shutdownNow();
+        }
+    }
+}
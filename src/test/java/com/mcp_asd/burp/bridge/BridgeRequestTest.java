@@ -0,0 +1,123 @@
+package com.mcp_asd.burp.bridge;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class BridgeRequestTest {
+
+    private static ByteBuffer buffer(String... parts) {
+        ByteBuffer buffer = ByteBuffer.allocate(256 * 1024);
+        for (String part : parts) buffer.put(part.getBytes(StandardCharsets.ISO_8859_1));
+        return buffer;
+    }
+
+    private static String remaining(ByteBuffer buffer) {
+        return new String(buffer.array(), 0, buffer.position(), StandardCharsets.ISO_8859_1);
+    }
+
+    private static int status(ByteBuffer buffer) {
+        return assertThrows(BridgeProtocolException.class, () -> BridgeRequest.decode(buffer)).getStatus();
+    }
+
+    @Test
+    void decodesRequestLineHeadersAndBody() throws Exception {
+        ByteBuffer buffer = buffer("POST /invoke/github HTTP/1.1\r\nHost: mcp-asd.local\r\nX-MCP-Timeout:  2.5 \r\nContent-Length: 7\r\n\r\n{\"a\":1}");
+        BridgeRequest request = BridgeRequest.decode(buffer);
+
+        assertNotNull(request);
+        assertEquals("POST", request.getMethod());
+        assertEquals("/invoke/github", request.getPath());
+        assertEquals("HTTP/1.1", request.getVersion());
+        assertEquals("mcp-asd.local", request.getHeader("HOST"));
+        assertEquals("2.5", request.getHeader("x-mcp-timeout"));
+        assertArrayEquals("{\"a\":1}".getBytes(StandardCharsets.UTF_8), request.getBody());
+        assertEquals(0, buffer.position());
+    }
+
+    @Test
+    void requestWithoutContentLengthHasEmptyBody() throws Exception {
+        BridgeRequest request = BridgeRequest.decode(buffer("GET /metrics HTTP/1.1\r\nHost: x\r\n\r\n"));
+        assertNotNull(request);
+        assertEquals(0, request.getBody().length);
+        assertNull(request.getHeader("Content-Length"));
+    }
+
+    @Test
+    void waitsForTheRestOfTheHeaders() throws Exception {
+        ByteBuffer buffer = buffer("POST /invoke HTTP/1.1\r\nContent-Le");
+        assertNull(BridgeRequest.decode(buffer));
+        assertEquals("POST /invoke HTTP/1.1\r\nContent-Le", remaining(buffer)); // Left as it was
+
+        buffer.put("ngth: 2\r\n\r\n{}".getBytes(StandardCharsets.ISO_8859_1));
+        BridgeRequest request = BridgeRequest.decode(buffer);
+        assertNotNull(request);
+        assertEquals("{}", new String(request.getBody(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void waitsForTheRestOfTheBody() throws Exception {
+        ByteBuffer buffer = buffer("POST /invoke HTTP/1.1\r\nContent-Length: 10\r\n\r\n12345");
+        assertNull(BridgeRequest.decode(buffer));
+        buffer.put("67890".getBytes(StandardCharsets.ISO_8859_1));
+        assertEquals("1234567890", new String(BridgeRequest.decode(buffer).getBody(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void pipelinedRequestsAreDecodedOneAtATime() throws Exception {
+        ByteBuffer buffer = buffer(
+                "POST /invoke HTTP/1.1\r\nContent-Length: 1\r\n\r\nA",
+                "POST /invoke-batch HTTP/1.1\r\nContent-Length: 1\r\n\r\nB",
+                "POST /inv");
+
+        BridgeRequest first = BridgeRequest.decode(buffer);
+        assertEquals("/invoke", first.getPath());
+        assertEquals("A", new String(first.getBody(), StandardCharsets.UTF_8));
+
+        BridgeRequest second = BridgeRequest.decode(buffer);
+        assertEquals("/invoke-batch", second.getPath());
+        assertEquals("B", new String(second.getBody(), StandardCharsets.UTF_8));
+
+        assertNull(BridgeRequest.decode(buffer));
+        assertEquals("POST /inv", remaining(buffer));
+    }
+
+    @Test
+    void rejectsMalformedRequestLine() {
+        assertEquals(400, status(buffer("POST /invoke\r\n\r\n")));
+        assertEquals(400, status(buffer("POST /a b HTTP/1.1\r\n\r\n")));
+    }
+
+    @Test
+    void rejectsInvalidContentLength() {
+        assertEquals(400, status(buffer("POST / HTTP/1.1\r\nContent-Length: ten\r\n\r\n")));
+        assertEquals(400, status(buffer("POST / HTTP/1.1\r\nContent-Length: -1\r\n\r\n")));
+        assertEquals(413, status(buffer("POST / HTTP/1.1\r\nContent-Length: " + (BridgeRequest.MAX_BODY_BYTES + 1) + "\r\n\r\n")));
+    }
+
+    @Test
+    void rejectsChunkedBodies() {
+        assertEquals(400, status(buffer("POST / HTTP/1.1\r\nTransfer-Encoding: chunked\r\n\r\n")));
+    }
+
+    @Test
+    void rejectsOversizedHeaders() {
+        StringBuilder head = new StringBuilder("POST / HTTP/1.1\r\n");
+        while (head.length() <= BridgeRequest.MAX_HEADER_BYTES) head.append("X-Filler: 0123456789abcdef\r\n");
+        assertEquals(431, status(buffer(head.toString())));
+    }
+
+    @Test
+    void headerLinesWithoutNameAreIgnored() throws Exception {
+        BridgeRequest request = BridgeRequest.decode(buffer("GET / HTTP/1.1\r\n: nameless\r\nnot a header\r\nHost: x\r\n\r\n"));
+        assertEquals(1, request.getHeaders().size());
+        assertEquals("x", request.getHeader("host"));
+    }
+}
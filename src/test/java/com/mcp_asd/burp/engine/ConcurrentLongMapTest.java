@@ -0,0 +1,175 @@
+package com.mcp_asd.burp.engine;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ConcurrentLongMapTest {
+    // Mirrors the map's layout (16 stripes, 64 initial slots, slot from the hash's upper
+    // bits) so tests can pick keys that collide
+    private static final int STRIPES = 16;
+    private static final int INITIAL_CAPACITY = 64;
+
+    private static int hash(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    /** {@code count} keys that land in stripe 0 with {@code slot} as their ideal slot. */
+    private static List<Long> collidingKeys(int slot, int count) {
+        List<Long> keys = new ArrayList<>();
+        for (long key = 1; keys.size() < count; key++) {
+            int h = hash(key);
+            if ((h & (STRIPES - 1)) == 0 && ((h >>> 4) & (INITIAL_CAPACITY - 1)) == slot) keys.add(key);
+        }
+        return keys;
+    }
+
+    @Test
+    void putGetAndRemove() {
+        ConcurrentLongMap<String> map = new ConcurrentLongMap<>();
+        assertNull(map.put(7, "a"));
+        assertEquals("a", map.put(7, "b"));
+        assertEquals("b", map.get(7));
+        assertEquals(1, map.size());
+        assertEquals("b", map.remove(7));
+        assertNull(map.get(7));
+        assertNull(map.remove(7));
+        assertEquals(0, map.size());
+    }
+
+    @Test
+    void keyZeroIsReserved() {
+        ConcurrentLongMap<String> map = new ConcurrentLongMap<>();
+        assertThrows(IllegalArgumentException.class, () -> map.put(0, "x"));
+        assertNull(map.get(0));
+        assertNull(map.remove(0));
+    }
+
+    @Test
+    void negativeAndExtremeKeys() {
+        ConcurrentLongMap<String> map = new ConcurrentLongMap<>();
+        map.put(-1, "minus one");
+        map.put(Long.MIN_VALUE, "min");
+        map.put(Long.MAX_VALUE, "max");
+        assertEquals("minus one", map.get(-1));
+        assertEquals("min", map.get(Long.MIN_VALUE));
+        assertEquals("max", map.get(Long.MAX_VALUE));
+    }
+
+    @Test
+    void collisionChainSurvivesRemovalFromTheMiddle() {
+        ConcurrentLongMap<Long> map = new ConcurrentLongMap<>();
+        List<Long> keys = collidingKeys(10, 6);
+        for (long key : keys) map.put(key, key);
+
+        assertEquals(keys.get(2), map.remove(keys.get(2)));
+        assertNull(map.get(keys.get(2)));
+        for (int i = 0; i < keys.size(); i++) {
+            if (i != 2) assertEquals(keys.get(i), map.get(keys.get(i)), "key " + i + " after removing key 2");
+        }
+
+        // The head of the chain, then the tail
+        map.remove(keys.get(0));
+        map.remove(keys.get(5));
+        assertEquals(keys.get(1), map.get(keys.get(1)));
+        assertEquals(keys.get(3), map.get(keys.get(3)));
+        assertEquals(keys.get(4), map.get(keys.get(4)));
+        assertEquals(3, map.size());
+
+        // Re-inserting a removed key lands back in the chain
+        map.put(keys.get(2), -1L);
+        assertEquals(-1L, map.get(keys.get(2)));
+    }
+
+    @Test
+    void probeRunWrapsAroundTheEndOfTheTable() {
+        ConcurrentLongMap<Long> map = new ConcurrentLongMap<>();
+        List<Long> last = collidingKeys(INITIAL_CAPACITY - 1, 4); // Slots 63, 0, 1, 2
+        long first = collidingKeys(0, 1).get(0);                  // Pushed on to slot 3
+        for (long key : last) map.put(key, key);
+        map.put(first, first);
+
+        // Removing the entry in slot 63 shifts the wrapped entries back across the end
+        map.remove(last.get(0));
+        for (int i = 1; i < last.size(); i++) assertEquals(last.get(i), map.get(last.get(i)));
+        assertEquals(first, map.get(first));
+
+        map.remove(last.get(2));
+        assertEquals(last.get(1), map.get(last.get(1)));
+        assertEquals(last.get(3), map.get(last.get(3)));
+        assertEquals(first, map.get(first));
+        assertEquals(3, map.size());
+    }
+
+    @Test
+    void growsAndShrinks() {
+        ConcurrentLongMap<Long> map = new ConcurrentLongMap<>();
+        int count = 10_000; // Far past half of 16 x 64 slots
+        for (long key = 1; key <= count; key++) map.put(key, key * 2);
+        assertEquals(count, map.size());
+        for (long key = 1; key <= count; key++) assertEquals(key * 2, map.get(key));
+
+        // Draining back below an eighth shrinks the tables again
+        for (long key = 1; key <= count - 10; key++) assertEquals(key * 2, map.remove(key));
+        assertEquals(10, map.size());
+        for (long key = count - 9; key <= count; key++) assertEquals(key * 2, map.get(key));
+        assertNull(map.get(1));
+    }
+
+    @Test
+    void removeIfMappedComparesByIdentity() {
+        ConcurrentLongMap<String> map = new ConcurrentLongMap<>();
+        String value = new String("v");
+        map.put(3, value);
+        assertFalse(map.remove(3, new String("v")));
+        assertTrue(map.remove(3, value));
+        assertFalse(map.remove(3, value));
+    }
+
+    @Test
+    void clearReturnsEveryValue() {
+        ConcurrentLongMap<Long> map = new ConcurrentLongMap<>();
+        for (long key = 1; key <= 500; key++) map.put(key, key);
+        List<Long> removed = map.clear();
+        assertEquals(500, removed.size());
+        assertEquals(0, map.size());
+        assertNull(map.get(250));
+        map.put(250, 1L);
+        assertEquals(1L, map.get(250));
+    }
+
+    @Test
+    void matchesHashMapUnderRandomOperations() {
+        ConcurrentLongMap<Long> map = new ConcurrentLongMap<>();
+        Map<Long, Long> expected = new HashMap<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 200_000; i++) {
+            long key = 1 + random.nextInt(3000);
+            switch (random.nextInt(3)) {
+                case 0:
+                    assertEquals(expected.put(key, (long) i), map.put(key, (long) i));
+                    break;
+                case 1:
+                    assertEquals(expected.remove(key), map.remove(key));
+                    break;
+                default:
+                    assertEquals(expected.get(key), map.get(key));
+            }
+        }
+        assertEquals(expected.size(), map.size());
+        for (Map.Entry<Long, Long> entry : expected.entrySet()) {
+            assertEquals(entry.getValue(), map.get(entry.getKey()));
+        }
+    }
+}
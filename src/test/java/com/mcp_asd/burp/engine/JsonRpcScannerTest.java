@@ -0,0 +1,131 @@
+package com.mcp_asd.burp.engine;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class JsonRpcScannerTest {
+
+    private static byte[] bytes(String json) {
+        return json.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String text(byte[] json, int[] span) {
+        return new String(json, span[0], span[1] - span[0], StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void findsTopLevelMembersOnly() {
+        byte[] json = bytes("{\"params\":{\"id\":99,\"method\":\"inner\"}, \"id\" : 7 ,\"method\":\"tools/call\"}");
+        int[][] members = JsonRpcScanner.findMembers(json, 0, json.length, "id", "method", "result");
+        assertEquals("7", text(json, members[0]));
+        assertEquals("\"tools/call\"", text(json, members[1]));
+        assertNull(members[2]);
+    }
+
+    @Test
+    void emptyObjectHasNoMembers() {
+        byte[] json = bytes(" { } ");
+        assertNull(JsonRpcScanner.findMember(json, 0, json.length, "id"));
+    }
+
+    @Test
+    void escapedMemberNameStillMatches() {
+        byte[] json = bytes("{\"\\u0069d\":5}");
+        assertEquals("5", text(json, JsonRpcScanner.findMember(json, 0, json.length, "id")));
+    }
+
+    @Test
+    void rejectsDuplicateRequestedMembers() {
+        byte[] json = bytes("{\"id\":1,\"method\":\"a\",\"id\":2}");
+        assertThrows(IllegalArgumentException.class, () -> JsonRpcScanner.findMembers(json, 0, json.length, "id", "method"));
+        // Duplicates of members nobody asked for are not the scanner's concern
+        assertEquals("\"a\"", text(json, JsonRpcScanner.findMember(json, 0, json.length, "method")));
+    }
+
+    @Test
+    void rejectsMalformedObjects() {
+        for (String malformed : new String[]{"", "[]", "{\"id\":1", "{\"id\" 1}", "{\"id\":1,}", "{\"id\":1} x", "{\"id\":\"open}", "{id:1}"}) {
+            byte[] json = bytes(malformed);
+            assertThrows(IllegalArgumentException.class, () -> JsonRpcScanner.findMember(json, 0, json.length, "id"), malformed);
+        }
+    }
+
+    @Test
+    void decodesStringMembers() {
+        byte[] json = bytes("{\"method\":\"a\\\"b\\\\c\\n\\u00e9\",\"id\":1}");
+        assertEquals("a\"b\\c\n\u00e9", JsonRpcScanner.stringMember(json, 0, json.length, "method"));
+        assertNull(JsonRpcScanner.stringMember(json, 0, json.length, "id"));
+        assertNull(JsonRpcScanner.stringMember(json, 0, json.length, "params"));
+    }
+
+    @Test
+    void rejectsTruncatedUnicodeEscapes() {
+        for (String escape : new String[]{"\\u", "\\u0", "\\u00e"}) {
+            byte[] json = bytes("{\"method\":\"" + escape + "\"}");
+            assertThrows(IllegalArgumentException.class, () -> JsonRpcScanner.stringMember(json, 0, json.length, "method"), escape);
+        }
+        byte[] nonHex = bytes("{\"method\":\"\\uzzzz\"}");
+        assertThrows(IllegalArgumentException.class, () -> JsonRpcScanner.stringMember(nonHex, 0, nonHex.length, "method"));
+    }
+
+    @Test
+    void idValueKeysLikeCorrelation() {
+        byte[] json = bytes("{\"a\":\"x\\u0031\",\"b\":42,\"c\":null}");
+        int[][] members = JsonRpcScanner.findMembers(json, 0, json.length, "a", "b", "c");
+        assertEquals("x1", JsonRpcScanner.idValue(json, members[0]));
+        assertEquals("42", JsonRpcScanner.idValue(json, members[1]));
+        assertNull(JsonRpcScanner.idValue(json, members[2]));
+    }
+
+    @Test
+    void parsesLongValues() {
+        byte[] json = bytes("{\"a\":-9223372036854775807,\"b\":9223372036854775808,\"c\":1.5,\"d\":-}");
+        int[][] members = JsonRpcScanner.findMembers(json, 0, json.length, "a", "b", "c", "d");
+        assertEquals(-9223372036854775807L, JsonRpcScanner.longValue(json, members[0]));
+        assertThrows(NumberFormatException.class, () -> JsonRpcScanner.longValue(json, members[1]));
+        assertThrows(NumberFormatException.class, () -> JsonRpcScanner.longValue(json, members[2]));
+        assertThrows(NumberFormatException.class, () -> JsonRpcScanner.longValue(json, members[3]));
+    }
+
+    @Test
+    void splitsBatchesWithoutParsingElements() {
+        byte[] json = bytes(" [ {\"id\":1,\"params\":[1,{\"x\":\"]\"}]} , \"s\" ,3, [] ] ");
+        List<int[]> elements = JsonRpcScanner.splitArray(json);
+        assertEquals(4, elements.size());
+        assertEquals("{\"id\":1,\"params\":[1,{\"x\":\"]\"}]}", text(json, elements.get(0)));
+        assertEquals("\"s\"", text(json, elements.get(1)));
+        assertEquals("3", text(json, elements.get(2)));
+        assertEquals("[]", text(json, elements.get(3)));
+
+        assertEquals(0, JsonRpcScanner.splitArray(bytes("[]")).size());
+        assertThrows(IllegalArgumentException.class, () -> JsonRpcScanner.splitArray(bytes("[1,2")));
+        assertThrows(IllegalArgumentException.class, () -> JsonRpcScanner.splitArray(bytes("[1] [2]")));
+        assertThrows(IllegalArgumentException.class, () -> JsonRpcScanner.splitArray(bytes("{}")));
+    }
+
+    @Test
+    void splicesIdIntoPlace() {
+        byte[] json = bytes("{\"jsonrpc\":\"2.0\", \"id\": \"old\" ,\"method\":\"m\"}");
+        assertArrayEquals(bytes("{\"jsonrpc\":\"2.0\", \"id\": 17 ,\"method\":\"m\"}"), JsonRpcScanner.spliceId(json, "17"));
+    }
+
+    @Test
+    void splicesIdIntoNotifications() {
+        assertArrayEquals(bytes("{\"id\":5,\"method\":\"m\"}"), JsonRpcScanner.spliceId(bytes("{\"method\":\"m\"}"), "5"));
+        assertArrayEquals(bytes("{\"id\":5}"), JsonRpcScanner.spliceId(bytes("{}"), "5"));
+    }
+
+    @Test
+    void splicesIdIntoBatchElement() {
+        byte[] batch = bytes("[{\"id\":1},{\"id\":2,\"method\":\"m\"}]");
+        int[] second = JsonRpcScanner.splitArray(batch).get(1);
+        assertArrayEquals(bytes("{\"id\":\"x\",\"method\":\"m\"}"), JsonRpcScanner.spliceId(batch, second[0], second[1], "\"x\""));
+    }
+}
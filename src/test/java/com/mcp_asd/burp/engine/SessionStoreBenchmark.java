@@ -0,0 +1,126 @@
+package com.mcp_asd.burp.engine;
+
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Correlation cost per request in {@link SessionStore}: the UUID string ids bridge
+ * requests used to get, kept in the {@code ConcurrentHashMap<String, ...>}, against the
+ * per-session long ids kept in the {@link ConcurrentLongMap}.
+ *
+ * Each worker keeps a fixed number of requests in flight, like an Intruder attack with
+ * that many threads. A request is registered with its deadline, the response is built
+ * as the server would echo it, and the response is then correlated the way
+ * {@link InboundRouter} does it. Both sides pay for building the response bytes. The
+ * run reports requests per second and bytes allocated per request.
+ *
+ * Run with {@code ./gradlew sessionStoreBenchmark}, optionally passing
+ * {@code --args="<threads> <requestsPerThread> <inFlight>"} (default 8 500000 64).
+ */
+public final class SessionStoreBenchmark {
+    private static final String PREFIX = "{\"jsonrpc\":\"2.0\",\"id\":";
+    private static final String SUFFIX = ",\"result\":{\"content\":[]}}";
+    private static final long TIMEOUT_MILLIS = TimeUnit.MINUTES.toMillis(5);
+
+    private SessionStoreBenchmark() {}
+
+    public static void main(String[] args) throws Exception {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : 8;
+        int perThread = args.length > 1 ? Integer.parseInt(args[1]) : 500_000;
+        int inFlight = args.length > 2 ? Integer.parseInt(args[2]) : 64;
+        System.out.printf("%d threads x %d requests, %d in flight per thread%n", threads, perThread, inFlight);
+
+        TimerWheel wheel = new TimerWheel("MCP-ASD-Benchmark-Timeouts");
+        try {
+            // Warm-up, so class loading and JIT don't count against whichever runs first
+            for (int i = 0; i < 3; i++) {
+                run(new SessionStore(wheel), threads, perThread / 5, inFlight, false);
+                run(new SessionStore(wheel), threads, perThread / 5, inFlight, true);
+            }
+            report("UUID ids, ConcurrentHashMap", new SessionStore(wheel), threads, perThread, inFlight, false);
+            report("Long ids, ConcurrentLongMap", new SessionStore(wheel), threads, perThread, inFlight, true);
+        } finally {
+            wheel.shutdown();
+        }
+    }
+
+    private static void report(String label, SessionStore store, int threads, int perThread, int inFlight, boolean numeric) throws Exception {
+        System.gc();
+        long start = System.nanoTime();
+        long allocated = run(store, threads, perThread, inFlight, numeric);
+        double seconds = (System.nanoTime() - start) / 1e9;
+        long total = (long) threads * perThread;
+        System.out.printf("%-30s %12.0f req/s  %6.2f s  %6.0f bytes/req  pending %d%n",
+                label, total / seconds, seconds, (double) allocated / total, store.size());
+    }
+
+    // Returns the bytes the workers allocated
+    private static long run(SessionStore store, int threads, int perThread, int inFlight, boolean numeric) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        List<CompletableFuture<Long>> results = new ArrayList<>();
+        McpSession session = new McpSession("benchmark", store);
+        for (int t = 0; t < threads; t++) {
+            results.add(CompletableFuture.supplyAsync(
+                    () -> numeric ? numericWorker(store, session, perThread, inFlight) : uuidWorker(store, perThread, inFlight), pool));
+        }
+        long allocated = 0;
+        for (CompletableFuture<Long> result : results) allocated += result.get();
+        pool.shutdown();
+        pool.awaitTermination(10, TimeUnit.SECONDS);
+        return allocated;
+    }
+
+    private static long uuidWorker(SessionStore store, int requests, int inFlight) {
+        long before = allocatedBytes();
+        String[] window = new String[inFlight];
+        for (int i = 0; i < requests + inFlight; i++) {
+            int slot = i % inFlight;
+            String answered = window[slot];
+            if (answered != null) {
+                byte[] response = (PREFIX + '"' + answered + '"' + SUFFIX).getBytes(StandardCharsets.UTF_8);
+                int[] id = JsonRpcScanner.findMembers(response, 0, response.length, "id", "method")[0];
+                store.completeRequest(JsonRpcScanner.idValue(response, id), new JsonRpcMessage(response));
+                window[slot] = null;
+            }
+            if (i < requests) {
+                String id = UUID.randomUUID().toString();
+                store.registerRequest(id, new CompletableFuture<>(), TIMEOUT_MILLIS);
+                window[slot] = id;
+            }
+        }
+        return allocatedBytes() - before;
+    }
+
+    private static long numericWorker(SessionStore store, McpSession session, int requests, int inFlight) {
+        long before = allocatedBytes();
+        long[] window = new long[inFlight];
+        for (int i = 0; i < requests + inFlight; i++) {
+            int slot = i % inFlight;
+            long answered = window[slot];
+            if (answered != 0) {
+                byte[] response = (PREFIX + answered + SUFFIX).getBytes(StandardCharsets.UTF_8);
+                int[] id = JsonRpcScanner.findMembers(response, 0, response.length, "id", "method")[0];
+                store.completeRequest(JsonRpcScanner.longValue(response, id), new JsonRpcMessage(response));
+                window[slot] = 0;
+            }
+            if (i < requests) {
+                long id = session.nextRequestId();
+                store.registerRequest(id, new CompletableFuture<>(), TIMEOUT_MILLIS);
+                window[slot] = id;
+            }
+        }
+        return allocatedBytes() - before;
+    }
+
+    private static long allocatedBytes() {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        return threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+}
@@ -0,0 +1,101 @@
+package com.mcp_asd.burp.engine;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TimerWheelTest {
+    private final TimerWheel wheel = new TimerWheel("TimerWheelTest");
+
+    @AfterEach
+    void stopTicker() {
+        wheel.shutdown();
+    }
+
+    @Test
+    void firesAfterTheDelayOnTheTicker() throws InterruptedException {
+        CountDownLatch fired = new CountDownLatch(1);
+        AtomicReference<String> thread = new AtomicReference<>();
+        long start = System.nanoTime();
+        wheel.schedule(200, () -> {
+            thread.set(Thread.currentThread().getName());
+            fired.countDown();
+        });
+
+        assertTrue(fired.await(5, TimeUnit.SECONDS));
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        assertTrue(elapsedMillis >= 200, "fired after " + elapsedMillis + " ms"); // Late by up to a tick, never early
+        assertEquals("TimerWheelTest", thread.get());
+    }
+
+    @Test
+    void zeroDelayFiresOnTheNextTick() throws InterruptedException {
+        CountDownLatch fired = new CountDownLatch(1);
+        wheel.schedule(0, fired::countDown);
+        assertTrue(fired.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void cancelledTimeoutNeverFires() throws InterruptedException {
+        AtomicInteger runs = new AtomicInteger();
+        TimerWheel.Timeout timeout = wheel.schedule(100, runs::incrementAndGet);
+        assertTrue(timeout.cancel());
+        assertFalse(timeout.cancel());
+
+        // A later timeout firing shows the wheel went past the cancelled one's bucket
+        CountDownLatch later = new CountDownLatch(1);
+        wheel.schedule(300, later::countDown);
+        assertTrue(later.await(5, TimeUnit.SECONDS));
+        assertEquals(0, runs.get());
+    }
+
+    @Test
+    void cancelAfterFiringReportsFalse() throws InterruptedException {
+        CountDownLatch fired = new CountDownLatch(1);
+        TimerWheel.Timeout timeout = wheel.schedule(0, fired::countDown);
+        assertTrue(fired.await(5, TimeUnit.SECONDS));
+        assertFalse(timeout.cancel());
+    }
+
+    @Test
+    void firesInDeadlineOrder() throws InterruptedException {
+        List<Integer> order = new CopyOnWriteArrayList<>();
+        CountDownLatch fired = new CountDownLatch(3);
+        wheel.schedule(600, () -> { order.add(3); fired.countDown(); });
+        wheel.schedule(100, () -> { order.add(1); fired.countDown(); });
+        wheel.schedule(350, () -> { order.add(2); fired.countDown(); });
+
+        assertTrue(fired.await(5, TimeUnit.SECONDS));
+        assertEquals(List.of(1, 2, 3), order);
+    }
+
+    @Test
+    void failingTaskDoesNotStopTheTicker() throws InterruptedException {
+        wheel.schedule(0, () -> { throw new IllegalStateException("boom"); });
+        CountDownLatch fired = new CountDownLatch(1);
+        wheel.schedule(100, fired::countDown);
+        assertTrue(fired.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void restartsAfterShutdown() throws InterruptedException {
+        CountDownLatch first = new CountDownLatch(1);
+        wheel.schedule(0, first::countDown);
+        assertTrue(first.await(5, TimeUnit.SECONDS));
+
+        wheel.shutdown();
+        CountDownLatch second = new CountDownLatch(1);
+        wheel.schedule(0, second::countDown);
+        assertTrue(second.await(5, TimeUnit.SECONDS));
+    }
+}